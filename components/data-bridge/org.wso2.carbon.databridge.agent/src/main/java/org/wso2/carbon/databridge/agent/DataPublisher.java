@@ -32,6 +32,8 @@ import org.wso2.carbon.databridge.commons.Event;
 import org.wso2.carbon.databridge.commons.exception.TransportException;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -67,6 +69,16 @@ public class DataPublisher {
      */
     private long failedEventCount;
 
+    /**
+     * The slot each publishing thread writes its events into in place.
+     */
+    private final ThreadLocal<EventSlot> eventSlots = new ThreadLocal<EventSlot>() {
+        @Override
+        protected EventSlot initialValue() {
+            return new EventSlot(endpointGroups);
+        }
+    };
+
     /**
      * Creates the DataPublisher instance for a specific user, and the it creates
      * connection asynchronously to receiver endpoint.
@@ -183,6 +195,18 @@ public class DataPublisher {
                                 dataEndpointAgent.getAgentConfiguration().getCorePoolSize(),
                                 dataEndpointAgent.getAgentConfiguration().getMaxPoolSize(),
                                 dataEndpointAgent.getAgentConfiguration().getKeepAliveTimeInPool());
+                endpointConfiguration.setPublishWindowSize(dataEndpointAgent.getAgentConfiguration().
+                        getPublishWindowSize());
+                endpointConfiguration.setStreamIdDictionary(dataEndpointAgent.getAgentConfiguration().
+                        isStreamIdDictionary());
+                endpointConfiguration.setCompression(dataEndpointAgent.getAgentConfiguration().getCompression());
+                endpointConfiguration.setCompressionThreshold(dataEndpointAgent.getAgentConfiguration().
+                        getCompressionThreshold());
+                endpointConfiguration.setAdaptiveBatching(dataEndpointAgent.getAgentConfiguration().
+                        isAdaptiveBatching());
+                endpointConfiguration.setMaxBatchLingerMS(dataEndpointAgent.getAgentConfiguration().
+                        getMaxBatchLingerMS());
+                endpointConfiguration.setMaxBatchBytes(dataEndpointAgent.getAgentConfiguration().getMaxBatchBytes());
                 DataEndpoint dataEndpoint = dataEndpointAgent.getNewDataEndpoint();
                 dataEndpoint.initialize(endpointConfiguration);
                 endpointGroup.addDataEndpoint(dataEndpoint);
@@ -294,6 +318,42 @@ public class DataPublisher {
                 payloadDataArray, arbitraryDataMap));
     }
     
+    /**
+     * Publish a batch of events for all receiver groups which has been specified in the DataPublisher.
+     * The events are inserted in to the internal queue of each receiver group as contiguous ranges
+     * instead of one by one, which reduces the per event contention for producers that already hold
+     * events in batches. This is a blocking invocation with the same semantics as {@link #publish(Event)}.
+     *
+     * @param events The Events that needs to sent for the receiver groups
+     */
+    public void publish(List<Event> events) {
+        for (DataEndpointGroup endpointGroup : endpointGroups) {
+            endpointGroup.publish(events);
+        }
+    }
+
+    /**
+     * Claims a slot in the internal queue of each receiver group for an event to be written into in place, so
+     * that high rate producers can publish without creating events. The attributes of the event are set on the
+     * returned slot, which is then published with {@link EventSlot#commit()}. The slot must always be committed,
+     * or aborted with {@link EventSlot#abort()}, as the events queued after it are not sent until then, and it is
+     * reused by the calling thread for its next claim. This is a blocking invocation with the same semantics as
+     * {@link #publish(Event)}.
+     *
+     * @param streamId            StreamId for which the event belongs to.
+     * @param timeStamp           Timestamp of the event.
+     * @param metaDataSize        Number of meta data attributes of the event.
+     * @param correlationDataSize Number of correlation data attributes of the event.
+     * @param payloadDataSize     Number of payload data attributes of the event.
+     * @return the slot of the calling thread, claimed for the event
+     */
+    public EventSlot claim(String streamId, long timeStamp, int metaDataSize, int correlationDataSize,
+                           int payloadDataSize) {
+        EventSlot eventSlot = eventSlots.get();
+        eventSlot.claim(streamId, timeStamp, metaDataSize, correlationDataSize, payloadDataSize);
+        return eventSlot;
+    }
+
     private void onEventQueueFull(DataEndpointGroup endpointGroup, Event event) {
         this.failedEventCount++;
         long currentTime = System.currentTimeMillis();
@@ -356,6 +416,33 @@ public class DataPublisher {
         return sent;
     }
 
+    /**
+     * Publish a batch of events for all receiver groups which has been specified in the DataPublisher.
+     * The events are inserted in to the internal queue of each receiver group as contiguous ranges.
+     * This is a non-blocking invocation and if the queue if full then it will wait until timeoutMS value,
+     * and the events which still can't be inserted into the queue will be dropped.
+     *
+     * @param events    The events which needs to be published to the receiver groups
+     * @param timeoutMS The timeout value to insert publish the events
+     * @return true if all the events were published to all receiver groups, false if any event was dropped.
+     */
+    public boolean tryPublish(Collection<Event> events, long timeoutMS) {
+        boolean sent = true;
+        for (DataEndpointGroup endpointGroup : endpointGroups) {
+            int publishedCount = endpointGroup.tryPublish(events, timeoutMS);
+            if (publishedCount < events.size()) {
+                sent = false;
+                int index = 0;
+                for (Event event : events) {
+                    if (index++ >= publishedCount) {
+                        this.onEventQueueFull(endpointGroup, event);
+                    }
+                }
+            }
+        }
+        return sent;
+    }
+
     /**
      * Publish an event based on the event properties that are passed
      * for all receiver groups which has been specified in the DataPublisher.
@@ -525,6 +612,32 @@ public class DataPublisher {
                 payloadDataArray, arbitraryDataMap));
     }
 
+    /**
+     * Number of times publishing threads had to wait for space in the event queues of this data publisher.
+     *
+     * @return the blocked producer count summed over all endpoint groups.
+     */
+    public long getBlockedProducerCount() {
+        long count = 0;
+        for (DataEndpointGroup dataEndpointGroup : endpointGroups) {
+            count += dataEndpointGroup.getBlockedProducerCount();
+        }
+        return count;
+    }
+
+    /**
+     * Total time publishing threads spent waiting for space in the event queues of this data publisher.
+     *
+     * @return the blocked time in milliseconds summed over all endpoint groups.
+     */
+    public long getBlockedProducerTimeMS() {
+        long time = 0;
+        for (DataEndpointGroup dataEndpointGroup : endpointGroups) {
+            time += dataEndpointGroup.getBlockedProducerTimeMS();
+        }
+        return time;
+    }
+
     /**
      * Graceful shutdown of all the operations of the data publisher.
      * It will flush all the events to the relevant endpoint, and closes all the
@@ -0,0 +1,154 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.agent;
+
+import org.wso2.carbon.databridge.agent.endpoint.DataEndpointGroup;
+import org.wso2.carbon.databridge.agent.endpoint.WrappedEventFactory;
+
+import java.util.List;
+
+/**
+ * An event being written in place into the event queues of the receiver groups of a {@link DataPublisher}, so that
+ * the publishing thread does not create an event nor its attribute arrays. The slot is claimed with
+ * {@link DataPublisher#claim(String, long, int, int, int)}, filled with the setters and published with
+ * {@link #commit()}, or given up with {@link #abort()}. One of them must always follow the claim, as the events
+ * queued after it are not sent until then, hence the slot is filled as follows.
+ * <pre>
+ * EventSlot eventSlot = dataPublisher.claim(streamId, timeStamp, 1, 0, 2);
+ * try {
+ *     eventSlot.setMetaData(0, host);
+ *     eventSlot.setPayloadData(0, symbol);
+ *     eventSlot.setPayloadData(1, price);
+ *     eventSlot.commit();
+ * } finally {
+ *     eventSlot.abort();
+ * }
+ * </pre>
+ * The slot is claimed in the queue of each receiver group in turn, waiting for capacity as
+ * {@link DataPublisher#publish(org.wso2.carbon.databridge.commons.Event)} does, hence a group whose queue is full
+ * also holds back the events queued after the slot in the groups claimed before it.
+ * <p>
+ * Each publishing thread has a single slot which it reuses for all its events.
+ */
+public class EventSlot {
+    private final List<DataEndpointGroup> endpointGroups;
+    private final long[] sequences;
+    private final WrappedEventFactory.WrappedEvent[] slots;
+    //Written instead of a queue slot for the groups which do not queue the event, and then published as an event
+    private final WrappedEventFactory.WrappedEvent[] unqueuedSlots;
+    private boolean claimed;
+
+    EventSlot(List<DataEndpointGroup> endpointGroups) {
+        this.endpointGroups = endpointGroups;
+        this.sequences = new long[endpointGroups.size()];
+        this.slots = new WrappedEventFactory.WrappedEvent[endpointGroups.size()];
+        this.unqueuedSlots = new WrappedEventFactory.WrappedEvent[endpointGroups.size()];
+        WrappedEventFactory wrappedEventFactory = new WrappedEventFactory();
+        for (int i = 0; i < unqueuedSlots.length; i++) {
+            unqueuedSlots[i] = wrappedEventFactory.newInstance();
+        }
+    }
+
+    void claim(String streamId, long timeStamp, int metaDataSize, int correlationDataSize, int payloadDataSize) {
+        if (claimed) {
+            throw new IllegalStateException("The event slot of this thread is already claimed, and is not committed");
+        }
+        int claimedGroups = 0;
+        try {
+            for (int i = 0; i < sequences.length; i++) {
+                DataEndpointGroup endpointGroup = endpointGroups.get(i);
+                sequences[i] = endpointGroup.claimSlot();
+                claimedGroups++;
+                slots[i] = sequences[i] >= 0 ? endpointGroup.getSlot(sequences[i]) : unqueuedSlots[i];
+                slots[i].reset(streamId, timeStamp, metaDataSize, correlationDataSize, payloadDataSize);
+            }
+        } finally {
+            if (claimedGroups < sequences.length) {
+                //Releases the slots of the groups claimed before the failure, as the caller gets no slot to abort
+                abortSlots(claimedGroups);
+            }
+        }
+        claimed = true;
+    }
+
+    public void setTimeStamp(long timeStamp) {
+        for (WrappedEventFactory.WrappedEvent slot : slots) {
+            slot.setTimeStamp(timeStamp);
+        }
+    }
+
+    public void setMetaData(int index, Object value) {
+        for (WrappedEventFactory.WrappedEvent slot : slots) {
+            slot.getMetaData()[index] = value;
+        }
+    }
+
+    public void setCorrelationData(int index, Object value) {
+        for (WrappedEventFactory.WrappedEvent slot : slots) {
+            slot.getCorrelationData()[index] = value;
+        }
+    }
+
+    public void setPayloadData(int index, Object value) {
+        for (WrappedEventFactory.WrappedEvent slot : slots) {
+            slot.getPayloadData()[index] = value;
+        }
+    }
+
+    public void setArbitraryData(String key, String value) {
+        for (WrappedEventFactory.WrappedEvent slot : slots) {
+            slot.getArbitraryDataMap().put(key, value);
+        }
+    }
+
+    /**
+     * Publishes the event written into the slot to all the receiver groups.
+     */
+    public void commit() {
+        if (!claimed) {
+            throw new IllegalStateException("The event slot of this thread is not claimed");
+        }
+        claimed = false;
+        for (int i = 0; i < sequences.length; i++) {
+            if (sequences[i] >= 0) {
+                endpointGroups.get(i).commitSlot(sequences[i]);
+            } else {
+                endpointGroups.get(i).publish(unqueuedSlots[i].takeEvent());
+            }
+        }
+    }
+
+    /**
+     * Publishes the slot without an event if it is still claimed, so that the events queued after it are sent.
+     * Nothing is done once the slot is committed, hence it can be called in a finally block following the commit.
+     */
+    public void abort() {
+        if (claimed) {
+            claimed = false;
+            abortSlots(sequences.length);
+        }
+    }
+
+    private void abortSlots(int claimedGroups) {
+        for (int i = 0; i < claimedGroups; i++) {
+            if (sequences[i] >= 0) {
+                endpointGroups.get(i).abortSlot(sequences[i]);
+            }
+        }
+    }
+}
@@ -94,6 +94,63 @@ public class AgentConfiguration {
     @Element(description = "Ciphers", required = false)
     private String ciphers = "SSL_RSA_WITH_RC4_128_MD5,SSL_RSA_WITH_RC4_128_SHA,TLS_RSA_WITH_AES_128_CBC_SHA,TLS_DHE_RSA_WITH_AES_128_CBC_SHA,TLS_DHE_DSS_WITH_AES_128_CBC_SHA,SSL_RSA_WITH_3DES_EDE_CBC_SHA,SSL_DHE_RSA_WITH_3DES_EDE_CBC_SHA,SSL_DHE_DSS_WITH_3DES_EDE_CBC_SHA";
 
+    @Element(description = "Maximum unacknowledged publish batches per connection", required = false)
+    private int publishWindowSize = 1;
+
+    @Element(description = "Event queue wait strategy", required = false)
+    private String waitStrategy = "blocking";
+
+    @Element(description = "Event queue wait timeout in milliseconds for timeoutBlocking strategy", required = false)
+    private int waitStrategyTimeoutMS = 1000;
+
+    @Element(description = "Event queue producer type", required = false)
+    private String producerType = "multi";
+
+    @Element(description = "Send stream ids as per connection handles", required = false)
+    private boolean streamIdDictionary = false;
+
+    @Element(description = "Binary publish message compression, none or deflate", required = false)
+    private String compression = "none";
+
+    @Element(description = "Minimum size in bytes of a compressed publish message", required = false)
+    private int compressionThreshold = 1024;
+
+    @Element(description = "Use framed Thrift transport, as required by receivers in selector server mode", required = false)
+    private boolean framedTransport = false;
+
+    @Element(description = "Thrift protocol, binary or compact", required = false)
+    private String thriftProtocol = "binary";
+
+    @Element(description = "Interval in milliseconds between heartbeats over the pooled connections, 0 disables them", required = false)
+    private int heartbeatIntervalMS = 0;
+
+    @Element(description = "Load balancing strategy, roundRobin or latencyWeighted", required = false)
+    private String loadBalancingStrategy = "roundRobin";
+
+    @Element(description = "Directory of the disk spool which takes the events the queue cannot hold while no endpoint is available, empty disables the spool", required = false)
+    private String spoolDirectory = "";
+
+    @Element(description = "Size in bytes of each memory mapped spool segment file", required = false)
+    private int spoolSegmentSize = 67108864;
+
+    @Element(description = "Maximum number of spool segment files", required = false)
+    private int spoolMaxSegments = 16;
+
+    @Element(description = "Maximum number of spooled events sent per second once an endpoint is available", required = false)
+    private int spoolDrainRate = 10000;
+
+    @Element(description = "Event attribute the events of a load balancing group are partitioned on, metaData[i], correlationData[i], payloadData[i] or arbitraryData[key], empty disables partitioning", required = false)
+    private String partitionKey = "";
+
+    @Element(description = "Grow and shrink the batches of the endpoints with their send latency and event backlog, holding partial batches up to the linger time", required = false)
+    private boolean adaptiveBatching = false;
+
+    @Element(description = "Maximum time in milliseconds an event waits in a partial adaptive batch", required = false)
+    private int maxBatchLingerMS = 10;
+
+    @Element(description = "Maximum size in bytes of an adaptive batch", required = false)
+    private int maxBatchBytes = 1048576;
+
     public String getName() {
         return name;
     }
@@ -270,6 +327,158 @@ public class AgentConfiguration {
         this.ciphers = ciphers;
     }
 
+    public int getPublishWindowSize() {
+        return publishWindowSize;
+    }
+
+    public void setPublishWindowSize(int publishWindowSize) {
+        this.publishWindowSize = publishWindowSize;
+    }
+
+    public String getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public void setWaitStrategy(String waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    public int getWaitStrategyTimeoutMS() {
+        return waitStrategyTimeoutMS;
+    }
+
+    public void setWaitStrategyTimeoutMS(int waitStrategyTimeoutMS) {
+        this.waitStrategyTimeoutMS = waitStrategyTimeoutMS;
+    }
+
+    public String getProducerType() {
+        return producerType;
+    }
+
+    public void setProducerType(String producerType) {
+        this.producerType = producerType;
+    }
+
+    public boolean isStreamIdDictionary() {
+        return streamIdDictionary;
+    }
+
+    public void setStreamIdDictionary(boolean streamIdDictionary) {
+        this.streamIdDictionary = streamIdDictionary;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+
+    public void setCompression(String compression) {
+        this.compression = compression;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public boolean isFramedTransport() {
+        return framedTransport;
+    }
+
+    public void setFramedTransport(boolean framedTransport) {
+        this.framedTransport = framedTransport;
+    }
+
+    public String getThriftProtocol() {
+        return thriftProtocol;
+    }
+
+    public void setThriftProtocol(String thriftProtocol) {
+        this.thriftProtocol = thriftProtocol;
+    }
+
+    public int getHeartbeatIntervalMS() {
+        return heartbeatIntervalMS;
+    }
+
+    public void setHeartbeatIntervalMS(int heartbeatIntervalMS) {
+        this.heartbeatIntervalMS = heartbeatIntervalMS;
+    }
+
+    public String getLoadBalancingStrategy() {
+        return loadBalancingStrategy;
+    }
+
+    public void setLoadBalancingStrategy(String loadBalancingStrategy) {
+        this.loadBalancingStrategy = loadBalancingStrategy;
+    }
+
+    public String getSpoolDirectory() {
+        return spoolDirectory;
+    }
+
+    public void setSpoolDirectory(String spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    public int getSpoolSegmentSize() {
+        return spoolSegmentSize;
+    }
+
+    public void setSpoolSegmentSize(int spoolSegmentSize) {
+        this.spoolSegmentSize = spoolSegmentSize;
+    }
+
+    public int getSpoolMaxSegments() {
+        return spoolMaxSegments;
+    }
+
+    public void setSpoolMaxSegments(int spoolMaxSegments) {
+        this.spoolMaxSegments = spoolMaxSegments;
+    }
+
+    public int getSpoolDrainRate() {
+        return spoolDrainRate;
+    }
+
+    public void setSpoolDrainRate(int spoolDrainRate) {
+        this.spoolDrainRate = spoolDrainRate;
+    }
+
+    public String getPartitionKey() {
+        return partitionKey;
+    }
+
+    public void setPartitionKey(String partitionKey) {
+        this.partitionKey = partitionKey;
+    }
+
+    public boolean isAdaptiveBatching() {
+        return adaptiveBatching;
+    }
+
+    public void setAdaptiveBatching(boolean adaptiveBatching) {
+        this.adaptiveBatching = adaptiveBatching;
+    }
+
+    public int getMaxBatchLingerMS() {
+        return maxBatchLingerMS;
+    }
+
+    public void setMaxBatchLingerMS(int maxBatchLingerMS) {
+        this.maxBatchLingerMS = maxBatchLingerMS;
+    }
+
+    public int getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    public void setMaxBatchBytes(int maxBatchBytes) {
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
     @Override
     public String toString() {
         return ", Name : " + name +
@@ -293,7 +502,26 @@ public class AgentConfiguration {
                "SecureEvictionTimePeriod" + secureEvictionTimePeriod +
                "SecureMinIdleTimeInPool" + secureMinIdleTimeInPool +
                "SSLEnabledProtocols" + sslEnabledProtocols +
-               "Ciphers" + ciphers;
+               "Ciphers" + ciphers +
+               "PublishWindowSize" + publishWindowSize +
+               "WaitStrategy" + waitStrategy +
+               "WaitStrategyTimeoutMS" + waitStrategyTimeoutMS +
+               "ProducerType" + producerType +
+               "StreamIdDictionary" + streamIdDictionary +
+               "Compression" + compression +
+               "CompressionThreshold" + compressionThreshold +
+               "FramedTransport" + framedTransport +
+               "ThriftProtocol" + thriftProtocol +
+               "HeartbeatIntervalMS" + heartbeatIntervalMS +
+               "LoadBalancingStrategy" + loadBalancingStrategy +
+               "SpoolDirectory" + spoolDirectory +
+               "SpoolSegmentSize" + spoolSegmentSize +
+               "SpoolMaxSegments" + spoolMaxSegments +
+               "SpoolDrainRate" + spoolDrainRate +
+               "PartitionKey" + partitionKey +
+               "AdaptiveBatching" + adaptiveBatching +
+               "MaxBatchLingerMS" + maxBatchLingerMS +
+               "MaxBatchBytes" + maxBatchBytes;
     }
 
     public AgentConfiguration(String name, String dataEndpointClass) {
@@ -170,6 +170,101 @@ public class DataAgentConfigurationFileResolver {
                     agentConfiguration.setCiphers(agentConfigurationHashMap.get(
                             DataAgentConstants.CIPHERS).toString().trim());
                 }
+
+                if (agentConfigurationHashMap.get(DataAgentConstants.PUBLISH_WINDOW_SIZE) != null) {
+                    agentConfiguration.setPublishWindowSize(Integer.parseInt(agentConfigurationHashMap.get(
+                            DataAgentConstants.PUBLISH_WINDOW_SIZE).toString().trim()));
+                }
+
+                if (agentConfigurationHashMap.get(DataAgentConstants.WAIT_STRATEGY) != null) {
+                    agentConfiguration.setWaitStrategy(agentConfigurationHashMap.get(
+                            DataAgentConstants.WAIT_STRATEGY).toString().trim());
+                }
+
+                if (agentConfigurationHashMap.get(DataAgentConstants.WAIT_STRATEGY_TIMEOUT_MS) != null) {
+                    agentConfiguration.setWaitStrategyTimeoutMS(Integer.parseInt(agentConfigurationHashMap.get(
+                            DataAgentConstants.WAIT_STRATEGY_TIMEOUT_MS).toString().trim()));
+                }
+
+                if (agentConfigurationHashMap.get(DataAgentConstants.PRODUCER_TYPE) != null) {
+                    agentConfiguration.setProducerType(agentConfigurationHashMap.get(
+                            DataAgentConstants.PRODUCER_TYPE).toString().trim());
+                }
+
+                if (agentConfigurationHashMap.get(DataAgentConstants.STREAM_ID_DICTIONARY) != null) {
+                    agentConfiguration.setStreamIdDictionary(Boolean.parseBoolean(agentConfigurationHashMap.get(
+                            DataAgentConstants.STREAM_ID_DICTIONARY).toString().trim()));
+                }
+
+                if (agentConfigurationHashMap.get(DataAgentConstants.COMPRESSION) != null) {
+                    agentConfiguration.setCompression(agentConfigurationHashMap.get(
+                            DataAgentConstants.COMPRESSION).toString().trim());
+                }
+
+                if (agentConfigurationHashMap.get(DataAgentConstants.COMPRESSION_THRESHOLD) != null) {
+                    agentConfiguration.setCompressionThreshold(Integer.parseInt(agentConfigurationHashMap.get(
+                            DataAgentConstants.COMPRESSION_THRESHOLD).toString().trim()));
+                }
+
+                if (agentConfigurationHashMap.get(DataAgentConstants.FRAMED_TRANSPORT) != null) {
+                    agentConfiguration.setFramedTransport(Boolean.parseBoolean(agentConfigurationHashMap.get(
+                            DataAgentConstants.FRAMED_TRANSPORT).toString().trim()));
+                }
+
+                if (agentConfigurationHashMap.get(DataAgentConstants.THRIFT_PROTOCOL) != null) {
+                    agentConfiguration.setThriftProtocol(agentConfigurationHashMap.get(
+                            DataAgentConstants.THRIFT_PROTOCOL).toString().trim());
+                }
+
+                if (agentConfigurationHashMap.get(DataAgentConstants.HEARTBEAT_INTERVAL_MS) != null) {
+                    agentConfiguration.setHeartbeatIntervalMS(Integer.parseInt(agentConfigurationHashMap.get(
+                            DataAgentConstants.HEARTBEAT_INTERVAL_MS).toString().trim()));
+                }
+
+                if (agentConfigurationHashMap.get(DataAgentConstants.LOAD_BALANCING_STRATEGY) != null) {
+                    agentConfiguration.setLoadBalancingStrategy(agentConfigurationHashMap.get(
+                            DataAgentConstants.LOAD_BALANCING_STRATEGY).toString().trim());
+                }
+
+                if (agentConfigurationHashMap.get(DataAgentConstants.SPOOL_DIRECTORY) != null) {
+                    agentConfiguration.setSpoolDirectory(DataBridgeCommonsUtils.replaceSystemProperty(
+                            agentConfigurationHashMap.get(DataAgentConstants.SPOOL_DIRECTORY).toString().trim()));
+                }
+
+                if (agentConfigurationHashMap.get(DataAgentConstants.SPOOL_SEGMENT_SIZE) != null) {
+                    agentConfiguration.setSpoolSegmentSize(Integer.parseInt(agentConfigurationHashMap.get(
+                            DataAgentConstants.SPOOL_SEGMENT_SIZE).toString().trim()));
+                }
+
+                if (agentConfigurationHashMap.get(DataAgentConstants.SPOOL_MAX_SEGMENTS) != null) {
+                    agentConfiguration.setSpoolMaxSegments(Integer.parseInt(agentConfigurationHashMap.get(
+                            DataAgentConstants.SPOOL_MAX_SEGMENTS).toString().trim()));
+                }
+
+                if (agentConfigurationHashMap.get(DataAgentConstants.SPOOL_DRAIN_RATE) != null) {
+                    agentConfiguration.setSpoolDrainRate(Integer.parseInt(agentConfigurationHashMap.get(
+                            DataAgentConstants.SPOOL_DRAIN_RATE).toString().trim()));
+                }
+
+                if (agentConfigurationHashMap.get(DataAgentConstants.PARTITION_KEY) != null) {
+                    agentConfiguration.setPartitionKey(agentConfigurationHashMap.get(
+                            DataAgentConstants.PARTITION_KEY).toString().trim());
+                }
+
+                if (agentConfigurationHashMap.get(DataAgentConstants.ADAPTIVE_BATCHING) != null) {
+                    agentConfiguration.setAdaptiveBatching(Boolean.parseBoolean(agentConfigurationHashMap.get(
+                            DataAgentConstants.ADAPTIVE_BATCHING).toString().trim()));
+                }
+
+                if (agentConfigurationHashMap.get(DataAgentConstants.MAX_BATCH_LINGER_MS) != null) {
+                    agentConfiguration.setMaxBatchLingerMS(Integer.parseInt(agentConfigurationHashMap.get(
+                            DataAgentConstants.MAX_BATCH_LINGER_MS).toString().trim()));
+                }
+
+                if (agentConfigurationHashMap.get(DataAgentConstants.MAX_BATCH_BYTES) != null) {
+                    agentConfiguration.setMaxBatchBytes(Integer.parseInt(agentConfigurationHashMap.get(
+                            DataAgentConstants.MAX_BATCH_BYTES).toString().trim()));
+                }
                 agents.add(agent);
             }
         } else {
@@ -51,6 +51,20 @@ public class DataEndpointConfiguration {
 
     private int keepAliveTimeInPool;
 
+    private int publishWindowSize = 1;
+
+    private boolean streamIdDictionary;
+
+    private String compression = DataEndpointConstants.NO_COMPRESSION;
+
+    private int compressionThreshold;
+
+    private boolean adaptiveBatching;
+
+    private int maxBatchLingerMS;
+
+    private int maxBatchBytes;
+
     public enum Protocol {
         TCP, SSL;
 
@@ -139,5 +153,60 @@ public class DataEndpointConfiguration {
     public int getBatchSize() {
         return batchSize;
     }
-}
 
+    public int getPublishWindowSize() {
+        return publishWindowSize;
+    }
+
+    public void setPublishWindowSize(int publishWindowSize) {
+        this.publishWindowSize = publishWindowSize;
+    }
+
+    public boolean isStreamIdDictionary() {
+        return streamIdDictionary;
+    }
+
+    public void setStreamIdDictionary(boolean streamIdDictionary) {
+        this.streamIdDictionary = streamIdDictionary;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+
+    public void setCompression(String compression) {
+        this.compression = compression;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public boolean isAdaptiveBatching() {
+        return adaptiveBatching;
+    }
+
+    public void setAdaptiveBatching(boolean adaptiveBatching) {
+        this.adaptiveBatching = adaptiveBatching;
+    }
+
+    public int getMaxBatchLingerMS() {
+        return maxBatchLingerMS;
+    }
+
+    public void setMaxBatchLingerMS(int maxBatchLingerMS) {
+        this.maxBatchLingerMS = maxBatchLingerMS;
+    }
+
+    public int getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    public void setMaxBatchBytes(int maxBatchBytes) {
+        this.maxBatchBytes = maxBatchBytes;
+    }
+}
@@ -28,6 +28,7 @@ import org.wso2.carbon.databridge.commons.Event;
 import org.wso2.carbon.databridge.commons.exception.SessionTimeoutException;
 import org.wso2.carbon.databridge.commons.exception.TransportException;
 import org.wso2.carbon.databridge.commons.exception.UndefinedEventTypeException;
+import org.wso2.carbon.databridge.commons.utils.DataBridgeCommonsUtils;
 import org.wso2.carbon.databridge.commons.utils.DataBridgeThreadFactory;
 
 import java.util.ArrayList;
@@ -36,6 +37,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Abstract class for DataEndpoint, and this is a main class that needs to be implemented
@@ -47,13 +49,17 @@ public abstract class DataEndpoint {
 
     private static Log log = LogFactory.getLog(DataEndpoint.class);
 
+    private static final long PENDING_BATCHES_TIMEOUT_MS = 30000;
+
     private DataEndpointConnectionWorker connectionWorker;
 
     private GenericKeyedObjectPool transportPool;
 
     private int batchSize;
 
-    private EventPublisherThreadPoolExecutor threadPoolExecutor;
+    private EventPublisherWorkerPool publisherWorkers;
+
+    private final EventPublisher eventPublisher = new EventPublisher();
 
     private DataEndpointFailureCallback dataEndpointFailureCallback;
 
@@ -67,6 +73,26 @@ public abstract class DataEndpoint {
 
     private Semaphore immediateDispatchSemaphore;
 
+    private final AtomicInteger outstandingBatches = new AtomicInteger();
+
+    private volatile long sendLatencyNanos;
+
+    //Guards the batch being collected, which the linger task of an adaptive group also sends
+    private final Object batchLock = new Object();
+
+    private boolean adaptiveBatching;
+
+    private long maxBatchLingerNanos;
+
+    private int maxBatchBytes;
+
+    //Adjusted under the batch lock, both by the thread collecting the batch and by the publisher threads
+    private int targetBatchSize;
+
+    private int batchBytes;
+
+    private long batchStartNanos;
+
     public enum State {
         ACTIVE, UNAVAILABLE, BUSY, INITIALIZING
     }
@@ -78,28 +104,103 @@ public abstract class DataEndpoint {
     }
 
     void collectAndSend(Event event) {
-        events.add(event);
-        if (events.size() >= batchSize) {
-            threadPoolExecutor.submitJobAndSetState(new Thread(new EventPublisher(events)), this);
-            events = new ArrayList<>();
+        collectAndSend(event, false);
+    }
+
+    /**
+     * Adds the event to the batch being collected, and sends the batch once it is full. An adaptive batch is full
+     * at its target size or at the maximum batch bytes. Its target size is doubled when it fills up while more
+     * events are already waiting, as long as the sends take less than the linger time, so that a backlog is sent
+     * in fewer and larger batches.
+     *
+     * @param backlog whether more events are already waiting to be collected after this one
+     */
+    void collectAndSend(Event event, boolean backlog) {
+        List<Event> batch = null;
+        synchronized (batchLock) {
+            if (events.isEmpty()) {
+                batchStartNanos = System.nanoTime();
+            }
+            events.add(event);
+            if (!adaptiveBatching) {
+                if (events.size() >= batchSize) {
+                    batch = takeBatch();
+                }
+            } else {
+                batchBytes += DataBridgeCommonsUtils.getSize(event);
+                if (batchBytes >= maxBatchBytes) {
+                    batch = takeBatch();
+                } else if (events.size() >= targetBatchSize) {
+                    if (backlog && sendLatencyNanos < maxBatchLingerNanos && targetBatchSize < Integer.MAX_VALUE / 2) {
+                        targetBatchSize = targetBatchSize * 2;
+                    }
+                    batch = takeBatch();
+                }
+            }
+        }
+        if (batch != null) {
+            dispatch(batch);
         }
     }
 
     void flushEvents() {
-        if (events.size() != 0) {
-            threadPoolExecutor.submitJobAndSetState(new Thread(new EventPublisher(events)), this);
-            events = new ArrayList<>();
+        List<Event> batch = null;
+        synchronized (batchLock) {
+            if (events.size() != 0) {
+                batch = takeBatch();
+            }
+        }
+        if (batch != null) {
+            dispatch(batch);
+        }
+    }
+
+    /**
+     * Sends the adaptive batch being collected once its first event has waited for the maximum linger time. The
+     * batch is then sent partially full, hence its target size is halved, though not below the number of events
+     * it did collect.
+     */
+    void flushLingeringEvents() {
+        List<Event> batch = null;
+        synchronized (batchLock) {
+            if (events.size() != 0 && System.nanoTime() - batchStartNanos >= maxBatchLingerNanos) {
+                targetBatchSize = Math.max(events.size(), targetBatchSize / 2);
+                batch = takeBatch();
+            }
         }
+        if (batch != null) {
+            dispatch(batch);
+        }
+    }
+
+    private List<Event> takeBatch() {
+        List<Event> batch = events;
+        events = new ArrayList<>();
+        batchBytes = 0;
+        return batch;
+    }
+
+    /**
+     * Sends the events as a batch of their own, apart from the events collected by collectAndSend, so that batches
+     * can also be given by other threads than the event queue worker.
+     */
+    void sendBatch(List<Event> events) {
+        dispatch(events);
+    }
+
+    private void dispatch(List<Event> batch) {
+        outstandingBatches.incrementAndGet();
+        publisherWorkers.submitAndSetState(batch, this);
     }
 
     void syncSend(Event event) {
         List<Event> events = new ArrayList<>(1);
         events.add(event);
-        EventPublisher eventPublisher = new EventPublisher(events);
+        outstandingBatches.incrementAndGet();
         setStateBusy();
         acquireImmediateDispatchSemaphore();
         try {
-            eventPublisher.run();
+            eventPublisher.publish(events);
         } finally {
             releaseImmediateDispatchSemaphore();
         }
@@ -159,11 +260,15 @@ public abstract class DataEndpoint {
             TransportException {
         this.transportPool = dataEndpointConfiguration.getTransportPool();
         this.batchSize = dataEndpointConfiguration.getBatchSize();
+        this.adaptiveBatching = dataEndpointConfiguration.isAdaptiveBatching();
+        this.maxBatchLingerNanos = TimeUnit.MILLISECONDS.toNanos(dataEndpointConfiguration.getMaxBatchLingerMS());
+        this.maxBatchBytes = dataEndpointConfiguration.getMaxBatchBytes();
+        this.targetBatchSize = batchSize;
         this.connectionWorker = new DataEndpointConnectionWorker();
         this.connectionWorker.initialize(this, dataEndpointConfiguration);
-        this.threadPoolExecutor = new EventPublisherThreadPoolExecutor(dataEndpointConfiguration.getCorePoolSize(),
-                dataEndpointConfiguration.getMaxPoolSize(), dataEndpointConfiguration.getKeepAliveTimeInPool(),
-                dataEndpointConfiguration.getReceiverURL());
+        this.publisherWorkers = new EventPublisherWorkerPool(dataEndpointConfiguration.getCorePoolSize(),
+                dataEndpointConfiguration.getMaxPoolSize(), dataEndpointConfiguration.getReceiverURL(),
+                eventPublisher);
         this.connectionService = Executors.newSingleThreadExecutor(new DataBridgeThreadFactory("ConnectionService-" +
                 dataEndpointConfiguration.getReceiverURL()));
         this.maxPoolSize = dataEndpointConfiguration.getMaxPoolSize();
@@ -255,73 +360,164 @@ public abstract class DataEndpoint {
     }
 
     /**
-     * Event Publisher worker thread to actually sends the events to the endpoint.
+     * Sends the batches of events to the endpoint, for the publisher workers and the synchronously publishing
+     * threads alike. It keeps no state of its own, hence a single instance serves them all.
      */
-    class EventPublisher implements Runnable {
-        List<Event> events;
-
-        public EventPublisher(List<Event> events) {
-            this.events = events;
-        }
+    class EventPublisher implements EventPublisherWorkerPool.BatchPublisher {
 
         @Override
-        public void run() {
+        public void publish(List<Event> events) {
             String sessionId = getDataEndpointConfiguration().getSessionId();
             try {
-                publish();
+                send(events);
             } catch (SessionTimeoutException e) {
                 try {
                     if (sessionId == null || sessionId.equalsIgnoreCase(getDataEndpointConfiguration().getSessionId())) {
                         syncConnect(sessionId);
                     }
-                    publish();
+                    send(events);
                 } catch (UndefinedEventTypeException ex) {
                     log.error("Unable to process this event.", ex);
                 } catch (Exception ex) {
                     log.error("Unexpected error occurred while sending the event. ", ex);
-                    handleFailedEvents();
+                    handleFailedEvents(events);
                 }
             } catch (DataEndpointException e) {
                 log.error("Unable to send events to the endpoint. ", e);
-                handleFailedEvents();
+                handleFailedEvents(events);
             } catch (UndefinedEventTypeException e) {
                 log.error("Unable to process this event.", e);
             } catch (Exception ex) {
                 log.error("Unexpected error occurred while sending the event. ", ex);
-                handleFailedEvents();
+                handleFailedEvents(events);
             } catch (Throwable t) {
                 //There can be situations where runtime exceptions/class not found exceptions occur, This block help to catch those exceptions.
                 //No need to retry send events. Deactivating the state would be enough.
                 log.error("Unexpected error occurred while sending events. ", t);
                 deactivate();
             } finally {
+                outstandingBatches.decrementAndGet();
                 //If any processing error occurred the state will be changed to unavailable,
                 // Hence the state switch should be happening only in busy state where the publishing was success.
                 if (state.equals(State.BUSY)) {
                     activate();
                 }
                 if (log.isDebugEnabled()) {
-                    log.debug("Current threads count is : " + threadPoolExecutor.getActiveCount() + ", maxPoolSize is : " +
+                    log.debug("Current threads count is : " + publisherWorkers.getActiveCount() + ", maxPoolSize is : " +
                             maxPoolSize + ", therefore state is now : " + getState() + " at time : " + System.nanoTime());
                 }
             }
         }
 
-        private void handleFailedEvents() {
-            deactivate();
-            dataEndpointFailureCallback.tryResendEvents(events);
+        private void handleFailedEvents(List<Event> events) {
+            resendFailedEvents(events, true);
         }
 
-        private void publish() throws DataEndpointException, SessionTimeoutException, UndefinedEventTypeException {
+        private void send(List<Event> events) throws DataEndpointException, SessionTimeoutException,
+                UndefinedEventTypeException {
             Object client = getClient();
+            boolean sent = false;
             try {
-                send(client, this.events);
+                long startTime = System.nanoTime();
+                DataEndpoint.this.send(client, events);
+                sent = true;
+                recordSendLatency(System.nanoTime() - startTime);
+                if (adaptiveBatching && sendLatencyNanos > maxBatchLingerNanos) {
+                    //Sends are slower than events may wait, hence smaller batches are sent sooner
+                    synchronized (batchLock) {
+                        targetBatchSize = Math.max(1, targetBatchSize / 2);
+                    }
+                }
             } finally {
-                returnClient(client);
+                //A client which failed to send may have unread responses left in its stream, hence it is not reused
+                if (sent) {
+                    returnClient(client);
+                } else {
+                    discardClient(client);
+                }
             }
         }
     }
 
+    /**
+     * Hands back the events of an earlier send which was only later reported as failed by the endpoint,
+     * so that they can be published again through the data endpoint group.
+     *
+     * @param events     Events of the failed send.
+     * @param deactivate Whether this endpoint should be marked unavailable until it reconnects.
+     */
+    protected void resendFailedEvents(List<Event> events, boolean deactivate) {
+        if (deactivate) {
+            deactivate();
+        }
+        dataEndpointFailureCallback.tryResendEvents(events);
+    }
+
+    /**
+     * Invoked on shutdown once all publisher threads are idle, so that transports which acknowledge
+     * sends asynchronously can wait for the outstanding acknowledgements.
+     */
+    protected void completePendingSends() {
+    }
+
+    /**
+     * Sends a heartbeat over a pooled client, so that a receiver which stopped responding is found without waiting
+     * for the next failed send or reconnection attempt. The endpoint is deactivated if the heartbeat fails, and the
+     * idle clients of the pool are cleared, as they are connected to the same receiver.
+     *
+     * @param timeoutMS The time to wait for the receiver to answer the heartbeat.
+     * @return true if the receiver answered the heartbeat
+     */
+    boolean checkHealth(int timeoutMS) {
+        Object client = null;
+        try {
+            client = getClient();
+            sendHeartbeat(client, timeoutMS);
+            returnClient(client);
+            return true;
+        } catch (DataEndpointException e) {
+            log.warn("Heartbeat failed for data publisher endpoint URL - " +
+                    getDataEndpointConfiguration().getReceiverURL() + ", hence deactivating it. " + e.getMessage());
+            discardClient(client);
+            transportPool.clear(getDataEndpointConfiguration().getPublisherKey());
+            deactivate();
+            return false;
+        }
+    }
+
+    /**
+     * Sends a heartbeat to the endpoint and waits for its answer. Transports which do not support heartbeats keep
+     * this default, which only checks that a client could be borrowed.
+     *
+     * @param client    The client that is used to send the heartbeat.
+     * @param timeoutMS The time to wait for the receiver to answer the heartbeat.
+     * @throws DataEndpointException if the receiver did not answer the heartbeat
+     */
+    protected void sendHeartbeat(Object client, int timeoutMS) throws DataEndpointException {
+    }
+
+    /**
+     * The expected time for this endpoint to send a further batch: the smoothed latency of its recent sends, times
+     * the batches it already has in flight plus the new one. Endpoints which have not sent yet are expected to be
+     * fast, so that they are tried.
+     */
+    long getExpectedSendLatencyNanos() {
+        return (outstandingBatches.get() + 1) * Math.max(sendLatencyNanos, 1);
+    }
+
+    /**
+     * Folds the latency of a send into the smoothed send latency, weighting it by 1/8. Concurrent publisher threads
+     * may overwrite each other's updates, which only drops samples.
+     */
+    private void recordSendLatency(long latencyNanos) {
+        long smoothedLatency = sendLatencyNanos;
+        if (smoothedLatency == 0) {
+            sendLatencyNanos = latencyNanos;
+        } else {
+            sendLatencyNanos = smoothedLatency + (latencyNanos - smoothedLatency) / 8;
+        }
+    }
+
     boolean isConnected() {
         return !state.equals(State.UNAVAILABLE);
     }
@@ -335,18 +531,26 @@ public abstract class DataEndpoint {
      */
     public void shutdown() {
         log.info("Shutdown triggered for data publisher endpoint URL - " + getDataEndpointConfiguration().getReceiverURL());
-        while (threadPoolExecutor.getActiveCount() != 0) {
+        //Send the batches the workers have yet to take as well, unless the endpoint cannot take them in time
+        long stopTime = System.currentTimeMillis() + PENDING_BATCHES_TIMEOUT_MS;
+        while (outstandingBatches.get() != 0) {
+            if (System.currentTimeMillis() >= stopTime) {
+                log.warn("Dropping " + outstandingBatches.get() + " batches of events not sent within "
+                        + PENDING_BATCHES_TIMEOUT_MS + " ms of the shutdown of data publisher endpoint URL - "
+                        + getDataEndpointConfiguration().getReceiverURL());
+                break;
+            }
             try {
                 Thread.sleep(100);
             } catch (InterruptedException ignored) {
             }
         }
+        completePendingSends();
         connectionWorker.disconnect(getDataEndpointConfiguration());
         connectionService.shutdownNow();
-        threadPoolExecutor.shutdownNow();
+        publisherWorkers.shutdown(10, TimeUnit.SECONDS);
         try {
             connectionService.awaitTermination(10, TimeUnit.SECONDS);
-            threadPoolExecutor.awaitTermination(10, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
 
         }
@@ -19,14 +19,21 @@ package org.wso2.carbon.databridge.agent.endpoint;
 
 
 import com.lmax.disruptor.BlockingWaitStrategy;
-import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.BusySpinWaitStrategy;
 import com.lmax.disruptor.InsufficientCapacityException;
 import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceReportingEventHandler;
+import com.lmax.disruptor.SleepingWaitStrategy;
+import com.lmax.disruptor.TimeoutBlockingWaitStrategy;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.YieldingWaitStrategy;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.databridge.agent.DataEndpointAgent;
+import org.wso2.carbon.databridge.agent.conf.AgentConfiguration;
 import org.wso2.carbon.databridge.agent.exception.DataEndpointConfigurationException;
 import org.wso2.carbon.databridge.agent.exception.EventQueueFullException;
 import org.wso2.carbon.databridge.agent.util.DataEndpointConstants;
@@ -38,12 +45,19 @@ import java.io.IOException;
 import java.net.Socket;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * This class holds the endpoints associated within a group. Also it has a queue
@@ -63,38 +77,106 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
 
     private final Integer START_INDEX = 0;
 
+    private static final long ENDPOINT_AVAILABILITY_CHECK_INTERVAL_NS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    //Marks a put which has not found the event queue full
+    private static final long NOT_BLOCKED = Long.MIN_VALUE;
+
+    private static final int SPOOL_DRAIN_INTERVAL_MS = 100;
+
+    private static final int TASK_TERMINATION_TIMEOUT_SECONDS = 10;
+
     private AtomicInteger currentDataPublisherIndex = new AtomicInteger(START_INDEX);
 
     private AtomicInteger maximumDataPublisherIndex = new AtomicInteger();
 
     private ScheduledExecutorService reconnectionService;
 
+    private ScheduledExecutorService heartbeatService;
+
+    private final int heartbeatIntervalMS;
+
     private final String publishingStrategy;
 
+    private final boolean latencyWeighted;
+
+    private EventPartitioner eventPartitioner;
+
+    private EventSpool eventSpool;
+
+    private ScheduledExecutorService spoolDrainService;
+
+    private final boolean adaptiveBatching;
+
+    private ScheduledExecutorService batchLingerService;
+
     private boolean isShutdown = false;
 
     public enum HAType {
         FAILOVER, LOADBALANCE
     }
 
-    public DataEndpointGroup(HAType haType, DataEndpointAgent agent) {
+    public DataEndpointGroup(HAType haType, DataEndpointAgent agent) throws DataEndpointConfigurationException {
         this.dataEndpoints = new ArrayList<>();
         this.haType = haType;
         this.reconnectionService = Executors.newScheduledThreadPool(1, new DataBridgeThreadFactory("ReconnectionService"));
         this.reconnectionInterval = agent.getAgentConfiguration().getReconnectionInterval();
         this.publishingStrategy = agent.getAgentConfiguration().getPublishingStrategy();
+        this.latencyWeighted = DataEndpointConstants.LATENCY_WEIGHTED_LOAD_BALANCING.equalsIgnoreCase(
+                agent.getAgentConfiguration().getLoadBalancingStrategy());
+        String partitionKey = agent.getAgentConfiguration().getPartitionKey();
+        if (haType == HAType.LOADBALANCE && partitionKey != null && !partitionKey.isEmpty()) {
+            this.eventPartitioner = new EventPartitioner(partitionKey);
+        }
         if (!publishingStrategy.equalsIgnoreCase(DataEndpointConstants.SYNC_STRATEGY)) {
-            this.eventQueue = new EventQueue(agent.getAgentConfiguration().getQueueSize());
+            this.eventQueue = new EventQueue(agent.getAgentConfiguration());
+            String spoolDirectory = agent.getAgentConfiguration().getSpoolDirectory();
+            if (spoolDirectory != null && !spoolDirectory.isEmpty()) {
+                startEventSpool(agent.getAgentConfiguration());
+            }
         }
         this.reconnectionService.scheduleAtFixedRate(new ReconnectionTask(), reconnectionInterval,
                 reconnectionInterval, TimeUnit.SECONDS);
+        this.heartbeatIntervalMS = agent.getAgentConfiguration().getHeartbeatIntervalMS();
+        if (heartbeatIntervalMS > 0) {
+            this.heartbeatService = Executors.newSingleThreadScheduledExecutor(
+                    new DataBridgeThreadFactory("HeartbeatService"));
+            this.heartbeatService.scheduleWithFixedDelay(new HeartbeatTask(), heartbeatIntervalMS,
+                    heartbeatIntervalMS, TimeUnit.MILLISECONDS);
+        }
+        this.adaptiveBatching = agent.getAgentConfiguration().isAdaptiveBatching();
+        if (adaptiveBatching && eventQueue != null) {
+            int lingerCheckIntervalMS = Math.max(1, agent.getAgentConfiguration().getMaxBatchLingerMS() / 2);
+            this.batchLingerService = Executors.newSingleThreadScheduledExecutor(
+                    new DataBridgeThreadFactory("BatchLingerService"));
+            this.batchLingerService.scheduleWithFixedDelay(new BatchLingerTask(), lingerCheckIntervalMS,
+                    lingerCheckIntervalMS, TimeUnit.MILLISECONDS);
+        }
         currentDataPublisherIndex.set(START_INDEX);
     }
 
+    private void startEventSpool(AgentConfiguration agentConfiguration) {
+        try {
+            eventSpool = new EventSpool(agentConfiguration.getSpoolDirectory(),
+                    agentConfiguration.getSpoolSegmentSize(), agentConfiguration.getSpoolMaxSegments());
+        } catch (IOException e) {
+            log.error("Cannot create the event spool in " + agentConfiguration.getSpoolDirectory() +
+                    ", hence events will not be spooled while the endpoints are unavailable", e);
+            return;
+        }
+        spoolDrainService = Executors.newSingleThreadScheduledExecutor(new DataBridgeThreadFactory("SpoolDrainService"));
+        spoolDrainService.scheduleAtFixedRate(new SpoolDrainTask(agentConfiguration.getSpoolDrainRate(),
+                agentConfiguration.getBatchSize()), SPOOL_DRAIN_INTERVAL_MS, SPOOL_DRAIN_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+    }
+
     public void addDataEndpoint(DataEndpoint dataEndpoint) {
         dataEndpoints.add(dataEndpoint);
         dataEndpoint.registerDataEndpointFailureCallback(this);
         maximumDataPublisherIndex.incrementAndGet();
+        if (eventPartitioner != null) {
+            eventPartitioner.addDataEndpoint(dataEndpoint);
+        }
     }
 
     public void tryPublish(Event event) throws EventQueueFullException {
@@ -121,9 +203,74 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
         }
     }
 
+    public void publish(List<Event> events) {
+        if (eventQueue != null) {
+            eventQueue.put(events);
+        } else if (!isShutdown) {
+            for (Event event : events) {
+                syncPublish(event);
+            }
+        }
+    }
+
+    /**
+     * Try to publish the given events, waiting up to timeoutMS for queue capacity, or for an available endpoint
+     * when the group publishes synchronously.
+     *
+     * @return the number of events, in iteration order, that were accepted before the timeout elapsed.
+     */
+    public int tryPublish(Collection<Event> events, long timeoutMS) {
+        if (eventQueue != null) {
+            return eventQueue.tryPut(events, timeoutMS);
+        }
+        int accepted = 0;
+        if (!isShutdown) {
+            long stopTime = System.currentTimeMillis() + timeoutMS;
+            for (Event event : events) {
+                if (!trySyncPublish(event, Math.max(0, stopTime - System.currentTimeMillis()))) {
+                    break;
+                }
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Claims the next slot of the event queue for an event to be written into in place, waiting for capacity as
+     * {@link #publish(Event)} does. The claimed slot must be committed with {@link #commitSlot(long)}, as the events
+     * after it are not sent until then.
+     *
+     * @return the sequence of the claimed slot, or -1 if no slot is claimed, i.e. the group publishes synchronously,
+     * or no endpoint is available, in which case the event should be published with {@link #publish(Event)}.
+     */
+    public long claimSlot() {
+        if (eventQueue != null) {
+            return eventQueue.claim();
+        }
+        return -1;
+    }
+
+    public WrappedEventFactory.WrappedEvent getSlot(long sequence) {
+        return eventQueue.ringBuffer.get(sequence);
+    }
+
+    public void commitSlot(long sequence) {
+        eventQueue.ringBuffer.publish(sequence);
+    }
+
+    /**
+     * Publishes the claimed slot without an event, which the event queue worker then drops, so that the events
+     * after it are still sent.
+     */
+    public void abortSlot(long sequence) {
+        eventQueue.ringBuffer.get(sequence).skip();
+        eventQueue.ringBuffer.publish(sequence);
+    }
+
     private void trySyncPublish(Event event) {
         try {
-            DataEndpoint endpoint = getDataEndpoint(false);
+            DataEndpoint endpoint = getDataEndpoint(false, event);
             if (endpoint != null) {
                 endpoint.syncSend(event);
             } else {
@@ -136,19 +283,22 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
         }
     }
 
-    private void trySyncPublish(Event event, long timeoutMS) {
+    /**
+     * @return true if the event was sent, false if it was dropped as no endpoint became available within timeoutMS
+     */
+    private boolean trySyncPublish(Event event, long timeoutMS) {
         long stopTime = System.currentTimeMillis() + timeoutMS;
         while (true) {
-            DataEndpoint endpoint = getDataEndpoint(false);
+            DataEndpoint endpoint = getDataEndpoint(false, event);
             if (endpoint != null) {
                 endpoint.syncSend(event);
-                break;
+                return true;
             }
             if (stopTime <= System.currentTimeMillis()) {
                 if (log.isDebugEnabled()) {
                     log.debug("DataEndpoint not available for  last " + timeoutMS + " ms, dropping event : " + event);
                 }
-                break;
+                return false;
             }
             try {
                 Thread.sleep(1);
@@ -159,7 +309,7 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
 
     private void syncPublish(Event event) {
         try {
-            DataEndpoint endpoint = getDataEndpoint(true);
+            DataEndpoint endpoint = getDataEndpoint(true, event);
             if (endpoint != null) {
                 endpoint.syncSend(event);
             } else {
@@ -177,14 +327,43 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
         private RingBuffer<WrappedEventFactory.WrappedEvent> ringBuffer = null;
         private Disruptor<WrappedEventFactory.WrappedEvent> eventQueueDisruptor = null;
         private ExecutorService eventQueuePool = null;
+        private boolean singleProducer;
+        private final ReentrantLock capacityLock = new ReentrantLock();
+        private final Condition capacityAvailable = capacityLock.newCondition();
+        private final AtomicInteger waitingProducers = new AtomicInteger();
+        private final AtomicLong blockedProducerCount = new AtomicLong();
+        private final AtomicLong blockedProducerTimeNanos = new AtomicLong();
 
-        EventQueue(int queueSize) {
+        EventQueue(AgentConfiguration agentConfiguration) {
+            singleProducer = DataEndpointConstants.SINGLE_PRODUCER_TYPE.equalsIgnoreCase(
+                    agentConfiguration.getProducerType());
             eventQueuePool = Executors.newCachedThreadPool(new DataBridgeThreadFactory("EventQueue"));
-            eventQueueDisruptor = new Disruptor<>(new WrappedEventFactory(), queueSize, eventQueuePool, ProducerType.MULTI, new BlockingWaitStrategy());
+            eventQueueDisruptor = new Disruptor<>(new WrappedEventFactory(), agentConfiguration.getQueueSize(),
+                    eventQueuePool, singleProducer ? ProducerType.SINGLE : ProducerType.MULTI,
+                    getWaitStrategy(agentConfiguration));
             eventQueueDisruptor.handleEventsWith(new EventQueueWorker());
             this.ringBuffer = eventQueueDisruptor.start();
         }
 
+        private WaitStrategy getWaitStrategy(AgentConfiguration agentConfiguration) {
+            String waitStrategy = agentConfiguration.getWaitStrategy();
+            if (waitStrategy == null || waitStrategy.equalsIgnoreCase(DataEndpointConstants.BLOCKING_WAIT_STRATEGY)) {
+                return new BlockingWaitStrategy();
+            } else if (waitStrategy.equalsIgnoreCase(DataEndpointConstants.SLEEPING_WAIT_STRATEGY)) {
+                return new SleepingWaitStrategy();
+            } else if (waitStrategy.equalsIgnoreCase(DataEndpointConstants.YIELDING_WAIT_STRATEGY)) {
+                return new YieldingWaitStrategy();
+            } else if (waitStrategy.equalsIgnoreCase(DataEndpointConstants.BUSY_SPIN_WAIT_STRATEGY)) {
+                return new BusySpinWaitStrategy();
+            } else if (waitStrategy.equalsIgnoreCase(DataEndpointConstants.TIMEOUT_BLOCKING_WAIT_STRATEGY)) {
+                return new TimeoutBlockingWaitStrategy(agentConfiguration.getWaitStrategyTimeoutMS(),
+                        TimeUnit.MILLISECONDS);
+            }
+            log.warn("Unknown event queue wait strategy '" + waitStrategy + "' configured for agent "
+                    + agentConfiguration.getName() + ", hence using " + DataEndpointConstants.BLOCKING_WAIT_STRATEGY);
+            return new BlockingWaitStrategy();
+        }
+
         private void tryPut(Event event) throws EventQueueFullException {
 
             long sequence;
@@ -194,48 +373,241 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
                 bufferedEvent.setEvent(event);
                 this.ringBuffer.publish(sequence);
             } catch (InsufficientCapacityException e) {
+                if (spool(event)) {
+                    return;
+                }
                 throw new EventQueueFullException("Cannot send events because the event queue is full", e);
             }
         }
 
         private void tryPut(Event event, long timeoutMS) throws EventQueueFullException {
             long sequence;
-            long stopTime = System.currentTimeMillis() + timeoutMS;
-            while (true) {
-                try {
-                    sequence = this.ringBuffer.tryNext(1);
-                    WrappedEventFactory.WrappedEvent bufferedEvent = this.ringBuffer.get(sequence);
-                    bufferedEvent.setEvent(event);
-                    this.ringBuffer.publish(sequence);
-                    break;
-                } catch (InsufficientCapacityException ex) {
-                    if (stopTime <= System.currentTimeMillis()) {
-                        throw new EventQueueFullException("Cannot send events because the event queue is full", ex);
-                    }
+            long stopTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMS);
+            long blockedSince = NOT_BLOCKED;
+            try {
+                while (true) {
                     try {
-                        Thread.sleep(1);
-                    } catch (InterruptedException ignored) {
+                        sequence = this.ringBuffer.tryNext(1);
+                        WrappedEventFactory.WrappedEvent bufferedEvent = this.ringBuffer.get(sequence);
+                        bufferedEvent.setEvent(event);
+                        this.ringBuffer.publish(sequence);
+                        break;
+                    } catch (InsufficientCapacityException ex) {
+                        blockedSince = blockedSince(blockedSince);
+                        if (!awaitCapacity(1, stopTime - System.nanoTime())) {
+                            if (spool(event)) {
+                                return;
+                            }
+                            throw new EventQueueFullException("Cannot send events because the event queue is full",
+                                    ex);
+                        }
                     }
                 }
+            } finally {
+                recordBlocking(blockedSince);
             }
         }
 
         //Endless wait if at-least once endpoint is available.
         private void put(Event event) {
-            do {
-                try {
-                    long sequence = this.ringBuffer.tryNext(1);
-                    WrappedEventFactory.WrappedEvent bufferedEvent = this.ringBuffer.get(sequence);
-                    bufferedEvent.setEvent(event);
-                    this.ringBuffer.publish(sequence);
-                    return;
-                } catch (InsufficientCapacityException ex) {
+            long blockedSince = NOT_BLOCKED;
+            try {
+                do {
+                    try {
+                        long sequence = this.ringBuffer.tryNext(1);
+                        WrappedEventFactory.WrappedEvent bufferedEvent = this.ringBuffer.get(sequence);
+                        bufferedEvent.setEvent(event);
+                        this.ringBuffer.publish(sequence);
+                        return;
+                    } catch (InsufficientCapacityException ex) {
+                        blockedSince = blockedSince(blockedSince);
+                        if (!awaitCapacity(1, ENDPOINT_AVAILABILITY_CHECK_INTERVAL_NS) && spool(event)) {
+                            return;
+                        }
+                    }
+                } while (isActiveDataEndpointExists());
+            } finally {
+                recordBlocking(blockedSince);
+            }
+        }
+
+        //Endless wait if at-least once endpoint is available.
+        private long claim() {
+            long blockedSince = NOT_BLOCKED;
+            try {
+                do {
                     try {
-                        Thread.sleep(2);
-                    } catch (InterruptedException ignored) {
+                        return this.ringBuffer.tryNext(1);
+                    } catch (InsufficientCapacityException ex) {
+                        blockedSince = blockedSince(blockedSince);
+                        //The event then goes to the spool when it is published
+                        if (!awaitCapacity(1, ENDPOINT_AVAILABILITY_CHECK_INTERVAL_NS) && eventSpool != null &&
+                                !isSendingDataEndpointExists()) {
+                            return -1;
+                        }
+                    }
+                } while (isActiveDataEndpointExists());
+                return -1;
+            } finally {
+                recordBlocking(blockedSince);
+            }
+        }
+
+        /**
+         * Claims a contiguous range of sequences for as many of the events as the ring buffer has room for and
+         * publishes them together, repeating until all are published, waiting up to timeoutMS for capacity. A batch
+         * larger than the free capacity is thus published as the consumer frees slots, instead of waiting for
+         * the whole batch to fit while producers of single events take the slots freed.
+         *
+         * @return the number of events that were inserted before the timeout elapsed.
+         */
+        private int tryPut(Collection<Event> events, long timeoutMS) {
+            Iterator<Event> iterator = events.iterator();
+            int remaining = events.size();
+            long stopTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMS);
+            long blockedSince = NOT_BLOCKED;
+            try {
+                while (remaining > 0) {
+                    int batchSize = getClaimSize(remaining);
+                    try {
+                        publishBatch(iterator, this.ringBuffer.tryNext(batchSize), batchSize);
+                        remaining -= batchSize;
+                    } catch (InsufficientCapacityException ex) {
+                        blockedSince = blockedSince(blockedSince);
+                        if (!awaitCapacity(1, stopTime - System.nanoTime())) {
+                            remaining -= spool(iterator, remaining);
+                            break;
+                        }
                     }
                 }
-            } while (isActiveDataEndpointExists());
+            } finally {
+                recordBlocking(blockedSince);
+            }
+            return events.size() - remaining;
+        }
+
+        //Endless wait if at-least once endpoint is available.
+        private void put(List<Event> events) {
+            Iterator<Event> iterator = events.iterator();
+            int remaining = events.size();
+            long blockedSince = NOT_BLOCKED;
+            try {
+                while (remaining > 0) {
+                    int batchSize = getClaimSize(remaining);
+                    try {
+                        publishBatch(iterator, this.ringBuffer.tryNext(batchSize), batchSize);
+                        remaining -= batchSize;
+                    } catch (InsufficientCapacityException ex) {
+                        blockedSince = blockedSince(blockedSince);
+                        if (!awaitCapacity(1, ENDPOINT_AVAILABILITY_CHECK_INTERVAL_NS)) {
+                            remaining -= spool(iterator, remaining);
+                        }
+                        if (remaining > 0 && !isActiveDataEndpointExists()) {
+                            return;
+                        }
+                    }
+                }
+            } finally {
+                recordBlocking(blockedSince);
+            }
+        }
+
+        /**
+         * @return the number of the remaining events to claim sequences for, which is as many as the ring buffer has
+         * free slots for, though at least one, so that a full ring buffer is waited for a slot at a time
+         */
+        private int getClaimSize(int remaining) {
+            return (int) Math.max(1, Math.min(remaining, this.ringBuffer.remainingCapacity()));
+        }
+
+        /**
+         * Parks the producer until the consumer has released the given number of slots, or the timeout elapses.
+         * The consumer signals at the end of each batch, and after every event while producers are waiting, so a
+         * producer which registers after the consumer last looked is still woken once the batch is done.
+         *
+         * @return true if the capacity is available
+         */
+        private boolean awaitCapacity(int requiredCapacity, long timeoutNanos) {
+            waitingProducers.incrementAndGet();
+            capacityLock.lock();
+            try {
+                while (!this.ringBuffer.hasAvailableCapacity(requiredCapacity)) {
+                    if (timeoutNanos <= 0) {
+                        return false;
+                    }
+                    try {
+                        timeoutNanos = capacityAvailable.awaitNanos(timeoutNanos);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+                return true;
+            } finally {
+                capacityLock.unlock();
+                waitingProducers.decrementAndGet();
+            }
+        }
+
+        /**
+         * @return the time the producer first found the queue full, which is now unless it already blocked earlier
+         */
+        private long blockedSince(long blockedSince) {
+            return blockedSince != NOT_BLOCKED ? blockedSince : System.nanoTime();
+        }
+
+        /**
+         * Counts a put which found the queue full once, however often it had to wait for capacity again.
+         */
+        private void recordBlocking(long blockedSince) {
+            if (blockedSince != NOT_BLOCKED) {
+                blockedProducerCount.incrementAndGet();
+                blockedProducerTimeNanos.addAndGet(System.nanoTime() - blockedSince);
+            }
+        }
+
+        private void releaseCapacity(Sequence consumerSequence, long sequence, boolean endOfBatch) {
+            if (endOfBatch || waitingProducers.get() > 0) {
+                consumerSequence.setVolatile(sequence);
+                capacityLock.lock();
+                try {
+                    capacityAvailable.signalAll();
+                } finally {
+                    capacityLock.unlock();
+                }
+            }
+        }
+
+        /**
+         * Writes the event to the spool instead of the queue if there is a spool and no endpoint is able to send,
+         * i.e. the queue is full because the endpoints are unavailable rather than because they are busy.
+         *
+         * @return true if the event was spooled
+         */
+        private boolean spool(Event event) {
+            return eventSpool != null && !isSendingDataEndpointExists() && eventSpool.offer(event);
+        }
+
+        /**
+         * @return the number of the given events, in iteration order, which were spooled
+         */
+        private int spool(Iterator<Event> events, int count) {
+            if (eventSpool == null || isSendingDataEndpointExists()) {
+                return 0;
+            }
+            int spooled = 0;
+            while (spooled < count && eventSpool.offer(events.next())) {
+                spooled++;
+            }
+            return spooled;
+        }
+
+        private void publishBatch(Iterator<Event> events, long highSequence, int batchSize) {
+            long lowSequence = highSequence - batchSize + 1;
+            for (long sequence = lowSequence; sequence <= highSequence; sequence++) {
+                this.ringBuffer.get(sequence).setEvent(events.next());
+            }
+            this.ringBuffer.publish(lowSequence, highSequence);
         }
 
         private void shutdown() {
@@ -244,18 +616,42 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
         }
     }
 
-    class EventQueueWorker implements EventHandler<WrappedEventFactory.WrappedEvent> {
+    class EventQueueWorker implements SequenceReportingEventHandler<WrappedEventFactory.WrappedEvent> {
 
         boolean isLastEventDropped =false;
+        private Sequence sequenceCallback;
+
+        @Override
+        public void setSequenceCallback(Sequence sequenceCallback) {
+            this.sequenceCallback = sequenceCallback;
+        }
+
         @Override
         public void onEvent(WrappedEventFactory.WrappedEvent wrappedEvent, long sequence, boolean endOfBatch) {
-            DataEndpoint endpoint = getDataEndpoint(true);
-            Event event = wrappedEvent.getEvent();
+            try {
+                processEvent(wrappedEvent, endOfBatch);
+            } finally {
+                //The event is already handed over to an endpoint, hence its slot can be reused by blocked producers.
+                eventQueue.releaseCapacity(sequenceCallback, sequence, endOfBatch);
+            }
+        }
+
+        private void processEvent(WrappedEventFactory.WrappedEvent wrappedEvent, boolean endOfBatch) {
+            Event event = wrappedEvent.takeEvent();
+            if (event == null) {
+                //An aborted event slot
+                if (endOfBatch && !adaptiveBatching) {
+                    flushCollectedEvents();
+                }
+                return;
+            }
+            DataEndpoint endpoint = getDataEndpoint(true, event);
             if (endpoint != null) {
                 isLastEventDropped =false;
-                endpoint.collectAndSend(event);
-                if (endOfBatch) {
-                    flushAllDataEndpoints();
+                endpoint.collectAndSend(event, !endOfBatch);
+                //Adaptive batches are held for more events until they are full or have lingered
+                if (endOfBatch && !adaptiveBatching) {
+                    flushCollectedEvents();
                 }
             } else {
                 if(!isLastEventDropped) {
@@ -277,6 +673,18 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
         }
     }
 
+    /**
+     * Sends the partial batches of all endpoints from the queue worker. An endpoint deactivated by a heartbeat while
+     * the queue worker was collecting its batch is flushed as well, so that its send fails and the batch is resent
+     * over the other endpoints, instead of being held until the endpoint reconnects. Resent events are only flushed
+     * to the active endpoints, as they are resent by a worker of the failed endpoint.
+     */
+    private void flushCollectedEvents() {
+        for (DataEndpoint dataEndpoint : dataEndpoints) {
+            dataEndpoint.flushEvents();
+        }
+    }
+
     /**
      * Find the next event processable endpoint to the
      * data endpoint based on load balancing and failover logic, and wait
@@ -336,6 +744,31 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
         }
     }
 
+    /**
+     * Find the endpoint to send the given event to. Events of a partitioned group are only sent to the endpoint
+     * their key belongs to, hence while it is busy this waits for it rather than taking the next active endpoint,
+     * so that the events of a key stay on one receiver.
+     *
+     * @param isBusyWait waitUntil the endpoint of the event becomes active
+     * @param event      the event to be sent
+     * @return DataEndpoint which can accept and send the event.
+     */
+    private DataEndpoint getDataEndpoint(boolean isBusyWait, Event event) {
+        if (eventPartitioner == null) {
+            return getDataEndpoint(isBusyWait);
+        }
+        while (true) {
+            DataEndpoint dataEndpoint = eventPartitioner.getDataEndpoint(event);
+            if (dataEndpoint != null && dataEndpoint.getState() == DataEndpoint.State.ACTIVE) {
+                return dataEndpoint;
+            }
+            if (!isBusyWait || (dataEndpoint == null && reconnectionService.isShutdown())) {
+                return null;
+            }
+            busyWait(1);
+        }
+    }
+
     private void busyWait(long timeInMilliSec) {
         try {
             Thread.sleep(timeInMilliSec);
@@ -358,19 +791,50 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
         return false;
     }
 
-    private synchronized int getDataPublisherIndex() {
-        int index = currentDataPublisherIndex.getAndIncrement();
-        if (index == maximumDataPublisherIndex.get() - 1) {
-            currentDataPublisherIndex.set(START_INDEX);
+    private boolean isSendingDataEndpointExists() {
+        for (int i = START_INDEX; i < maximumDataPublisherIndex.get(); i++) {
+            DataEndpoint.State state = dataEndpoints.get(i).getState();
+            if (state == DataEndpoint.State.ACTIVE || state == DataEndpoint.State.BUSY) {
+                return true;
+            }
         }
-        return index;
+        return false;
+    }
+
+    /**
+     * Selects the endpoint to start looking for an active endpoint from, without locking, as all the publishing
+     * threads select endpoints. Endpoints are taken in turn, unless the group is latency weighted, in which case the
+     * active endpoint with the least expected send latency is taken. Endpoints which are equally loaded are then
+     * still taken in turn.
+     */
+    private int getDataPublisherIndex() {
+        int endpointCount = maximumDataPublisherIndex.get();
+        int index = (currentDataPublisherIndex.getAndIncrement() & Integer.MAX_VALUE) % endpointCount;
+        if (!latencyWeighted) {
+            return index;
+        }
+        int selectedIndex = index;
+        long selectedLatency = Long.MAX_VALUE;
+        for (int i = 0; i < endpointCount; i++) {
+            DataEndpoint dataEndpoint = dataEndpoints.get(index);
+            if (dataEndpoint.getState() == DataEndpoint.State.ACTIVE) {
+                long expectedLatency = dataEndpoint.getExpectedSendLatencyNanos();
+                if (expectedLatency < selectedLatency) {
+                    selectedIndex = index;
+                    selectedLatency = expectedLatency;
+                }
+            }
+            index = index + 1 == endpointCount ? START_INDEX : index + 1;
+        }
+        return selectedIndex;
     }
 
     public void tryResendEvents(List<Event> events) {
         List<Event> unsuccessfulEvents = trySendActiveEndpoints(events);
         for (Event event : unsuccessfulEvents) {
             try {
-                if (eventQueue != null) {
+                //A single producer queue must only be written by the publishing thread
+                if (eventQueue != null && !eventQueue.singleProducer) {
                     eventQueue.tryPut(event);
                 } else {
                     trySyncPublish(event);
@@ -384,7 +848,7 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
     private List<Event> trySendActiveEndpoints(List<Event> events) {
         ArrayList<Event> unsuccessfulEvents = new ArrayList<>();
         for (Event event : events) {
-            DataEndpoint endpoint = getDataEndpoint(false);
+            DataEndpoint endpoint = getDataEndpoint(false, event);
             if (endpoint != null) {
                 endpoint.collectAndSend(event);
             } else {
@@ -406,7 +870,7 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
                     } catch (Exception ex) {
                         dataEndpoint.deactivate();
                     }
-                } else {
+                } else if (heartbeatService == null) {
                     try {
                         String[] urlElements = DataPublisherUtil.getProtocolHostPort(
                                 dataEndpoint.getDataEndpointConfiguration().getReceiverURL());
@@ -443,6 +907,102 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
 
     }
 
+    /**
+     * Sends the spooled events in batches through the active endpoints, at no more than the configured rate so
+     * that the endpoints which just became available are not flooded along with the events still being published.
+     * Those newer events are not held back for the spooled ones, hence events published after an outage may reach
+     * the receivers before the events spooled during it.
+     */
+    private class SpoolDrainTask implements Runnable {
+        private final int eventsPerRun;
+        private final int batchSize;
+
+        private SpoolDrainTask(int drainRate, int batchSize) {
+            this.eventsPerRun = Math.max(1, drainRate * SPOOL_DRAIN_INTERVAL_MS / 1000);
+            this.batchSize = batchSize;
+        }
+
+        public void run() {
+            try {
+                int remaining = eventsPerRun;
+                while (remaining > 0 && !eventSpool.isEmpty()) {
+                    DataEndpoint endpoint = getDataEndpoint(false);
+                    if (endpoint == null) {
+                        return;
+                    }
+                    List<Event> events = eventSpool.poll(Math.min(remaining, batchSize));
+                    remaining -= events.size();
+                    if (eventPartitioner == null) {
+                        endpoint.sendBatch(events);
+                    } else {
+                        sendPartitioned(events, endpoint);
+                    }
+                }
+            } catch (Throwable t) {
+                log.error("Unexpected error while sending spooled events: " + t.getMessage(), t);
+            }
+        }
+
+        /**
+         * Splits the events into a batch per endpoint their keys belong to, keeping the order of each key. The
+         * events of keys whose endpoints all became unavailable meanwhile are sent to the given endpoint instead.
+         */
+        private void sendPartitioned(List<Event> events, DataEndpoint defaultEndpoint) {
+            Map<DataEndpoint, List<Event>> partitions = new LinkedHashMap<>();
+            for (Event event : events) {
+                DataEndpoint endpoint = eventPartitioner.getDataEndpoint(event);
+                if (endpoint == null) {
+                    endpoint = defaultEndpoint;
+                }
+                List<Event> partition = partitions.get(endpoint);
+                if (partition == null) {
+                    partition = new ArrayList<>();
+                    partitions.put(endpoint, partition);
+                }
+                partition.add(event);
+            }
+            for (Map.Entry<DataEndpoint, List<Event>> partition : partitions.entrySet()) {
+                partition.getKey().sendBatch(partition.getValue());
+            }
+        }
+    }
+
+    /**
+     * Sends the adaptive batches whose events have waited for the maximum linger time, as the queue worker holds
+     * partial batches for more events instead of sending them at the end of each run of queued events.
+     */
+    private class BatchLingerTask implements Runnable {
+        public void run() {
+            for (int i = START_INDEX; i < maximumDataPublisherIndex.get(); i++) {
+                try {
+                    dataEndpoints.get(i).flushLingeringEvents();
+                } catch (Throwable t) {
+                    log.error("Unexpected error while sending the batch of data endpoint " + dataEndpoints.get(i), t);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks the active endpoints over their pooled connections, so that a failed receiver is deactivated within a
+     * heartbeat interval and its events fail over to the other endpoints. Endpoints found unavailable are then
+     * reconnected by the reconnection task, which no longer needs to probe the connected endpoints.
+     */
+    private class HeartbeatTask implements Runnable {
+        public void run() {
+            for (int i = START_INDEX; i < maximumDataPublisherIndex.get(); i++) {
+                DataEndpoint dataEndpoint = dataEndpoints.get(i);
+                if (dataEndpoint.getState() == DataEndpoint.State.ACTIVE) {
+                    try {
+                        dataEndpoint.checkHealth(heartbeatIntervalMS);
+                    } catch (Throwable t) {
+                        log.error("Unexpected error while sending heartbeat to data endpoint " + dataEndpoint, t);
+                    }
+                }
+            }
+        }
+    }
+
     public String toString() {
         StringBuilder group = new StringBuilder();
         group.append("[ ");
@@ -463,14 +1023,62 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
         return group.toString();
     }
 
+    /**
+     * @return the number of times a producer had to wait for space in the event queue.
+     */
+    public long getBlockedProducerCount() {
+        return eventQueue != null ? eventQueue.blockedProducerCount.get() : 0;
+    }
+
+    /**
+     * @return the total time, in milliseconds, producers spent waiting for space in the event queue.
+     */
+    public long getBlockedProducerTimeMS() {
+        return eventQueue != null ? TimeUnit.NANOSECONDS.toMillis(eventQueue.blockedProducerTimeNanos.get()) : 0;
+    }
+
     public void shutdown() {
         reconnectionService.shutdownNow();
+        if (heartbeatService != null) {
+            heartbeatService.shutdownNow();
+        }
+        if (spoolDrainService != null) {
+            spoolDrainService.shutdownNow();
+        }
+        if (batchLingerService != null) {
+            batchLingerService.shutdownNow();
+        }
+        //A drain or linger task which is still running may yet hand a batch to the endpoints
+        awaitTermination(spoolDrainService);
+        awaitTermination(batchLingerService);
         if (eventQueue != null) {
             eventQueue.shutdown();
         }
         isShutdown = true;
+        if (batchLingerService != null) {
+            //Send the batches still held for more events
+            for (DataEndpoint dataEndpoint : dataEndpoints) {
+                dataEndpoint.flushEvents();
+            }
+        }
         for (DataEndpoint dataEndpoint : dataEndpoints) {
             dataEndpoint.shutdown();
         }
+        if (eventSpool != null) {
+            eventSpool.close();
+        }
+    }
+
+    private void awaitTermination(ExecutorService executorService) {
+        if (executorService != null) {
+            try {
+                if (!executorService.awaitTermination(TASK_TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    log.warn("Background task of the data endpoint group did not stop within "
+                            + TASK_TERMINATION_TIMEOUT_SECONDS + " sec, hence shutting down the endpoints anyway");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 }
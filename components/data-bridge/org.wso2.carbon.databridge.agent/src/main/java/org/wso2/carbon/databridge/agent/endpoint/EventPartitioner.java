@@ -0,0 +1,186 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.agent.endpoint;
+
+import org.wso2.carbon.databridge.agent.exception.DataEndpointConfigurationException;
+import org.wso2.carbon.databridge.commons.Event;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Assigns the events of a load balancing group to its endpoints by the value of a partition key, so that all the
+ * events of a key are sent to the same receiver. Endpoints are placed on a consistent hash ring at a number of
+ * points derived from their receiver URLs, and a key belongs to the first endpoint clockwise from the key's hash.
+ * Hence adding a receiver URL only takes over keys from the other endpoints, and while an endpoint is unavailable
+ * only its own keys move, to the next endpoints on the ring, and return to it once it is available again.
+ * <p>
+ * Events without a value for the key are all assigned to the same endpoint.
+ */
+class EventPartitioner {
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+    private static final int VIRTUAL_NODES_PER_ENDPOINT = 128;
+    private static final Pattern PARTITION_KEY_PATTERN = Pattern.compile(
+            "(metaData|correlationData|payloadData|arbitraryData)\\[(.+)\\]");
+
+    private static final int META_DATA_KEY = 0;
+    private static final int CORRELATION_DATA_KEY = 1;
+    private static final int PAYLOAD_DATA_KEY = 2;
+    private static final int ARBITRARY_DATA_KEY = 3;
+
+    private final int keyType;
+    private final int attributeIndex;
+    private final String arbitraryDataKey;
+
+    //The ring is only built while the endpoints are added, before any event is published
+    private volatile int[] ringHashes = new int[0];
+    private volatile DataEndpoint[] ringEndpoints = new DataEndpoint[0];
+
+    /**
+     * @param partitionKey one of metaData[i], correlationData[i], payloadData[i] or arbitraryData[key]
+     * @throws DataEndpointConfigurationException if the partition key is not in one of these forms
+     */
+    EventPartitioner(String partitionKey) throws DataEndpointConfigurationException {
+        Matcher matcher = PARTITION_KEY_PATTERN.matcher(partitionKey);
+        if (!matcher.matches()) {
+            throw new DataEndpointConfigurationException("Invalid partition key '" + partitionKey + "', expected " +
+                    "metaData[i], correlationData[i], payloadData[i] or arbitraryData[key]");
+        }
+        String keyGroup = matcher.group(1);
+        if ("arbitraryData".equals(keyGroup)) {
+            this.keyType = ARBITRARY_DATA_KEY;
+            this.attributeIndex = -1;
+            this.arbitraryDataKey = matcher.group(2);
+            return;
+        }
+        if ("metaData".equals(keyGroup)) {
+            this.keyType = META_DATA_KEY;
+        } else if ("correlationData".equals(keyGroup)) {
+            this.keyType = CORRELATION_DATA_KEY;
+        } else {
+            this.keyType = PAYLOAD_DATA_KEY;
+        }
+        try {
+            this.attributeIndex = Integer.parseInt(matcher.group(2).trim());
+        } catch (NumberFormatException e) {
+            throw new DataEndpointConfigurationException("Invalid attribute index in partition key '" +
+                    partitionKey + "'", e);
+        }
+        if (attributeIndex < 0) {
+            throw new DataEndpointConfigurationException("Invalid attribute index in partition key '" +
+                    partitionKey + "'");
+        }
+        this.arbitraryDataKey = null;
+    }
+
+    /**
+     * Places the endpoint on the ring at the points hashed from its receiver URL.
+     */
+    synchronized void addDataEndpoint(DataEndpoint dataEndpoint) {
+        String receiverURL = dataEndpoint.getDataEndpointConfiguration().getReceiverURL();
+        int[] hashes = Arrays.copyOf(ringHashes, ringHashes.length + VIRTUAL_NODES_PER_ENDPOINT);
+        DataEndpoint[] endpoints = Arrays.copyOf(ringEndpoints, ringEndpoints.length + VIRTUAL_NODES_PER_ENDPOINT);
+        int size = ringHashes.length;
+        for (int i = 0; i < VIRTUAL_NODES_PER_ENDPOINT; i += 4) {
+            byte[] digest = md5(receiverURL + "#" + i);
+            for (int j = 0; j < 4; j++) {
+                int hash = (digest[j * 4] & 0xFF) << 24 | (digest[j * 4 + 1] & 0xFF) << 16 |
+                        (digest[j * 4 + 2] & 0xFF) << 8 | (digest[j * 4 + 3] & 0xFF);
+                //Insertion keeps the ring sorted by hash
+                int position = size;
+                while (position > 0 && hashes[position - 1] > hash) {
+                    hashes[position] = hashes[position - 1];
+                    endpoints[position] = endpoints[position - 1];
+                    position--;
+                }
+                hashes[position] = hash;
+                endpoints[position] = dataEndpoint;
+                size++;
+            }
+        }
+        ringEndpoints = endpoints;
+        ringHashes = hashes;
+    }
+
+    /**
+     * @return the endpoint the event's key currently belongs to, i.e. the first endpoint clockwise from the key's
+     * hash which is not unavailable, which may still be busy. Null if all the endpoints are unavailable.
+     */
+    DataEndpoint getDataEndpoint(Event event) {
+        int[] hashes = ringHashes;
+        DataEndpoint[] endpoints = ringEndpoints;
+        if (hashes.length == 0) {
+            return null;
+        }
+        int position = Arrays.binarySearch(hashes, hash(getKey(event)));
+        if (position < 0) {
+            position = -position - 1;
+        }
+        for (int i = 0; i < hashes.length; i++) {
+            DataEndpoint dataEndpoint = endpoints[(position + i) % hashes.length];
+            if (dataEndpoint.getState() != DataEndpoint.State.UNAVAILABLE) {
+                return dataEndpoint;
+            }
+        }
+        return null;
+    }
+
+    private Object getKey(Event event) {
+        if (keyType == ARBITRARY_DATA_KEY) {
+            Map<String, String> arbitraryData = event.getArbitraryDataMap();
+            return arbitraryData != null ? arbitraryData.get(arbitraryDataKey) : null;
+        }
+        Object[] attributes;
+        if (keyType == META_DATA_KEY) {
+            attributes = event.getMetaData();
+        } else if (keyType == CORRELATION_DATA_KEY) {
+            attributes = event.getCorrelationData();
+        } else {
+            attributes = event.getPayloadData();
+        }
+        return attributes != null && attributeIndex < attributes.length ? attributes[attributeIndex] : null;
+    }
+
+    /**
+     * Spreads the hash code of the key over the ring, as the hash codes of numeric and short string keys are
+     * clustered. The hash codes of the attribute types are the same on every JVM, hence so is the partitioning.
+     */
+    private static int hash(Object key) {
+        int hash = key != null ? key.hashCode() : 0;
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private static byte[] md5(String value) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(value.getBytes(CHARSET));
+        } catch (NoSuchAlgorithmException e) {
+            //Every Java platform is required to support MD5
+            throw new IllegalStateException(e);
+        }
+    }
+}
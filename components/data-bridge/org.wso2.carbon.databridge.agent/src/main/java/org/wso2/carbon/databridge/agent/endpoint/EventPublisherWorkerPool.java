@@ -0,0 +1,139 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.agent.endpoint;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.databridge.commons.Event;
+import org.wso2.carbon.databridge.commons.utils.DataBridgeThreadFactory;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The sender loops of a data endpoint. A fixed number of long lived workers take the batches of the endpoint from a
+ * bounded hand-off queue and send them, hence handing over a batch creates no task. The capacity left in the queue
+ * tells whether the endpoint is busy.
+ */
+class EventPublisherWorkerPool {
+    private static final Log log = LogFactory.getLog(EventPublisherWorkerPool.class);
+
+    /**
+     * Sends a batch of events, handling any failure to do so itself.
+     */
+    interface BatchPublisher {
+        void publish(List<Event> events);
+    }
+
+    private static final long SHUTDOWN_CHECK_INTERVAL_MS = 100;
+
+    private final ArrayBlockingQueue<List<Event>> batches;
+    private final BatchPublisher batchPublisher;
+    private final Thread[] workers;
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    private volatile boolean shutdown = false;
+
+    /**
+     * @param workerCount   the number of batches sent concurrently
+     * @param maxBatchCount the number of batches which may wait to be sent, beyond which handing over a batch blocks
+     */
+    EventPublisherWorkerPool(int workerCount, int maxBatchCount, String receiverURL, BatchPublisher batchPublisher) {
+        workerCount = Math.max(1, workerCount);
+        this.batches = new ArrayBlockingQueue<>(Math.max(1, maxBatchCount));
+        this.batchPublisher = batchPublisher;
+        this.workers = new Thread[workerCount];
+        DataBridgeThreadFactory threadFactory = new DataBridgeThreadFactory(receiverURL);
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = threadFactory.newThread(new Worker());
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Hands the batch over to the workers, waiting for room in the queue, and marks the endpoint busy if the batch
+     * takes the last free place but one. Once the pool is shut down, the batch is sent by the calling thread instead,
+     * as no worker takes it anymore.
+     */
+    void submitAndSetState(List<Event> batch, DataEndpoint dataEndpoint) {
+        if (batches.remainingCapacity() <= 1) {
+            dataEndpoint.setState(DataEndpoint.State.BUSY);
+        }
+        boolean queued = false;
+        do {
+            if (shutdown) {
+                batchPublisher.publish(batch);
+                return;
+            }
+            try {
+                queued = batches.offer(batch, SHUTDOWN_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                // Do nothing
+            }
+        } while (!queued);
+    }
+
+    int getActiveCount() {
+        return activeWorkers.get();
+    }
+
+    /**
+     * Stops the workers once they finish the batches they are sending, without sending the batches still queued.
+     * The workers are not interrupted, as that would abort a batch in the middle of its write.
+     */
+    void shutdown(long timeout, TimeUnit unit) {
+        shutdown = true;
+        long stopTime = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            for (Thread worker : workers) {
+                long remainingMS = TimeUnit.NANOSECONDS.toMillis(stopTime - System.nanoTime());
+                if (remainingMS > 0) {
+                    worker.join(remainingMS);
+                }
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    private class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            while (!shutdown) {
+                List<Event> batch;
+                try {
+                    batch = batches.poll(SHUTDOWN_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                if (batch == null) {
+                    continue;
+                }
+                activeWorkers.incrementAndGet();
+                try {
+                    batchPublisher.publish(batch);
+                } catch (Throwable t) {
+                    log.error("Unexpected error while sending a batch of " + batch.size() + " events", t);
+                } finally {
+                    activeWorkers.decrementAndGet();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,331 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.agent.endpoint;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.databridge.commons.Event;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Overflow store for the events of an endpoint group, kept in memory mapped segment files on local disk so that an
+ * outage of the receivers does not grow the heap. Events are appended to the newest segment and read back in order
+ * from the oldest one, which is deleted once it is read. The order is only kept among the spooled events, as the
+ * events published once an endpoint is available again are sent alongside them rather than after them.
+ * <p>
+ * The spool only bridges outages of a running publisher, hence its segments are not recovered after a restart.
+ */
+class EventSpool {
+    private static final Log log = LogFactory.getLog(EventSpool.class);
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+    private static final int INITIAL_RECORD_BUFFER_SIZE = 1024;
+
+    private static final byte NULL_ATTRIBUTE = 0;
+    private static final byte INT_ATTRIBUTE = 1;
+    private static final byte LONG_ATTRIBUTE = 2;
+    private static final byte FLOAT_ATTRIBUTE = 3;
+    private static final byte DOUBLE_ATTRIBUTE = 4;
+    private static final byte BOOL_ATTRIBUTE = 5;
+    private static final byte STRING_ATTRIBUTE = 6;
+
+    private final File directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private ByteBuffer recordBuffer = ByteBuffer.allocate(INITIAL_RECORD_BUFFER_SIZE);
+    private int nextSegmentId;
+    private long size;
+
+    EventSpool(String parentDirectory, int segmentSize, int maxSegments) throws IOException {
+        File parent = new File(parentDirectory);
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create the spool directory " + parent.getAbsolutePath());
+        }
+        this.directory = Files.createTempDirectory(parent.toPath(), "spool-").toFile();
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+    }
+
+    /**
+     * Appends the event to the spool.
+     *
+     * @return false if the spool is full or the event cannot be spooled
+     */
+    synchronized boolean offer(Event event) {
+        ByteBuffer record;
+        try {
+            record = encode(event);
+        } catch (IllegalArgumentException e) {
+            log.error("Cannot spool event : " + event + ", " + e.getMessage());
+            return false;
+        }
+        int recordSize = 4 + record.remaining();
+        Segment segment = segments.peekLast();
+        if (segment == null || segment.buffer.remaining() < recordSize) {
+            if (recordSize > segmentSize || segments.size() >= maxSegments) {
+                return false;
+            }
+            try {
+                segment = newSegment();
+            } catch (IOException e) {
+                log.error("Cannot create spool segment in " + directory.getAbsolutePath(), e);
+                return false;
+            }
+            segments.add(segment);
+        }
+        segment.buffer.putInt(record.remaining());
+        segment.buffer.put(record);
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes up to maxEvents of the oldest events from the spool.
+     */
+    synchronized List<Event> poll(int maxEvents) {
+        List<Event> events = new ArrayList<>(Math.min(maxEvents, (int) Math.min(size, Integer.MAX_VALUE)));
+        while (events.size() < maxEvents && size > 0) {
+            Segment segment = segments.peekFirst();
+            if (segment.readPosition == segment.buffer.position()) {
+                //Read to its end while it was the newest segment, before a newer one was added
+                segments.removeFirst();
+                segment.delete();
+                continue;
+            }
+            int recordSize = segment.buffer.getInt(segment.readPosition);
+            ByteBuffer record = segment.buffer.duplicate();
+            record.limit(segment.readPosition + 4 + recordSize);
+            record.position(segment.readPosition + 4);
+            events.add(decode(record));
+            segment.readPosition += 4 + recordSize;
+            size--;
+            //Only the newest segment is still written, hence an older one is done once it is read to its end
+            if (segment.readPosition == segment.buffer.position() && segments.size() > 1) {
+                segments.removeFirst();
+                segment.delete();
+            }
+        }
+        return events;
+    }
+
+    synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Deletes the segments, along with the events which are still spooled.
+     */
+    synchronized void close() {
+        if (size > 0) {
+            log.warn("Discarding " + size + " spooled events in " + directory.getAbsolutePath());
+        }
+        for (Segment segment : segments) {
+            segment.delete();
+        }
+        segments.clear();
+        size = 0;
+        if (!directory.delete()) {
+            log.warn("Cannot delete the spool directory " + directory.getAbsolutePath());
+        }
+    }
+
+    private Segment newSegment() throws IOException {
+        File file = new File(directory, "segment-" + nextSegmentId++);
+        RandomAccessFile segmentFile = new RandomAccessFile(file, "rw");
+        try {
+            //The mapping stays valid once the file is closed
+            return new Segment(file, segmentFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        } finally {
+            segmentFile.close();
+        }
+    }
+
+    private ByteBuffer encode(Event event) {
+        while (true) {
+            recordBuffer.clear();
+            try {
+                putString(event.getStreamId());
+                recordBuffer.putLong(event.getTimeStamp());
+                putAttributes(event.getMetaData());
+                putAttributes(event.getCorrelationData());
+                putAttributes(event.getPayloadData());
+                putArbitraryData(event.getArbitraryDataMap());
+                recordBuffer.flip();
+                return recordBuffer;
+            } catch (BufferOverflowException e) {
+                recordBuffer = ByteBuffer.allocate(recordBuffer.capacity() * 2);
+            }
+        }
+    }
+
+    private void putAttributes(Object[] attributes) {
+        if (attributes == null) {
+            recordBuffer.putInt(-1);
+            return;
+        }
+        recordBuffer.putInt(attributes.length);
+        for (Object attribute : attributes) {
+            if (attribute == null) {
+                recordBuffer.put(NULL_ATTRIBUTE);
+            } else if (attribute instanceof Integer) {
+                recordBuffer.put(INT_ATTRIBUTE);
+                recordBuffer.putInt((Integer) attribute);
+            } else if (attribute instanceof Long) {
+                recordBuffer.put(LONG_ATTRIBUTE);
+                recordBuffer.putLong((Long) attribute);
+            } else if (attribute instanceof Float) {
+                recordBuffer.put(FLOAT_ATTRIBUTE);
+                recordBuffer.putFloat((Float) attribute);
+            } else if (attribute instanceof Double) {
+                recordBuffer.put(DOUBLE_ATTRIBUTE);
+                recordBuffer.putDouble((Double) attribute);
+            } else if (attribute instanceof Boolean) {
+                recordBuffer.put(BOOL_ATTRIBUTE);
+                recordBuffer.put((byte) ((Boolean) attribute ? 1 : 0));
+            } else if (attribute instanceof String) {
+                recordBuffer.put(STRING_ATTRIBUTE);
+                putString((String) attribute);
+            } else {
+                throw new IllegalArgumentException("unsupported attribute type " + attribute.getClass().getName());
+            }
+        }
+    }
+
+    private void putArbitraryData(Map<String, String> arbitraryData) {
+        if (arbitraryData == null) {
+            recordBuffer.putInt(-1);
+            return;
+        }
+        recordBuffer.putInt(arbitraryData.size());
+        for (Map.Entry<String, String> entry : arbitraryData.entrySet()) {
+            putString(entry.getKey());
+            putString(entry.getValue());
+        }
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            recordBuffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(CHARSET);
+        recordBuffer.putInt(bytes.length);
+        recordBuffer.put(bytes);
+    }
+
+    private static Event decode(ByteBuffer record) {
+        Event event = new Event();
+        event.setStreamId(getString(record));
+        event.setTimeStamp(record.getLong());
+        event.setMetaData(getAttributes(record));
+        event.setCorrelationData(getAttributes(record));
+        event.setPayloadData(getAttributes(record));
+        event.setArbitraryDataMap(getArbitraryData(record));
+        return event;
+    }
+
+    private static Object[] getAttributes(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        Object[] attributes = new Object[length];
+        for (int i = 0; i < length; i++) {
+            switch (record.get()) {
+                case INT_ATTRIBUTE:
+                    attributes[i] = record.getInt();
+                    break;
+                case LONG_ATTRIBUTE:
+                    attributes[i] = record.getLong();
+                    break;
+                case FLOAT_ATTRIBUTE:
+                    attributes[i] = record.getFloat();
+                    break;
+                case DOUBLE_ATTRIBUTE:
+                    attributes[i] = record.getDouble();
+                    break;
+                case BOOL_ATTRIBUTE:
+                    attributes[i] = record.get() == 1;
+                    break;
+                case STRING_ATTRIBUTE:
+                    attributes[i] = getString(record);
+                    break;
+                default:
+                    attributes[i] = null;
+            }
+        }
+        return attributes;
+    }
+
+    private static Map<String, String> getArbitraryData(ByteBuffer record) {
+        int size = record.getInt();
+        if (size < 0) {
+            return null;
+        }
+        Map<String, String> arbitraryData = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            arbitraryData.put(getString(record), getString(record));
+        }
+        return arbitraryData;
+    }
+
+    private static String getString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        record.get(bytes);
+        return new String(bytes, CHARSET);
+    }
+
+    private static class Segment {
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private int readPosition;
+
+        private Segment(File file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        private void delete() {
+            if (!file.delete()) {
+                log.warn("Cannot delete the spool segment " + file.getAbsolutePath());
+            }
+        }
+    }
+}
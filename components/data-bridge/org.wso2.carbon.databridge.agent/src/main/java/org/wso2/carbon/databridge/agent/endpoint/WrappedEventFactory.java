@@ -21,15 +21,31 @@ package org.wso2.carbon.databridge.agent.endpoint;
 import com.lmax.disruptor.EventFactory;
 import org.wso2.carbon.databridge.commons.Event;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
 public class WrappedEventFactory implements EventFactory<WrappedEventFactory.WrappedEvent> {
 
     public WrappedEvent newInstance() {
         return new WrappedEvent();
     }
 
+    /**
+     * A slot of the event queue, which either refers to a published event or holds the attributes of an event
+     * written into the slot in place, in arrays that are reused for as long as the events written have the same
+     * number of attributes.
+     */
     public class WrappedEvent {
 
         private Event event;
+        private String streamId;
+        private long timeStamp;
+        private Object[] metaData;
+        private Object[] correlationData;
+        private Object[] payloadData;
+        private final Map<String, String> arbitraryDataMap = new HashMap<>();
+        private boolean skipped;
 
         public Event getEvent() {
             return event;
@@ -37,12 +53,91 @@ public class WrappedEventFactory implements EventFactory<WrappedEventFactory.Wra
 
         public void setEvent(Event event) {
             this.event = event;
+            this.skipped = false;
+        }
+
+        /**
+         * Marks the slot as holding no event, so that a claimed slot whose event is abandoned can still be published
+         * and the events queued after it are sent.
+         */
+        public void skip() {
+            this.event = null;
+            this.skipped = true;
+        }
+
+        /**
+         * Prepares the slot to have an event written into it in place, with attribute arrays of the given sizes,
+         * whose values are all null.
+         */
+        public void reset(String streamId, long timeStamp, int metaDataSize, int correlationDataSize,
+                          int payloadDataSize) {
+            this.event = null;
+            this.skipped = false;
+            this.streamId = streamId;
+            this.timeStamp = timeStamp;
+            this.metaData = resetAttributes(metaData, metaDataSize);
+            this.correlationData = resetAttributes(correlationData, correlationDataSize);
+            this.payloadData = resetAttributes(payloadData, payloadDataSize);
+            this.arbitraryDataMap.clear();
+        }
+
+        private Object[] resetAttributes(Object[] attributes, int size) {
+            if (attributes == null || attributes.length != size) {
+                return new Object[size];
+            }
+            Arrays.fill(attributes, null);
+            return attributes;
+        }
+
+        public void setTimeStamp(long timeStamp) {
+            this.timeStamp = timeStamp;
+        }
+
+        public Object[] getMetaData() {
+            return metaData;
+        }
+
+        public Object[] getCorrelationData() {
+            return correlationData;
+        }
+
+        public Object[] getPayloadData() {
+            return payloadData;
+        }
+
+        public Map<String, String> getArbitraryDataMap() {
+            return arbitraryDataMap;
+        }
+
+        /**
+         * Takes the event of the slot, which is the published event, or a copy of the event written in place as
+         * the endpoints keep the events until they are sent, while the slot is reused once the event is taken.
+         *
+         * @return the event, or null if the slot was skipped
+         */
+        public Event takeEvent() {
+            if (skipped) {
+                skipped = false;
+                return null;
+            }
+            if (event != null) {
+                Event publishedEvent = event;
+                event = null;
+                return publishedEvent;
+            }
+            return new Event(streamId, timeStamp, copyAttributes(metaData), copyAttributes(correlationData),
+                    copyAttributes(payloadData), arbitraryDataMap.isEmpty() ? null : new HashMap<>(arbitraryDataMap));
+        }
+
+        //A stream defines no attributes of a kind for which an event has none, which the endpoints expect as null
+        private Object[] copyAttributes(Object[] attributes) {
+            return attributes.length == 0 ? null : attributes.clone();
         }
 
         @Override
         public String toString() {
             return "WrappedEvent{" +
-                    "event=" + event +
+                    "event=" + (event != null ? event : streamId) +
                     "}";
         }
     }
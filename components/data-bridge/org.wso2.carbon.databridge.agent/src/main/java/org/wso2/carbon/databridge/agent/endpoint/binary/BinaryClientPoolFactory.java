@@ -58,7 +58,8 @@ public class BinaryClientPoolFactory extends AbstractClientPoolFactory {
 
     @Override
     public boolean validateClient(Object client) {
-        return ((Socket) client).isConnected();
+        Socket socket = (Socket) client;
+        return socket.isConnected() && !socket.isClosed();
     }
 
     @Override
@@ -17,15 +17,30 @@
 */
 package org.wso2.carbon.databridge.agent.endpoint.binary;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.databridge.agent.conf.DataEndpointConfiguration;
 import org.wso2.carbon.databridge.agent.endpoint.DataEndpoint;
+import org.wso2.carbon.databridge.agent.endpoint.binary.BinaryPublishWindow.UnacknowledgedBatch;
 import org.wso2.carbon.databridge.agent.exception.DataEndpointAuthenticationException;
 import org.wso2.carbon.databridge.agent.exception.DataEndpointException;
+import org.wso2.carbon.databridge.agent.util.DataEndpointConstants;
 import org.wso2.carbon.databridge.commons.Event;
 import org.wso2.carbon.databridge.commons.exception.SessionTimeoutException;
+import org.wso2.carbon.databridge.commons.exception.TransportException;
 import org.wso2.carbon.databridge.commons.exception.UndefinedEventTypeException;
+import org.wso2.carbon.databridge.commons.utils.DataBridgeThreadFactory;
 
+import java.io.IOException;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static org.wso2.carbon.databridge.agent.endpoint.binary.BinaryEventSender.*;
 
@@ -33,6 +48,38 @@ import static org.wso2.carbon.databridge.agent.endpoint.binary.BinaryEventSender
  * This class is Binary transport implementation for the Data Endpoint.
  */
 public class BinaryDataEndpoint extends DataEndpoint {
+    private static final Log log = LogFactory.getLog(BinaryDataEndpoint.class);
+
+    private static final long PUBLISH_WINDOW_DRAIN_INTERVAL_MS = 500;
+
+    //The sockets are shared through the transport pool by all the endpoints with the same publisher key, hence so are
+    //their windows. A window is kept until its socket is closed, so that its batches are not lost with the socket.
+    private static final Map<Socket, BinaryPublishWindow> publishWindows = new HashMap<Socket, BinaryPublishWindow>();
+    //The stream ids registered on a socket are known by the receiver to every endpoint sending on it, hence so are
+    //their handles. A dictionary is dropped with its socket, as the receiver forgets the registrations of a connection.
+    private static final Map<Socket, BinaryStreamIdDictionary> streamIdDictionaries =
+            new WeakHashMap<Socket, BinaryStreamIdDictionary>();
+    private ScheduledExecutorService publishWindowDrainService;
+
+    /**
+     * Starts receiving the acknowledgements of sockets left idle in the pool when sends are pipelined, as they are
+     * otherwise only read by the next send on the same socket.
+     */
+    @Override
+    public void initialize(DataEndpointConfiguration dataEndpointConfiguration) throws DataEndpointException,
+            DataEndpointAuthenticationException, TransportException {
+        super.initialize(dataEndpointConfiguration);
+        if (dataEndpointConfiguration.getPublishWindowSize() > 1) {
+            publishWindowDrainService = Executors.newSingleThreadScheduledExecutor(new DataBridgeThreadFactory(
+                    "PublishWindowDrain-" + dataEndpointConfiguration.getReceiverURL()));
+            publishWindowDrainService.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    drainIdlePublishWindows();
+                }
+            }, PUBLISH_WINDOW_DRAIN_INTERVAL_MS, PUBLISH_WINDOW_DRAIN_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
 
     @Override
     protected String login(Object client, String userName, String password) throws DataEndpointAuthenticationException {
@@ -71,9 +118,23 @@ public class BinaryDataEndpoint extends DataEndpoint {
             SessionTimeoutException, UndefinedEventTypeException {
         Socket socket = (Socket) client;
         String sessionId = getDataEndpointConfiguration().getSessionId();
+        int publishWindowSize = getDataEndpointConfiguration().getPublishWindowSize();
+        BinaryStreamIdDictionary streamIdDictionary = null;
+        if (getDataEndpointConfiguration().isStreamIdDictionary()) {
+            streamIdDictionary = getStreamIdDictionary(socket);
+        }
+        int compressionThreshold = -1;
+        if (DataEndpointConstants.DEFLATE_COMPRESSION.equals(getDataEndpointConfiguration().getCompression())) {
+            compressionThreshold = getDataEndpointConfiguration().getCompressionThreshold();
+        }
         try {
-            sendBinaryPublishMessage(socket, events, sessionId);
-            processResponse(socket);
+            if (publishWindowSize > 1) {
+                sendPipelined(socket, events, sessionId, streamIdDictionary, compressionThreshold,
+                        publishWindowSize);
+            } else {
+                sendBinaryPublishMessage(socket, events, sessionId, streamIdDictionary, compressionThreshold);
+                processResponse(socket);
+            }
         } catch (Exception e) {
             if (e instanceof DataEndpointException) {
                 throw (DataEndpointException) e;
@@ -88,6 +149,255 @@ public class BinaryDataEndpoint extends DataEndpoint {
         }
     }
 
+    /**
+     * Sends the events as a sequenced publish message and only waits for acknowledgements when the socket already
+     * has publishWindowSize unacknowledged messages, or when acknowledgements are readily available. Failures
+     * reported for earlier messages are handed back to the endpoints which sent them, while a failure of the current
+     * message is thrown as in the non pipelined mode. On any error all the unacknowledged messages of the socket are
+     * handed back, and the caller discards the socket as its stream can no longer be trusted.
+     */
+    private void sendPipelined(Socket socket, List<Event> events, String sessionId,
+                               BinaryStreamIdDictionary streamIdDictionary, int compressionThreshold,
+                               int publishWindowSize) throws Exception {
+        BinaryPublishWindow publishWindow = getPublishWindow(socket);
+        List<UnacknowledgedBatch> failedBatches = new ArrayList<UnacknowledgedBatch>();
+        try {
+            synchronized (publishWindow) {
+                try {
+                    long sequence = publishWindow.add(events, this);
+                    sendBinarySequencedPublishMessage(socket, events, sessionId, streamIdDictionary,
+                            compressionThreshold, sequence);
+                    while (publishWindow.size() >= publishWindowSize ||
+                            (publishWindow.size() > 0 && socket.getInputStream().available() > 0)) {
+                        Exception error = processSequencedResponse(socket, publishWindow.getOldestSequence());
+                        UnacknowledgedBatch acknowledgedBatch = publishWindow.removeOldest();
+                        if (error != null) {
+                            if (acknowledgedBatch.getEvents() == events) {
+                                throw error;
+                            }
+                            acknowledgedBatch.setError(error);
+                            failedBatches.add(acknowledgedBatch);
+                        }
+                    }
+                } catch (Exception e) {
+                    removePublishWindow(socket, publishWindow);
+                    for (UnacknowledgedBatch unacknowledgedBatch : publishWindow.removeAll()) {
+                        if (unacknowledgedBatch.getEvents() != events) {
+                            failedBatches.add(unacknowledgedBatch);
+                        }
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            handBack(failedBatches);
+        }
+    }
+
+    private static BinaryPublishWindow getPublishWindow(Socket socket) {
+        synchronized (publishWindows) {
+            BinaryPublishWindow publishWindow = publishWindows.get(socket);
+            if (publishWindow == null) {
+                publishWindow = new BinaryPublishWindow();
+                publishWindows.put(socket, publishWindow);
+            }
+            return publishWindow;
+        }
+    }
+
+    /**
+     * Removes the window of a socket which is closed, or is about to be closed by the caller. A send on the socket
+     * then fails, hence a window created for it in the meantime never keeps any batch.
+     */
+    private static void removePublishWindow(Socket socket, BinaryPublishWindow publishWindow) {
+        synchronized (publishWindows) {
+            if (publishWindows.get(socket) == publishWindow) {
+                publishWindows.remove(socket);
+            }
+        }
+    }
+
+    private static List<Map.Entry<Socket, BinaryPublishWindow>> getPublishWindows() {
+        synchronized (publishWindows) {
+            return new ArrayList<Map.Entry<Socket, BinaryPublishWindow>>(
+                    new HashMap<Socket, BinaryPublishWindow>(publishWindows).entrySet());
+        }
+    }
+
+    private static BinaryStreamIdDictionary getStreamIdDictionary(Socket socket) {
+        synchronized (streamIdDictionaries) {
+            BinaryStreamIdDictionary streamIdDictionary = streamIdDictionaries.get(socket);
+            if (streamIdDictionary == null) {
+                streamIdDictionary = new BinaryStreamIdDictionary();
+                streamIdDictionaries.put(socket, streamIdDictionary);
+            }
+            return streamIdDictionary;
+        }
+    }
+
+    /**
+     * Hands the batches back to the endpoints which sent them, once the window lock is released.
+     */
+    private static void handBack(List<UnacknowledgedBatch> batches) {
+        for (UnacknowledgedBatch batch : batches) {
+            if (batch.getError() != null) {
+                batch.getDataEndpoint().handleFailedAcknowledgement(batch.getEvents(), batch.getError());
+            } else {
+                batch.getDataEndpoint().resendFailedEvents(batch.getEvents(), true);
+            }
+        }
+    }
+
+    private void handleFailedAcknowledgement(List<Event> events, Exception error) {
+        if (error instanceof UndefinedEventTypeException) {
+            log.error("Unable to process this event.", error);
+        } else if (error instanceof SessionTimeoutException) {
+            resendFailedEvents(events, false);
+        } else {
+            log.error("Unable to send events to the endpoint. ", error);
+            resendFailedEvents(events, true);
+        }
+    }
+
+    /**
+     * Receives the acknowledgements of the windows of sockets on which nothing was sent for a while, i.e. which are
+     * likely idle in the pool or were evicted from it. A socket whose acknowledgements cannot be received is closed,
+     * so that the pool does not lend it again, and the batches of its window are handed back.
+     */
+    private void drainIdlePublishWindows() {
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(PUBLISH_WINDOW_DRAIN_INTERVAL_MS);
+        for (Map.Entry<Socket, BinaryPublishWindow> entry : getPublishWindows()) {
+            Socket socket = entry.getKey();
+            BinaryPublishWindow publishWindow = entry.getValue();
+            List<UnacknowledgedBatch> failedBatches = new ArrayList<UnacknowledgedBatch>();
+            synchronized (publishWindow) {
+                if (publishWindow.size() == 0) {
+                    if (socket.isClosed()) {
+                        removePublishWindow(socket, publishWindow);
+                    }
+                    continue;
+                }
+                if (!publishWindow.isIdle(idleNanos)) {
+                    continue;
+                }
+                try {
+                    awaitAcknowledgements(socket, publishWindow, failedBatches);
+                } catch (Exception e) {
+                    log.error("Unable to receive acknowledgements from data receiver :" +
+                            socket.getRemoteSocketAddress() + ", hence closing the connection", e);
+                    removePublishWindow(socket, publishWindow);
+                    closeSocket(socket);
+                }
+            }
+            handBack(failedBatches);
+        }
+    }
+
+    @Override
+    protected void completePendingSends() {
+        if (publishWindowDrainService != null) {
+            publishWindowDrainService.shutdownNow();
+            try {
+                publishWindowDrainService.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+        }
+        for (Map.Entry<Socket, BinaryPublishWindow> entry : getPublishWindows()) {
+            Socket socket = entry.getKey();
+            BinaryPublishWindow publishWindow = entry.getValue();
+            List<UnacknowledgedBatch> failedBatches = new ArrayList<UnacknowledgedBatch>();
+            synchronized (publishWindow) {
+                try {
+                    awaitAcknowledgements(socket, publishWindow, failedBatches);
+                    if (socket.isClosed()) {
+                        removePublishWindow(socket, publishWindow);
+                    }
+                } catch (Exception e) {
+                    log.error("Unable to receive acknowledgements from data receiver :" +
+                            socket.getRemoteSocketAddress(), e);
+                    removePublishWindow(socket, publishWindow);
+                    closeSocket(socket);
+                }
+            }
+            handBack(failedBatches);
+        }
+    }
+
+    /**
+     * Receives the acknowledgements of all the unacknowledged messages of the socket, while holding the lock of its
+     * window. The batches which failed, or all the remaining ones if the acknowledgements cannot be received, are
+     * added to failedBatches for the caller to hand back once the lock is released.
+     */
+    private static void awaitAcknowledgements(Socket socket, BinaryPublishWindow publishWindow,
+                                              List<UnacknowledgedBatch> failedBatches) throws Exception {
+        try {
+            while (publishWindow.size() > 0) {
+                Exception error = processSequencedResponse(socket, publishWindow.getOldestSequence());
+                UnacknowledgedBatch acknowledgedBatch = publishWindow.removeOldest();
+                if (error != null) {
+                    acknowledgedBatch.setError(error);
+                    failedBatches.add(acknowledgedBatch);
+                }
+            }
+        } catch (Exception e) {
+            failedBatches.addAll(publishWindow.removeAll());
+            throw e;
+        }
+    }
+
+    private static void closeSocket(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.warn("Cannot close the socket to " + socket.getRemoteSocketAddress(), e);
+        }
+    }
+
+    /**
+     * Sends a heartbeat message on the socket, once the acknowledgements of its earlier messages are received so
+     * that the answer is not read in place of them, and waits at most timeoutMS for the receiver to answer.
+     */
+    @Override
+    protected void sendHeartbeat(Object client, int timeoutMS) throws DataEndpointException {
+        Socket socket = (Socket) client;
+        BinaryPublishWindow publishWindow;
+        synchronized (publishWindows) {
+            publishWindow = publishWindows.get(socket);
+        }
+        List<UnacknowledgedBatch> failedBatches = new ArrayList<UnacknowledgedBatch>();
+        try {
+            if (publishWindow == null) {
+                exchangeHeartbeat(socket, timeoutMS);
+            } else {
+                synchronized (publishWindow) {
+                    try {
+                        awaitAcknowledgements(socket, publishWindow, failedBatches);
+                        exchangeHeartbeat(socket, timeoutMS);
+                    } catch (Exception e) {
+                        removePublishWindow(socket, publishWindow);
+                        throw e;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            throw new DataEndpointException("Error while sending heartbeat to data receiver :"
+                    + socket.getRemoteSocketAddress(), e);
+        } finally {
+            handBack(failedBatches);
+        }
+    }
+
+    private static void exchangeHeartbeat(Socket socket, int timeoutMS) throws Exception {
+        int socketTimeout = socket.getSoTimeout();
+        socket.setSoTimeout(timeoutMS);
+        try {
+            sendBinaryHeartbeatMessage(socket);
+            processHeartbeatResponse(socket);
+        } finally {
+            socket.setSoTimeout(socketTimeout);
+        }
+    }
+
     @Override
     public String getClientPoolFactoryClass() {
         return BinaryClientPoolFactory.class.getCanonicalName();
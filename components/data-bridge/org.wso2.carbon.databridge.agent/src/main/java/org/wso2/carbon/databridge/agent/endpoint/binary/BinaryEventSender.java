@@ -26,6 +26,7 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.Deflater;
 
 import static org.wso2.carbon.databridge.commons.binary.BinaryMessageConverterUtil.*;
 
@@ -33,6 +34,17 @@ import static org.wso2.carbon.databridge.commons.binary.BinaryMessageConverterUt
  * This is a Util class which does the Binary message transformation for publish, login, logout operations.
  */
 public class BinaryEventSender {
+    private static final int INITIAL_ENCODE_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_RETAINED_ENCODE_BUFFER_SIZE = 4 * 1024 * 1024;
+    private static final ThreadLocal<ByteBuffer> ENCODE_BUFFER = new ThreadLocal<ByteBuffer>();
+    private static final ThreadLocal<ByteBuffer> COMPRESS_BUFFER = new ThreadLocal<ByteBuffer>();
+    private static final ThreadLocal<Deflater> DEFLATER = new ThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(Deflater.BEST_SPEED);
+        }
+    };
+
     public static void sendBinaryLoginMessage(Socket socket, String userName, String password) throws IOException {
         ByteBuffer buf = ByteBuffer.allocate(13 + userName.length() + password.length());
         buf.put((byte) 0);
@@ -59,57 +71,201 @@ public class BinaryEventSender {
         outputStream.flush();
     }
 
+    public static void sendBinaryHeartbeatMessage(Socket socket) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(5);
+        buf.put((byte) 7);
+        buf.putInt(0);
+
+        OutputStream outputStream = socket.getOutputStream();
+        outputStream.write(buf.array());
+        outputStream.flush();
+    }
+
     public static void sendBinaryPublishMessage(Socket socket, List<Event> events, String sessionId) throws IOException {
-        int messageSize = 8 + sessionId.length();
-        List<byte[]> bytes = new ArrayList<byte[]>();
+        sendBinaryPublishMessage(socket, events, sessionId, null, -1, (byte) 2, 0);
+    }
 
-        for (Event event : events) {
+    /**
+     * Sends a publish message that carries a trailing sequence number. The receiver acknowledges it with the same
+     * sequence number, which allows several of these messages to be in flight on one socket.
+     */
+    public static void sendBinarySequencedPublishMessage(Socket socket, List<Event> events, String sessionId,
+                                                         long sequence) throws IOException {
+        sendBinaryPublishMessage(socket, events, sessionId, null, -1, (byte) 3, sequence);
+    }
+
+    /**
+     * Sends a publish message where the stream ids registered in the given dictionary are replaced by their
+     * handles. Stream ids seen for the first time on this socket are registered in front of the publish message.
+     * When the encoded messages are at least compressionThreshold bytes long they are sent deflated, a negative
+     * threshold disables compression.
+     */
+    static void sendBinaryPublishMessage(Socket socket, List<Event> events, String sessionId,
+                                         BinaryStreamIdDictionary streamIdDictionary, int compressionThreshold)
+            throws IOException {
+        sendBinaryPublishMessage(socket, events, sessionId, streamIdDictionary, compressionThreshold, (byte) 2, 0);
+    }
+
+    static void sendBinarySequencedPublishMessage(Socket socket, List<Event> events, String sessionId,
+                                                  BinaryStreamIdDictionary streamIdDictionary,
+                                                  int compressionThreshold, long sequence) throws IOException {
+        sendBinaryPublishMessage(socket, events, sessionId, streamIdDictionary, compressionThreshold, (byte) 3,
+                sequence);
+    }
 
-            int eventSize = getEventSize(event);
-            messageSize += eventSize + 4;
-            ByteBuffer eventDataBuffer = ByteBuffer.allocate(4 + eventSize);
-            eventDataBuffer.putInt(eventSize);
-            eventDataBuffer.putLong(event.getTimeStamp());
-            eventDataBuffer.putInt(event.getStreamId().length());
-            eventDataBuffer.put(event.getStreamId().getBytes(BinaryMessageConstants.DEFAULT_CHARSET));
-
-            if (event.getMetaData() != null && event.getMetaData().length != 0) {
-                for (Object aMetaData : event.getMetaData()) {
-                    assignData(aMetaData, eventDataBuffer);
+    private static void sendBinaryPublishMessage(Socket socket, List<Event> events, String sessionId,
+                                                 BinaryStreamIdDictionary streamIdDictionary,
+                                                 int compressionThreshold, byte messageType, long sequence)
+            throws IOException {
+        int messageSize = 8 + sessionId.length();
+        if (messageType == 3) {
+            messageSize += 8;
+        }
+        int registerMessagesSize = 0;
+        int firstNewHandle = -1;
+        List<String> newStreamIds = null;
+        for (Event event : events) {
+            messageSize += getEventSize(event, streamIdDictionary) + 4;
+            if (streamIdDictionary != null && streamIdDictionary.getHandle(event.getStreamId()) == -1) {
+                int handle = streamIdDictionary.register(event.getStreamId());
+                if (handle != -1) {
+                    if (newStreamIds == null) {
+                        newStreamIds = new ArrayList<String>();
+                        firstNewHandle = handle;
+                    }
+                    newStreamIds.add(event.getStreamId());
+                    registerMessagesSize += 13 + event.getStreamId().length();
+                    messageSize -= event.getStreamId().length();
                 }
             }
-            if (event.getCorrelationData() != null && event.getCorrelationData().length != 0) {
-                for (Object aCorrelationData : event.getCorrelationData()) {
-                    assignData(aCorrelationData, eventDataBuffer);
+        }
+
+        ByteBuffer buf = getBuffer(ENCODE_BUFFER, registerMessagesSize + 5 + messageSize);
+        try {
+            if (newStreamIds != null) {
+                for (int i = 0; i < newStreamIds.size(); i++) {
+                    String streamId = newStreamIds.get(i);
+                    buf.put((byte) 5);  //1
+                    buf.putInt(8 + streamId.length()); //4
+                    buf.putInt(firstNewHandle + i); //4
+                    buf.putInt(streamId.length()); //4
+                    buf.put(streamId.getBytes(BinaryMessageConstants.DEFAULT_CHARSET));
                 }
             }
-            if (event.getPayloadData() != null && event.getPayloadData().length != 0) {
-                for (Object aPayloadData : event.getPayloadData()) {
-                    assignData(aPayloadData, eventDataBuffer);
+            buf.put(messageType);  //1
+            buf.putInt(messageSize); //4
+            buf.putInt(sessionId.length()); //4
+            buf.put(sessionId.getBytes(BinaryMessageConstants.DEFAULT_CHARSET));
+            buf.putInt(events.size()); //4
+
+            for (Event event : events) {
+                buf.putInt(getEventSize(event, streamIdDictionary));
+                buf.putLong(event.getTimeStamp());
+                int streamIdHandle = streamIdDictionary != null ?
+                        streamIdDictionary.getHandle(event.getStreamId()) : -1;
+                if (streamIdHandle != -1) {
+                    //A negative stream id size refers to a stream id registered on this connection
+                    buf.putInt(-(streamIdHandle + 1));
+                } else {
+                    buf.putInt(event.getStreamId().length());
+                    buf.put(event.getStreamId().getBytes(BinaryMessageConstants.DEFAULT_CHARSET));
                 }
-            }
-            if (event.getArbitraryDataMap() != null && event.getArbitraryDataMap().size() != 0) {
-                for (Map.Entry<String, String> aArbitraryData : event.getArbitraryDataMap().entrySet()) {
-                    assignData(aArbitraryData.getKey(), eventDataBuffer);
-                    assignData(aArbitraryData.getValue(), eventDataBuffer);
+
+                if (event.getMetaData() != null && event.getMetaData().length != 0) {
+                    for (Object aMetaData : event.getMetaData()) {
+                        assignData(aMetaData, buf);
+                    }
+                }
+                if (event.getCorrelationData() != null && event.getCorrelationData().length != 0) {
+                    for (Object aCorrelationData : event.getCorrelationData()) {
+                        assignData(aCorrelationData, buf);
+                    }
                 }
+                if (event.getPayloadData() != null && event.getPayloadData().length != 0) {
+                    for (Object aPayloadData : event.getPayloadData()) {
+                        assignData(aPayloadData, buf);
+                    }
+                }
+                if (event.getArbitraryDataMap() != null && event.getArbitraryDataMap().size() != 0) {
+                    for (Map.Entry<String, String> aArbitraryData : event.getArbitraryDataMap().entrySet()) {
+                        assignData(aArbitraryData.getKey(), buf);
+                        assignData(aArbitraryData.getValue(), buf);
+                    }
+                }
+            }
+            if (messageType == 3) {
+                buf.putLong(sequence);
+            }
+
+            OutputStream outputstream = socket.getOutputStream();
+            if (compressionThreshold < 0 || buf.position() < compressionThreshold ||
+                    !writeCompressed(outputstream, buf)) {
+                outputstream.write(buf.array(), 0, buf.position());
             }
-            bytes.add(eventDataBuffer.array());
+            outputstream.flush();
+        } finally {
+            releaseBuffer(ENCODE_BUFFER, buf);
         }
+    }
 
-        ByteBuffer buf = ByteBuffer.allocate(sessionId.length() + 13);
-        buf.put((byte) 2);  //1
-        buf.putInt(messageSize); //4
-        buf.putInt(sessionId.length()); //4
-        buf.put(sessionId.getBytes(BinaryMessageConstants.DEFAULT_CHARSET));
-        buf.putInt(events.size()); //4
+    /**
+     * Writes the encoded messages deflated into a single compressed message (type 6), which the receiver inflates
+     * and processes as if the contained messages were sent one after the other.
+     *
+     * @return false if the messages did not become smaller, in which case nothing is written
+     */
+    private static boolean writeCompressed(OutputStream outputStream, ByteBuffer buf) throws IOException {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(buf.array(), 0, buf.position());
+        deflater.finish();
+        ByteBuffer compressedBuf = getBuffer(COMPRESS_BUFFER, 9 + buf.position());
+        try {
+            byte[] compressed = compressedBuf.array();
+            int length = 9;
+            while (!deflater.finished() && length < buf.position()) {
+                length += deflater.deflate(compressed, length, buf.position() - length);
+            }
+            if (deflater.finished()) {
+                compressedBuf.put((byte) 6);  //1
+                compressedBuf.putInt(length - 5); //4
+                compressedBuf.putInt(buf.position()); //4
+                outputStream.write(compressed, 0, length);
+                return true;
+            }
+            return false;
+        } finally {
+            releaseBuffer(COMPRESS_BUFFER, compressedBuf);
+        }
+    }
+
+    /**
+     * Returns the calling thread's buffer, cleared and large enough to hold the given number of bytes. The whole
+     * message is encoded into it and written to the socket in one call, instead of allocating a buffer per event.
+     */
+    private static ByteBuffer getBuffer(ThreadLocal<ByteBuffer> threadBuffer, int capacity) {
+        ByteBuffer buf = threadBuffer.get();
+        if (buf == null || buf.capacity() < capacity) {
+            buf = ByteBuffer.allocate(Math.max(capacity, INITIAL_ENCODE_BUFFER_SIZE));
+            threadBuffer.set(buf);
+        }
+        buf.clear();
+        return buf;
+    }
+
+    private static void releaseBuffer(ThreadLocal<ByteBuffer> threadBuffer, ByteBuffer buf) {
+        if (buf.capacity() > MAX_RETAINED_ENCODE_BUFFER_SIZE) {
+            //Do not pin an unusually large buffer to the publishing thread.
+            threadBuffer.remove();
+        }
+    }
 
-        OutputStream outputstream = new BufferedOutputStream(socket.getOutputStream());
-        outputstream.write(buf.array());
-        for (byte[] byteArray : bytes) {
-            outputstream.write(byteArray);
+    private static int getEventSize(Event event, BinaryStreamIdDictionary streamIdDictionary) {
+        int eventSize = getEventSize(event);
+        if (streamIdDictionary != null && streamIdDictionary.getHandle(event.getStreamId()) != -1) {
+            eventSize -= event.getStreamId().length();
         }
-        outputstream.flush();
+        return eventSize;
     }
 
     private static int getEventSize(Event event) {
@@ -147,20 +303,15 @@ public class BinaryEventSender {
         int messageType = bufferedInputStream.read();
         ByteBuffer bbuf;
         switch (messageType) {
+            case -1:
+                //The receiver closed the connection without answering, hence the message may not have been processed
+                throw new EOFException("Connection closed from remote end.");
             case 0:
                 //OK message
                 break;
             case 1:
                 //Error Message
-                bbuf = ByteBuffer.wrap(loadData(bufferedInputStream, new byte[8]));
-                int errorClassNameLength = bbuf.getInt();
-                int errorMsgLength = bbuf.getInt();
-
-                String className = new String(ByteBuffer.wrap(loadData(bufferedInputStream, new byte[errorClassNameLength])).array());
-                String errorMsg = new String(ByteBuffer.wrap(loadData(bufferedInputStream, new byte[errorMsgLength])).array());
-
-                throw (Exception) (BinaryDataEndpoint.class.getClassLoader().
-                        loadClass(className).getConstructor(String.class).newInstance(errorMsg));
+                throw readError(bufferedInputStream);
             case 2:
                 //Logging OK response
                 bbuf = ByteBuffer.wrap(loadData(bufferedInputStream, new byte[4]));
@@ -170,4 +321,65 @@ public class BinaryEventSender {
         return null;
     }
 
+    /**
+     * Reads the response of a heartbeat message. Unlike the other responses, any response but an OK is reported as
+     * an error, as the heartbeat is only sent to find whether the connection is still usable.
+     */
+    public static void processHeartbeatResponse(Socket socket) throws Exception {
+        InputStream inputStream = socket.getInputStream();
+        int messageType = inputStream.read();
+        switch (messageType) {
+            case -1:
+                throw new EOFException("Connection closed from remote end.");
+            case 0:
+                //OK message
+                break;
+            case 1:
+                //Error Message
+                throw readError(inputStream);
+            default:
+                throw new IOException("Unexpected response type " + messageType + " for heartbeat message");
+        }
+    }
+
+    /**
+     * Reads the response of a sequenced publish message. The socket stream is read without buffering, as the
+     * acknowledgements of further pipelined messages may already be queued behind this one.
+     *
+     * @return null if the receiver accepted the message, or the error the receiver reported for it
+     */
+    public static Exception processSequencedResponse(Socket socket, long expectedSequence) throws Exception {
+        InputStream inputStream = socket.getInputStream();
+        int messageType = inputStream.read();
+        if (messageType == -1) {
+            throw new EOFException("Connection closed from remote end.");
+        }
+        long sequence = ByteBuffer.wrap(loadData(inputStream, new byte[8])).getLong();
+        if (sequence != expectedSequence) {
+            throw new IOException("Received acknowledgement for sequence " + sequence + " while expecting "
+                    + expectedSequence);
+        }
+        switch (messageType) {
+            case 3:
+                //Sequenced OK message
+                return null;
+            case 4:
+                //Sequenced Error message
+                return readError(inputStream);
+            default:
+                throw new IOException("Unexpected response type " + messageType + " for sequenced publish message");
+        }
+    }
+
+    private static Exception readError(InputStream inputStream) throws Exception {
+        ByteBuffer bbuf = ByteBuffer.wrap(loadData(inputStream, new byte[8]));
+        int errorClassNameLength = bbuf.getInt();
+        int errorMsgLength = bbuf.getInt();
+
+        String className = new String(ByteBuffer.wrap(loadData(inputStream, new byte[errorClassNameLength])).array());
+        String errorMsg = new String(ByteBuffer.wrap(loadData(inputStream, new byte[errorMsgLength])).array());
+
+        return (Exception) (BinaryDataEndpoint.class.getClassLoader().
+                loadClass(className).getConstructor(String.class).newInstance(errorMsg));
+    }
 }
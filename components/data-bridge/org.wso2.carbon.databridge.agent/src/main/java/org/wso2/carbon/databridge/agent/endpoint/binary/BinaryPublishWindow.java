@@ -0,0 +1,99 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.agent.endpoint.binary;
+
+import org.wso2.carbon.databridge.commons.Event;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the batches that were written to a single socket as sequenced publish messages but are not yet
+ * acknowledged. The receiver processes the messages of a connection in order, hence the oldest batch is always
+ * the one the next acknowledgement belongs to. The socket is shared through the transport pool by all the endpoints
+ * publishing with the same publisher key, hence each batch keeps the endpoint it was sent by, and a window is only
+ * used while holding its lock.
+ */
+class BinaryPublishWindow {
+    private final Deque<UnacknowledgedBatch> unacknowledgedBatches = new ArrayDeque<UnacknowledgedBatch>();
+    private long nextSequence;
+    private long lastSendNanos;
+
+    long add(List<Event> events, BinaryDataEndpoint dataEndpoint) {
+        unacknowledgedBatches.addLast(new UnacknowledgedBatch(events, dataEndpoint));
+        lastSendNanos = System.nanoTime();
+        return nextSequence++;
+    }
+
+    int size() {
+        return unacknowledgedBatches.size();
+    }
+
+    long getOldestSequence() {
+        return nextSequence - unacknowledgedBatches.size();
+    }
+
+    /**
+     * @return true if nothing was sent on the socket for the given time, i.e. it is likely idle in the pool
+     */
+    boolean isIdle(long idleNanos) {
+        return System.nanoTime() - lastSendNanos >= idleNanos;
+    }
+
+    UnacknowledgedBatch removeOldest() {
+        return unacknowledgedBatches.pollFirst();
+    }
+
+    List<UnacknowledgedBatch> removeAll() {
+        List<UnacknowledgedBatch> batches = new ArrayList<UnacknowledgedBatch>(unacknowledgedBatches);
+        unacknowledgedBatches.clear();
+        return batches;
+    }
+
+    static class UnacknowledgedBatch {
+        private final List<Event> events;
+        private final BinaryDataEndpoint dataEndpoint;
+        private Exception error;
+
+        private UnacknowledgedBatch(List<Event> events, BinaryDataEndpoint dataEndpoint) {
+            this.events = events;
+            this.dataEndpoint = dataEndpoint;
+        }
+
+        List<Event> getEvents() {
+            return events;
+        }
+
+        BinaryDataEndpoint getDataEndpoint() {
+            return dataEndpoint;
+        }
+
+        /**
+         * @return the failure the receiver acknowledged the batch with, or null if it was not acknowledged
+         */
+        Exception getError() {
+            return error;
+        }
+
+        void setError(Exception error) {
+            this.error = error;
+        }
+    }
+}
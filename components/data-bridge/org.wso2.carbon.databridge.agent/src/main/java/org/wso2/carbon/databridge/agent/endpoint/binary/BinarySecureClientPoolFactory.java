@@ -83,7 +83,7 @@ public class BinarySecureClientPoolFactory extends AbstractSecureClientPoolFacto
     @Override
     public boolean validateClient(Object client) {
         Socket socket = (Socket) client;
-        return socket.isConnected();
+        return socket.isConnected() && !socket.isClosed();
     }
 
     @Override
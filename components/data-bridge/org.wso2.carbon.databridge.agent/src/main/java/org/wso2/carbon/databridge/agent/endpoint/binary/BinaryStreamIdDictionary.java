@@ -0,0 +1,56 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.agent.endpoint.binary;
+
+import org.wso2.carbon.databridge.commons.binary.BinaryMessageConstants;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the stream ids that were registered on a single socket together with the handles the receiver knows them
+ * by. Handles are assigned in increasing order and never reused for another stream id on the same connection, as
+ * the receiver may still be converting events that refer to them. A dictionary is only used by the thread that
+ * currently holds its socket.
+ */
+class BinaryStreamIdDictionary {
+    private final Map<String, Integer> handles = new HashMap<String, Integer>();
+
+    /**
+     * @return the handle of the stream id, or -1 if it is not registered on this connection
+     */
+    int getHandle(String streamId) {
+        Integer handle = handles.get(streamId);
+        return handle != null ? handle : -1;
+    }
+
+    /**
+     * Assigns the next handle to the stream id. The caller must send the register message before any event that
+     * refers to the handle.
+     *
+     * @return the new handle, or -1 if the connection has run out of handles
+     */
+    int register(String streamId) {
+        int handle = handles.size();
+        if (handle >= BinaryMessageConstants.MAX_STREAM_ID_HANDLES) {
+            return -1;
+        }
+        handles.put(streamId, handle);
+        return handle;
+    }
+}
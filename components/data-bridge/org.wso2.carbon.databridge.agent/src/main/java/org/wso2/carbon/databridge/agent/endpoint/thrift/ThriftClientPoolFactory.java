@@ -18,9 +18,11 @@
 package org.wso2.carbon.databridge.agent.endpoint.thrift;
 
 import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
 import org.apache.thrift.protocol.TProtocol;
 import org.apache.thrift.transport.*;
 import org.wso2.carbon.databridge.agent.AgentHolder;
+import org.wso2.carbon.databridge.agent.conf.AgentConfiguration;
 import org.wso2.carbon.databridge.agent.conf.DataEndpointConfiguration;
 import org.wso2.carbon.databridge.agent.exception.DataEndpointAgentConfigurationException;
 import org.wso2.carbon.databridge.agent.exception.DataEndpointException;
@@ -37,10 +39,13 @@ public class ThriftClientPoolFactory extends AbstractClientPoolFactory {
     public Object createClient(String protocol, String hostName, int port) throws DataEndpointException,
             DataEndpointAgentConfigurationException {
         if (protocol.equalsIgnoreCase(DataEndpointConfiguration.Protocol.TCP.toString())) {
-            int socketTimeout = AgentHolder.getInstance().getDataEndpointAgent(DataEndpointConstants.THRIFT_DATA_AGENT_TYPE).
-                    getAgentConfiguration().getSocketTimeoutMS();
-            TTransport receiverTransport = new TSocket(hostName, port, socketTimeout);
-            TProtocol tProtocol = new TBinaryProtocol(receiverTransport);
+            AgentConfiguration agentConfiguration = AgentHolder.getInstance().
+                    getDataEndpointAgent(DataEndpointConstants.THRIFT_DATA_AGENT_TYPE).getAgentConfiguration();
+            TTransport receiverTransport = new TSocket(hostName, port, agentConfiguration.getSocketTimeoutMS());
+            if (agentConfiguration.isFramedTransport()) {
+                receiverTransport = new TFramedTransport(receiverTransport);
+            }
+            TProtocol tProtocol = createProtocol(receiverTransport, agentConfiguration);
             ThriftEventTransmissionService.Client client = new ThriftEventTransmissionService.Client(tProtocol);
             try {
                 receiverTransport.open();
@@ -54,6 +59,16 @@ public class ThriftClientPoolFactory extends AbstractClientPoolFactory {
                 + " is supported");
     }
 
+    /**
+     * @return a new protocol over the given transport, of the type the agent is configured with
+     */
+    static TProtocol createProtocol(TTransport transport, AgentConfiguration agentConfiguration) {
+        if (DataEndpointConstants.COMPACT_THRIFT_PROTOCOL.equalsIgnoreCase(agentConfiguration.getThriftProtocol())) {
+            return new TCompactProtocol(transport);
+        }
+        return new TBinaryProtocol(transport);
+    }
+
     @Override
     public boolean validateClient(Object client) {
         ThriftEventTransmissionService.Client thriftClient = (ThriftEventTransmissionService.Client) client;
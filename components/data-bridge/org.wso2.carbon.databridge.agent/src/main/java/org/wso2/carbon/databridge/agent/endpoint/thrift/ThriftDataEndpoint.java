@@ -26,20 +26,22 @@ import org.wso2.carbon.databridge.commons.exception.SessionTimeoutException;
 import org.wso2.carbon.databridge.commons.exception.UndefinedEventTypeException;
 import org.wso2.carbon.databridge.commons.thrift.data.ThriftEventBundle;
 import org.wso2.carbon.databridge.commons.thrift.exception.ThriftAuthenticationException;
+import org.wso2.carbon.databridge.commons.thrift.exception.ThriftNoStreamDefinitionExistException;
 import org.wso2.carbon.databridge.commons.thrift.exception.ThriftSessionExpiredException;
 import org.wso2.carbon.databridge.commons.thrift.exception.ThriftUndefinedEventTypeException;
 import org.wso2.carbon.databridge.commons.thrift.service.general.ThriftEventTransmissionService;
 import org.wso2.carbon.databridge.commons.thrift.service.secure.ThriftSecureEventTransmissionService;
+import org.wso2.carbon.databridge.commons.thrift.utils.CommonThriftConstants;
 
 import java.util.List;
 
 /**
- * This is the DataEndpoint Implementation for thrift transport.
+ * This is the DataEndpoint Implementation for thrift transport. Each call is made on a client borrowed exclusively
+ * from the transport pool, so the publisher threads of an endpoint send concurrently over separate clients.
  */
 public class ThriftDataEndpoint extends DataEndpoint {
-
     @Override
-    protected synchronized String login(Object client, String userName, String password)
+    protected String login(Object client, String userName, String password)
             throws DataEndpointAuthenticationException {
         try {
             return ((ThriftSecureEventTransmissionService.Client) client).connect(userName, password);
@@ -51,7 +53,7 @@ public class ThriftDataEndpoint extends DataEndpoint {
     }
 
     @Override
-    protected synchronized void logout(Object client, String sessionId)
+    protected void logout(Object client, String sessionId)
             throws DataEndpointAuthenticationException {
         try {
             ((ThriftSecureEventTransmissionService.Client) client).disconnect(sessionId);
@@ -61,7 +63,7 @@ public class ThriftDataEndpoint extends DataEndpoint {
     }
 
     @Override
-    protected synchronized void send(Object client, List<Event> events) throws DataEndpointException,
+    protected void send(Object client, List<Event> events) throws DataEndpointException,
             SessionTimeoutException, UndefinedEventTypeException {
         ThriftEventBundle thriftEventBundle = null;
         for (Event event : events) {
@@ -79,10 +81,44 @@ public class ThriftDataEndpoint extends DataEndpoint {
         } catch (ThriftSessionExpiredException e) {
             throw new SessionTimeoutException("Thrift Session Expired Exception ", e);
         } catch (TException e) {
+            //The client may be left with a partly written or read message, so it must not be reused
+            closeClient(client);
             throw new DataEndpointException("Cannot send Events", e);
         }
     }
 
+    /**
+     * Looks up the heartbeat stream id over the client, as the Thrift services have no dedicated heartbeat. The
+     * receiver answers it without reading the stream definitions. Any answer of the receiver, including a missing
+     * stream definition or an expired session, shows that the connection is usable.
+     * The answer is awaited for the socket timeout the client was created with.
+     */
+    @Override
+    protected void sendHeartbeat(Object client, int timeoutMS) throws DataEndpointException {
+        String sessionId = getDataEndpointConfiguration().getSessionId();
+        try {
+            if (client instanceof ThriftSecureEventTransmissionService.Client) {
+                ((ThriftSecureEventTransmissionService.Client) client).findStreamId(sessionId,
+                        CommonThriftConstants.HEARTBEAT_STREAM_NAME, CommonThriftConstants.HEARTBEAT_STREAM_VERSION);
+            } else {
+                ((ThriftEventTransmissionService.Client) client).findStreamId(sessionId,
+                        CommonThriftConstants.HEARTBEAT_STREAM_NAME, CommonThriftConstants.HEARTBEAT_STREAM_VERSION);
+            }
+        } catch (ThriftNoStreamDefinitionExistException | ThriftSessionExpiredException ignored) {
+        } catch (TException e) {
+            closeClient(client);
+            throw new DataEndpointException("Heartbeat failed", e);
+        }
+    }
+
+    private void closeClient(Object client) {
+        if (client instanceof ThriftSecureEventTransmissionService.Client) {
+            ((ThriftSecureEventTransmissionService.Client) client).getOutputProtocol().getTransport().close();
+        } else {
+            ((ThriftEventTransmissionService.Client) client).getOutputProtocol().getTransport().close();
+        }
+    }
+
     @Override
     public String getClientPoolFactoryClass() {
         return ThriftClientPoolFactory.class.getCanonicalName();
@@ -26,7 +26,6 @@ import org.wso2.carbon.databridge.commons.utils.EventDefinitionConverterUtils;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.Map;
 
 /**
@@ -45,8 +44,8 @@ public final class ThriftEventConverter {
         ThriftEventBundle thriftEventBundle = eventBundle;
         if (thriftEventBundle == null) {
             thriftEventBundle = new ThriftEventBundle();
-            thriftEventBundle.setStringAttributeList(new LinkedList<String>());//adding string list
-            thriftEventBundle.setLongAttributeList(new LinkedList<Long>());//adding long list
+            thriftEventBundle.setStringAttributeList(new ArrayList<String>());//adding string list
+            thriftEventBundle.setLongAttributeList(new ArrayList<Long>());//adding long list
             thriftEventBundle.setSessionId(sessionId);
             thriftEventBundle.setEventNum(0);
         }
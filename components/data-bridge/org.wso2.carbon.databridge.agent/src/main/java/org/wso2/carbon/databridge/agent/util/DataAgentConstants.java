@@ -50,6 +50,25 @@ public class DataAgentConstants {
     public static final String SECURE_MIN_IDLE_TIME_IN_POOL = "secureMinIdleTimeInPool";
     public static final String SSL_ENABLED_PROTOCOLS = "sslEnabledProtocols";
     public static final String CIPHERS = "ciphers";
+    public static final String PUBLISH_WINDOW_SIZE = "publishWindowSize";
+    public static final String WAIT_STRATEGY = "waitStrategy";
+    public static final String WAIT_STRATEGY_TIMEOUT_MS = "waitStrategyTimeoutMS";
+    public static final String PRODUCER_TYPE = "producerType";
+    public static final String STREAM_ID_DICTIONARY = "streamIdDictionary";
+    public static final String COMPRESSION = "compression";
+    public static final String COMPRESSION_THRESHOLD = "compressionThreshold";
+    public static final String FRAMED_TRANSPORT = "framedTransport";
+    public static final String THRIFT_PROTOCOL = "thriftProtocol";
+    public static final String HEARTBEAT_INTERVAL_MS = "heartbeatIntervalMS";
+    public static final String LOAD_BALANCING_STRATEGY = "loadBalancingStrategy";
+    public static final String SPOOL_DIRECTORY = "spoolDirectory";
+    public static final String SPOOL_SEGMENT_SIZE = "spoolSegmentSize";
+    public static final String SPOOL_MAX_SEGMENTS = "spoolMaxSegments";
+    public static final String SPOOL_DRAIN_RATE = "spoolDrainRate";
+    public static final String PARTITION_KEY = "partitionKey";
+    public static final String ADAPTIVE_BATCHING = "adaptiveBatching";
+    public static final String MAX_BATCH_LINGER_MS = "maxBatchLingerMS";
+    public static final String MAX_BATCH_BYTES = "maxBatchBytes";
 
 
 
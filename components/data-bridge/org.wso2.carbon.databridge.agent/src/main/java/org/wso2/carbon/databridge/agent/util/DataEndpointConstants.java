@@ -43,6 +43,24 @@ public class DataEndpointConstants {
     public static final String SYNC_STRATEGY = "sync";
     public static final String ASYNC_STRATEGY = "async";
 
+    public static final String BLOCKING_WAIT_STRATEGY = "blocking";
+    public static final String SLEEPING_WAIT_STRATEGY = "sleeping";
+    public static final String YIELDING_WAIT_STRATEGY = "yielding";
+    public static final String BUSY_SPIN_WAIT_STRATEGY = "busySpin";
+    public static final String TIMEOUT_BLOCKING_WAIT_STRATEGY = "timeoutBlocking";
+
+    public static final String SINGLE_PRODUCER_TYPE = "single";
+    public static final String MULTI_PRODUCER_TYPE = "multi";
+
+    public static final String NO_COMPRESSION = "none";
+    public static final String DEFLATE_COMPRESSION = "deflate";
+
+    public static final String BINARY_THRIFT_PROTOCOL = "binary";
+    public static final String COMPACT_THRIFT_PROTOCOL = "compact";
+
+    public static final String ROUND_ROBIN_LOAD_BALANCING = "roundRobin";
+    public static final String LATENCY_WEIGHTED_LOAD_BALANCING = "latencyWeighted";
+
     public static final String DATA_AGENT_CONFIG_NAMESPACE = "data.agent.config";
 
 }
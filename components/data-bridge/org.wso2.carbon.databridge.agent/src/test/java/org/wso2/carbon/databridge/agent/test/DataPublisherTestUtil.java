@@ -17,10 +17,51 @@
 */
 package org.wso2.carbon.databridge.agent.test;
 
+import org.wso2.carbon.databridge.commons.Event;
+import org.wso2.carbon.databridge.commons.utils.DataBridgeCommonsUtils;
+
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 public class DataPublisherTestUtil {
     public static final String LOCAL_HOST = "localhost";
+    public static final String STREAM_NAME = "org.wso2.esb.MediatorStatistics";
+    public static final String VERSION = "1.0.0";
+    public static final String STREAM_DEFN = "{" +
+            "  'name':'" + STREAM_NAME + "'," +
+            "  'version':'" + VERSION + "'," +
+            "  'nickName': 'Stock Quote Information'," +
+            "  'description': 'Some Desc'," +
+            "  'tags':['foo', 'bar']," +
+            "  'metaData':[" +
+            "          {'name':'ipAdd','type':'STRING'}" +
+            "  ]," +
+            "  'payloadData':[" +
+            "          {'name':'symbol','type':'STRING'}," +
+            "          {'name':'price','type':'DOUBLE'}," +
+            "          {'name':'volume','type':'INT'}," +
+            "          {'name':'max','type':'DOUBLE'}," +
+            "          {'name':'min','type':'Double'}" +
+            "  ]" +
+            "}";
+    private static final String DATA_AGENT_CONFIG_FILE_NAME = "data.agent.config.yaml";
+    private static final String DATA_BRIDGE_CONFIG_FILE_NAME = "databridge.config.yaml";
+    private static final String DATA_BRIDGE_CONFIG_NAMESPACE = "databridge.config";
+    private static final long EVENT_CHECK_INTERVAL_MS = 10;
+
+    /**
+     * A test server, which counts the events it received.
+     */
+    public interface EventCounter {
+        int getNumberOfEventsReceived();
+    }
 
     public static void setTrustStoreParams() {
         File filePath = new File("src" + File.separator + "test" + File.separator + "resources");
@@ -69,7 +110,131 @@ public class DataPublisherTestUtil {
         return filePath.getAbsolutePath() + File.separator + fileName;
     }
 
+    /**
+     * Writes a copy of data.agent.config.yaml with a single option set for the named agent, so that a test of an
+     * option does not need a copy of the whole configuration of its own.
+     *
+     * @return the path of the copy, which is deleted on exit
+     */
+    public static String getDataAgentConfigPath(String agentName, String option, String value) throws IOException {
+        return getDataAgentConfigPath(agentName, Collections.singletonMap(option, value));
+    }
+
+    /**
+     * Writes a copy of data.agent.config.yaml with the given options set for the named agent, replacing the values
+     * the agent already has for them.
+     *
+     * @return the path of the copy, which is deleted on exit
+     */
+    public static String getDataAgentConfigPath(String agentName, Map<String, String> options) throws IOException {
+        List<String> lines = readConfig(getDataAgentConfigPath(DATA_AGENT_CONFIG_FILE_NAME));
+        List<String> configLines = new ArrayList<>(lines.size() + options.size());
+        boolean inAgent = false;
+        boolean agentFound = false;
+        for (String line : lines) {
+            String trimmedLine = line.trim();
+            if (trimmedLine.startsWith("- ") || trimmedLine.equals("-")) {
+                inAgent = false;
+            }
+            if (inAgent && options.containsKey(getOption(trimmedLine))) {
+                continue;
+            }
+            configLines.add(line);
+            if (trimmedLine.equals("name: " + agentName)) {
+                String indent = line.substring(0, line.indexOf("name:"));
+                for (Map.Entry<String, String> option : options.entrySet()) {
+                    configLines.add(indent + option.getKey() + ": " + option.getValue());
+                }
+                inAgent = true;
+                agentFound = true;
+            }
+        }
+        if (!agentFound) {
+            throw new IllegalArgumentException("No agent named " + agentName + " in " + DATA_AGENT_CONFIG_FILE_NAME);
+        }
+        return writeConfig(configLines, DATA_AGENT_CONFIG_FILE_NAME);
+    }
+
+    /**
+     * Writes a copy of databridge.config.yaml with the given options set, replacing their values in the original.
+     *
+     * @return the path of the copy, which is deleted on exit
+     */
+    public static String getDataBridgeConfigPath(Map<String, String> options) throws IOException {
+        List<String> lines = readConfig(getDataBridgeConfigPath(DATA_BRIDGE_CONFIG_FILE_NAME));
+        List<String> configLines = new ArrayList<>(lines.size() + options.size());
+        for (String line : lines) {
+            //The options are the top level entries of databridge.config, hence indented by two spaces
+            if (line.startsWith("  ") && !line.startsWith("   ") && options.containsKey(getOption(line.trim()))) {
+                continue;
+            }
+            configLines.add(line);
+            if (line.startsWith(DATA_BRIDGE_CONFIG_NAMESPACE + ":")) {
+                for (Map.Entry<String, String> option : options.entrySet()) {
+                    configLines.add("  " + option.getKey() + ": " + option.getValue());
+                }
+            }
+        }
+        return writeConfig(configLines, DATA_BRIDGE_CONFIG_FILE_NAME);
+    }
+
+    private static String getOption(String configLine) {
+        int separator = configLine.indexOf(':');
+        return configLine.startsWith("#") || separator < 0 ? null : configLine.substring(0, separator);
+    }
+
+    private static List<String> readConfig(String path) throws IOException {
+        return Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8);
+    }
+
+    private static String writeConfig(List<String> configLines, String fileName) throws IOException {
+        File configFile = File.createTempFile("test-", "." + fileName);
+        configFile.deleteOnExit();
+        Files.write(configFile.toPath(), configLines, StandardCharsets.UTF_8);
+        return configFile.getAbsolutePath();
+    }
+
+    /**
+     * Waits until the servers together received the expected number of events, or the timeout elapses, so that a
+     * test only waits as long as the events take to arrive.
+     */
+    public static void waitForEvents(int expectedEvents, long timeoutMS, EventCounter... servers) {
+        long stopTime = System.currentTimeMillis() + timeoutMS;
+        while (getNumberOfEventsReceived(servers) < expectedEvents && System.currentTimeMillis() < stopTime) {
+            try {
+                Thread.sleep(EVENT_CHECK_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static int getNumberOfEventsReceived(EventCounter... servers) {
+        int eventsReceived = 0;
+        for (EventCounter server : servers) {
+            eventsReceived += server.getNumberOfEventsReceived();
+        }
+        return eventsReceived;
+    }
+
+    /**
+     * @return an event of the stream defined by {@link #STREAM_DEFN}, with the given volume
+     */
+    public static Event createEvent(int volume) {
+        Event event = new Event();
+        event.setStreamId(DataBridgeCommonsUtils.generateStreamId(STREAM_NAME, VERSION));
+        event.setMetaData(new Object[]{"127.0.0.1"});
+        event.setCorrelationData(null);
+        event.setPayloadData(new Object[]{"WSO2", 123.4, volume, 12.4, 1.3});
+        return event;
+    }
+
     public static String getDataBridgeConfigPath() {
+        return getDataBridgeConfigPath(DATA_BRIDGE_CONFIG_FILE_NAME);
+    }
+
+    public static String getDataBridgeConfigPath(String fileName) {
         File filePath = new File("src" + File.separator + "test" + File.separator + "resources");
         if (!filePath.exists()) {
             filePath = new File("components" + File.separator + "data-bridge" + File.separator + "org.wso2.carbon.databridge.agent" + File.separator + "src" + File.separator + "test" + File.separator + "resources");
@@ -80,7 +245,7 @@ public class DataPublisherTestUtil {
         if (!filePath.exists()) {
             filePath = new File("test" + File.separator + "resources");
         }
-        return filePath.getAbsolutePath() + File.separator + "databridge.config.yaml";
+        return filePath.getAbsolutePath() + File.separator + fileName;
     }
 
 }
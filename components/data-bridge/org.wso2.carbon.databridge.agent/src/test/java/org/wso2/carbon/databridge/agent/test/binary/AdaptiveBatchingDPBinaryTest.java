@@ -0,0 +1,121 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.agent.test.binary;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.databridge.agent.AgentHolder;
+import org.wso2.carbon.databridge.agent.DataPublisher;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAgentConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAuthenticationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointException;
+import org.wso2.carbon.databridge.agent.test.DataPublisherTestUtil;
+import org.wso2.carbon.databridge.commons.Credentials;
+import org.wso2.carbon.databridge.commons.Event;
+import org.wso2.carbon.databridge.commons.StreamDefinition;
+import org.wso2.carbon.databridge.commons.exception.MalformedStreamDefinitionException;
+import org.wso2.carbon.databridge.commons.exception.TransportException;
+import org.wso2.carbon.databridge.core.AgentCallback;
+import org.wso2.carbon.databridge.core.exception.DataBridgeException;
+import org.wso2.carbon.databridge.core.exception.StreamDefinitionStoreException;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AdaptiveBatchingDPBinaryTest {
+    @BeforeClass
+    public static void init() {
+        DataPublisherTestUtil.setKeyStoreParams();
+        DataPublisherTestUtil.setTrustStoreParams();
+    }
+
+    @AfterClass
+    public static void stop() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException {
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://localhost:9687",
+                "ssl://localhost:9787", "admin", "admin");
+        dataPublisher.shutdownWithAgent();
+    }
+
+    @Test
+    public void testAdaptiveBatching() throws DataEndpointAuthenticationException,
+            DataEndpointAgentConfigurationException, TransportException,
+            DataEndpointException, DataEndpointConfigurationException,
+            MalformedStreamDefinitionException, DataBridgeException,
+            StreamDefinitionStoreException, IOException {
+        BinaryTestServer testServer = new BinaryTestServer();
+        testServer.start(9690, 9790);
+        testServer.addStreamDefinition(DataPublisherTestUtil.STREAM_DEFN);
+        final AtomicInteger receivedBundles = new AtomicInteger();
+        testServer.subscribe(new AgentCallback() {
+            @Override
+            public void definedStream(StreamDefinition streamDefinition) {
+            }
+
+            @Override
+            public void removeStream(StreamDefinition streamDefinition) {
+            }
+
+            @Override
+            public void receive(List<Event> eventList, Credentials credentials) {
+                receivedBundles.incrementAndGet();
+            }
+        });
+        Map<String, String> adaptiveBatchingOptions = new HashMap<>();
+        adaptiveBatchingOptions.put("adaptiveBatching", "true");
+        adaptiveBatchingOptions.put("maxBatchLingerMS", "50");
+        AgentHolder.setConfigPath(DataPublisherTestUtil.getDataAgentConfigPath("Binary", adaptiveBatchingOptions));
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://" + hostName + ":9690",
+                "ssl://" + hostName + ":9790", "admin", "admin");
+        Event event = DataPublisherTestUtil.createEvent(2);
+
+        //Wait for the connection with a first event, as the events would otherwise be queued meanwhile
+        dataPublisher.publish(event);
+        DataPublisherTestUtil.waitForEvents(1, 10000, testServer);
+        receivedBundles.set(0);
+
+        //Events published apart are held for the linger time, and sent together instead of one by one
+        int numberOfSparseEvents = 20;
+        for (int i = 0; i < numberOfSparseEvents; i++) {
+            dataPublisher.publish(event);
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+            }
+        }
+        DataPublisherTestUtil.waitForEvents(1 + numberOfSparseEvents, 10000, testServer);
+        Assert.assertEquals(testServer.getNumberOfEventsReceived(), 1 + numberOfSparseEvents);
+        Assert.assertTrue(receivedBundles.get() < numberOfSparseEvents / 2,
+                "Sparse events were sent in " + receivedBundles.get() + " bundles");
+
+        int numberOfEventsSent = 100000;
+        for (int i = 0; i < numberOfEventsSent; i++) {
+            dataPublisher.publish(event);
+        }
+        DataPublisherTestUtil.waitForEvents(1 + numberOfSparseEvents + numberOfEventsSent, 10000, testServer);
+        dataPublisher.shutdown();
+        Assert.assertEquals(testServer.getNumberOfEventsReceived(), 1 + numberOfSparseEvents + numberOfEventsSent);
+        testServer.stop();
+    }
+}
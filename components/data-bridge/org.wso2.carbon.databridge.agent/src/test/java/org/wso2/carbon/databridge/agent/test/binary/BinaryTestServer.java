@@ -32,6 +32,7 @@ import org.wso2.carbon.databridge.core.definitionstore.InMemoryStreamDefinitionS
 import org.wso2.carbon.databridge.core.exception.DataBridgeException;
 import org.wso2.carbon.databridge.core.exception.StreamDefinitionStoreException;
 import org.wso2.carbon.databridge.core.internal.authentication.AuthenticationHandler;
+import org.wso2.carbon.databridge.receiver.binary.BinaryDataReceiverConstants;
 import org.wso2.carbon.databridge.receiver.binary.internal.BinaryDataReceiver;
 import org.wso2.carbon.databridge.receiver.binary.conf.BinaryDataReceiverConfiguration;
 
@@ -40,12 +41,16 @@ import java.net.SocketException;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
-public class BinaryTestServer {
+public class BinaryTestServer implements DataPublisherTestUtil.EventCounter {
     Logger log = LoggerFactory.getLogger(BinaryTestServer.class);
     BinaryDataReceiver binaryDataReceiver;
+    DataBridge databridge;
     InMemoryStreamDefinitionStore streamDefinitionStore;
     AtomicInteger numberOfEventsReceived;
+    volatile Event lastReceivedEvent;
     RestarterThread restarterThread;
+    String dataBridgeConfigPath = DataPublisherTestUtil.getDataBridgeConfigPath();
+    int tcpReceiverIOThreadCount = BinaryDataReceiverConstants.DEFAULT_TCP_RECEIVER_IO_THREAD_COUNT;
 
     public void startTestServer() throws DataBridgeException, InterruptedException, IOException {
         BinaryTestServer testServer = new BinaryTestServer();
@@ -73,10 +78,30 @@ public class BinaryTestServer {
     }
 
     public void start(int tcpPort, int securePort) throws DataBridgeException, IOException {
+        start(tcpPort, securePort, BinaryDataReceiverConstants.DEFAULT_TCP_RECEIVER_MODE);
+    }
+
+    public void start(int tcpPort, int securePort, String tcpReceiverMode) throws DataBridgeException, IOException {
+        start(tcpPort, securePort, tcpReceiverMode, false);
+    }
+
+    public void start(int tcpPort, int securePort, String tcpReceiverMode, boolean messageBufferPooling)
+            throws DataBridgeException, IOException {
+        start(tcpPort, securePort, tcpReceiverMode, messageBufferPooling, false);
+    }
+
+    public void start(int tcpPort, int securePort, String tcpReceiverMode, boolean messageBufferPooling,
+                      boolean lazyEventDecoding) throws DataBridgeException, IOException {
+        start(tcpPort, securePort, tcpReceiverMode, messageBufferPooling, lazyEventDecoding, false);
+    }
+
+    public void start(int tcpPort, int securePort, String tcpReceiverMode, boolean messageBufferPooling,
+                      boolean lazyEventDecoding, boolean precompiledEventDecoding)
+            throws DataBridgeException, IOException {
         DataPublisherTestUtil.setKeyStoreParams();
         streamDefinitionStore = getStreamDefinitionStore();
         numberOfEventsReceived = new AtomicInteger(0);
-        DataBridge databridge = new DataBridge(new AuthenticationHandler() {
+        databridge = new DataBridge(new AuthenticationHandler() {
             @Override
             public boolean authenticate(String userName,
                                         String password) {
@@ -92,9 +117,14 @@ public class BinaryTestServer {
             public void destroyContext(AgentSession agentSession) {
 
             }
-        }, streamDefinitionStore, DataPublisherTestUtil.getDataBridgeConfigPath());
+        }, streamDefinitionStore, dataBridgeConfigPath);
 
         BinaryDataReceiverConfiguration dataReceiverConfiguration = new BinaryDataReceiverConfiguration(securePort, tcpPort);
+        dataReceiverConfiguration.setTCPReceiverMode(tcpReceiverMode);
+        dataReceiverConfiguration.setTCPReceiverIOThreadCount(tcpReceiverIOThreadCount);
+        dataReceiverConfiguration.setMessageBufferPooling(messageBufferPooling);
+        dataReceiverConfiguration.setLazyEventDecoding(lazyEventDecoding);
+        dataReceiverConfiguration.setPrecompiledEventDecoding(precompiledEventDecoding);
 
         binaryDataReceiver = new BinaryDataReceiver(dataReceiverConfiguration, databridge);
         databridge.subscribe(new AgentCallback() {
@@ -112,6 +142,7 @@ public class BinaryTestServer {
             @Override
             public void receive(List<Event> eventList, Credentials credentials) {
                 numberOfEventsReceived.addAndGet(eventList.size());
+                lastReceivedEvent = eventList.get(eventList.size() - 1);
                 log.info("Received events : " + numberOfEventsReceived);
 //                log.info("eventListSize=" + eventList.size() + " eventList " + eventList + " for username " + credentials.getUsername());
             }
@@ -124,11 +155,32 @@ public class BinaryTestServer {
         log.info("Test Server Started");
     }
 
+    public void subscribe(AgentCallback agentCallback) {
+        databridge.subscribe(agentCallback);
+    }
+
+    public void setDataBridgeConfigPath(String dataBridgeConfigPath) {
+        this.dataBridgeConfigPath = dataBridgeConfigPath;
+    }
+
+    public void setTCPReceiverIOThreadCount(int tcpReceiverIOThreadCount) {
+        this.tcpReceiverIOThreadCount = tcpReceiverIOThreadCount;
+    }
+
+    @Override
     public int getNumberOfEventsReceived() {
         if (numberOfEventsReceived != null) return numberOfEventsReceived.get();
         else return 0;
     }
 
+    public Event getLastReceivedEvent() {
+        return lastReceivedEvent;
+    }
+
+    public BinaryDataReceiver getBinaryDataReceiver() {
+        return binaryDataReceiver;
+    }
+
     public void resetReceivedEvents() {
         numberOfEventsReceived.set(0);
     }
@@ -0,0 +1,233 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.agent.test.binary;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.databridge.agent.AgentHolder;
+import org.wso2.carbon.databridge.agent.DataPublisher;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAgentConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAuthenticationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointException;
+import org.wso2.carbon.databridge.agent.test.DataPublisherTestUtil;
+import org.wso2.carbon.databridge.commons.Event;
+import org.wso2.carbon.databridge.commons.exception.MalformedStreamDefinitionException;
+import org.wso2.carbon.databridge.commons.exception.TransportException;
+import org.wso2.carbon.databridge.commons.utils.DataBridgeCommonsUtils;
+import org.wso2.carbon.databridge.core.exception.DataBridgeException;
+import org.wso2.carbon.databridge.core.exception.StreamDefinitionStoreException;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CompressedDPBinaryTest {
+    private static final String SECOND_STREAM_NAME = "org.wso2.esb.ProxyStatistics";
+    private BinaryTestServer testServer;
+
+    @BeforeClass
+    public static void init() {
+        DataPublisherTestUtil.setKeyStoreParams();
+        DataPublisherTestUtil.setTrustStoreParams();
+    }
+
+    @AfterClass
+    public static void stop() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException {
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://localhost:9687",
+                "ssl://localhost:9787", "admin", "admin");
+        dataPublisher.shutdownWithAgent();
+    }
+
+    private synchronized void startServer(int port, int securePort, String tcpReceiverMode)
+            throws DataBridgeException, StreamDefinitionStoreException, MalformedStreamDefinitionException,
+            IOException {
+        testServer = new BinaryTestServer();
+        testServer.start(port, securePort, tcpReceiverMode);
+        testServer.addStreamDefinition(DataPublisherTestUtil.STREAM_DEFN);
+        testServer.addStreamDefinition(DataPublisherTestUtil.STREAM_DEFN.replace(DataPublisherTestUtil.STREAM_NAME,
+                SECOND_STREAM_NAME));
+    }
+
+    @Test
+    public void testCompressedPublishWithArbitraryEventFields() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException, MalformedStreamDefinitionException, DataBridgeException, StreamDefinitionStoreException, IOException {
+        publishCompressed(9667, 9767, 9606, "blocking");
+    }
+
+    @Test
+    public void testCompressedPublishWithNioReceiver() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException, MalformedStreamDefinitionException, DataBridgeException, StreamDefinitionStoreException, IOException {
+        publishCompressed(9668, 9768, 9607, "nio");
+    }
+
+    private void publishCompressed(int port, int securePort, int proxyPort, String tcpReceiverMode) throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException, MalformedStreamDefinitionException, DataBridgeException, StreamDefinitionStoreException, IOException {
+        startServer(port, securePort, tcpReceiverMode);
+        FrameCountingProxy proxy = new FrameCountingProxy(proxyPort, port);
+        Map<String, String> options = new HashMap<String, String>();
+        options.put("publishWindowSize", "1");
+        options.put("compression", "deflate");
+        options.put("compressionThreshold", "1024");
+        AgentHolder.setConfigPath(DataPublisherTestUtil.getDataAgentConfigPath("Binary", options));
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        //The events are sent through the proxy, which counts the compressed messages on their way to the receiver
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://" + hostName + ":" + proxyPort,
+                "ssl://" + hostName + ":" + securePort, "admin", "admin");
+        Event event = DataPublisherTestUtil.createEvent(2);
+        Map<String, String> arbitrary = new HashMap<String, String>();
+        arbitrary.put("test", "testValue");
+        event.setArbitraryDataMap(arbitrary);
+        Event secondEvent = DataPublisherTestUtil.createEvent(2);
+        secondEvent.setStreamId(DataBridgeCommonsUtils.generateStreamId(SECOND_STREAM_NAME,
+                DataPublisherTestUtil.VERSION));
+
+        int numberOfEventsSent = 10000;
+        for (int i = 0; i < numberOfEventsSent; i++) {
+            dataPublisher.publish(i % 2 == 0 ? event : secondEvent);
+        }
+
+        DataPublisherTestUtil.waitForEvents(numberOfEventsSent, 10000, testServer);
+        dataPublisher.shutdown();
+        proxy.stop();
+        Assert.assertEquals(testServer.getNumberOfEventsReceived(), numberOfEventsSent);
+        Assert.assertTrue(proxy.compressedMessages.get() > 0, "No compressed message was sent");
+        Assert.assertTrue(proxy.compressedBytes.get() < proxy.uncompressedBytes.get() / 2,
+                "Messages of " + proxy.uncompressedBytes.get() + " bytes were compressed to " +
+                        proxy.compressedBytes.get() + " bytes");
+        testServer.resetReceivedEvents();
+        testServer.stop();
+    }
+
+    /**
+     * Forwards the connections of the publisher to the receiver, reading the messages sent to the receiver to count
+     * the compressed ones (type 6) and the sizes of their contents before and after compression.
+     */
+    private static class FrameCountingProxy implements Runnable {
+        private final ServerSocket serverSocket;
+        private final int targetPort;
+        private final AtomicLong compressedMessages = new AtomicLong();
+        private final AtomicLong compressedBytes = new AtomicLong();
+        private final AtomicLong uncompressedBytes = new AtomicLong();
+
+        FrameCountingProxy(int port, int targetPort) throws IOException {
+            this.serverSocket = new ServerSocket(port);
+            this.targetPort = targetPort;
+            Thread acceptor = new Thread(this);
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        @Override
+        public void run() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    final Socket publisherSocket = serverSocket.accept();
+                    final Socket receiverSocket = new Socket(DataPublisherTestUtil.LOCAL_HOST, targetPort);
+                    startDaemon(new Runnable() {
+                        @Override
+                        public void run() {
+                            forwardMessages(publisherSocket, receiverSocket);
+                        }
+                    });
+                    startDaemon(new Runnable() {
+                        @Override
+                        public void run() {
+                            forwardResponses(receiverSocket, publisherSocket);
+                        }
+                    });
+                } catch (IOException e) {
+                    //The proxy is stopped
+                }
+            }
+        }
+
+        private void forwardMessages(Socket publisherSocket, Socket receiverSocket) {
+            try {
+                DataInputStream in = new DataInputStream(publisherSocket.getInputStream());
+                OutputStream out = receiverSocket.getOutputStream();
+                while (true) {
+                    int messageType = in.read();
+                    if (messageType == -1) {
+                        break;
+                    }
+                    int messageSize = in.readInt();
+                    byte[] message = new byte[messageSize];
+                    in.readFully(message);
+                    if (messageType == 6) {
+                        compressedMessages.incrementAndGet();
+                        compressedBytes.addAndGet(messageSize - 4);
+                        uncompressedBytes.addAndGet(ByteBuffer.wrap(message).getInt());
+                    }
+                    ByteBuffer header = ByteBuffer.allocate(5);
+                    header.put((byte) messageType);
+                    header.putInt(messageSize);
+                    out.write(header.array());
+                    out.write(message);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                //The connection is closed
+            } finally {
+                close(publisherSocket, receiverSocket);
+            }
+        }
+
+        private void forwardResponses(Socket receiverSocket, Socket publisherSocket) {
+            try {
+                InputStream in = receiverSocket.getInputStream();
+                OutputStream out = publisherSocket.getOutputStream();
+                byte[] buffer = new byte[8192];
+                int length;
+                while ((length = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, length);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                //The connection is closed
+            } finally {
+                close(publisherSocket, receiverSocket);
+            }
+        }
+
+        private static void startDaemon(Runnable runnable) {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private static void close(Socket... sockets) {
+            for (Socket socket : sockets) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        void stop() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
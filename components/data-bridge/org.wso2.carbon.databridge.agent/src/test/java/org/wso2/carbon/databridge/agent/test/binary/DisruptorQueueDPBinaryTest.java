@@ -0,0 +1,111 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.agent.test.binary;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.databridge.agent.AgentHolder;
+import org.wso2.carbon.databridge.agent.DataPublisher;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAgentConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAuthenticationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointException;
+import org.wso2.carbon.databridge.agent.test.DataPublisherTestUtil;
+import org.wso2.carbon.databridge.commons.Event;
+import org.wso2.carbon.databridge.commons.exception.MalformedStreamDefinitionException;
+import org.wso2.carbon.databridge.commons.exception.TransportException;
+import org.wso2.carbon.databridge.commons.utils.DataBridgeCommonsUtils;
+import org.wso2.carbon.databridge.core.exception.DataBridgeException;
+import org.wso2.carbon.databridge.core.exception.StreamDefinitionStoreException;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class DisruptorQueueDPBinaryTest {
+    private static final String SECOND_STREAM_NAME = "org.wso2.esb.ProxyStatistics";
+    private BinaryTestServer testServer;
+    private String agentConfigFileName = "data.agent.config.yaml";
+
+    @BeforeClass
+    public static void init() {
+        DataPublisherTestUtil.setKeyStoreParams();
+        DataPublisherTestUtil.setTrustStoreParams();
+    }
+
+    @AfterClass
+    public static void stop() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException {
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://localhost:9687",
+                "ssl://localhost:9787", "admin", "admin");
+        dataPublisher.shutdownWithAgent();
+    }
+
+    private synchronized void startServer(int port, int securePort, String tcpReceiverMode,
+                                          boolean messageBufferPooling) throws DataBridgeException, StreamDefinitionStoreException, MalformedStreamDefinitionException,
+            IOException {
+        testServer = new BinaryTestServer();
+        Map<String, String> disruptorQueueOptions = new HashMap<>();
+        disruptorQueueOptions.put("eventQueueType", "disruptor");
+        disruptorQueueOptions.put("maxEventBufferCapacity", "100000");
+        testServer.setDataBridgeConfigPath(DataPublisherTestUtil.getDataBridgeConfigPath(disruptorQueueOptions));
+        testServer.start(port, securePort, tcpReceiverMode, messageBufferPooling);
+        testServer.addStreamDefinition(DataPublisherTestUtil.STREAM_DEFN);
+        testServer.addStreamDefinition(DataPublisherTestUtil.STREAM_DEFN.replace(DataPublisherTestUtil.STREAM_NAME,
+                SECOND_STREAM_NAME));
+    }
+
+    @Test
+    public void testDisruptorQueueWithArbitraryEventFields() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException, MalformedStreamDefinitionException, DataBridgeException, StreamDefinitionStoreException, IOException {
+        publishToDisruptorQueue(9673, 9773, "blocking", false);
+    }
+
+    @Test
+    public void testDisruptorQueueWithPooledBuffers() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException, MalformedStreamDefinitionException, DataBridgeException, StreamDefinitionStoreException, IOException {
+        publishToDisruptorQueue(9674, 9774, "nio", true);
+    }
+
+    private void publishToDisruptorQueue(int port, int securePort, String tcpReceiverMode,
+                                         boolean messageBufferPooling) throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException, MalformedStreamDefinitionException, DataBridgeException, StreamDefinitionStoreException, IOException {
+        startServer(port, securePort, tcpReceiverMode, messageBufferPooling);
+        AgentHolder.setConfigPath(DataPublisherTestUtil.getDataAgentConfigPath(agentConfigFileName));
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://" + hostName + ":" + port,
+                "ssl://" + hostName + ":" + securePort, "admin", "admin");
+        Event event = DataPublisherTestUtil.createEvent(2);
+        Map<String, String> arbitrary = new HashMap<String, String>();
+        arbitrary.put("test", "testValue");
+        event.setArbitraryDataMap(arbitrary);
+
+        Event secondEvent = DataPublisherTestUtil.createEvent(2);
+        secondEvent.setStreamId(DataBridgeCommonsUtils.generateStreamId(SECOND_STREAM_NAME,
+                DataPublisherTestUtil.VERSION));
+
+        int numberOfEventsSent = 10000;
+        for (int i = 0; i < numberOfEventsSent; i++) {
+            dataPublisher.publish(i % 2 == 0 ? event : secondEvent);
+        }
+
+        DataPublisherTestUtil.waitForEvents(numberOfEventsSent, 10000, testServer);
+        dataPublisher.shutdown();
+        Assert.assertEquals(testServer.getNumberOfEventsReceived(), numberOfEventsSent);
+        testServer.resetReceivedEvents();
+        testServer.stop();
+    }
+}
@@ -0,0 +1,188 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.agent.test.binary;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.databridge.agent.AgentHolder;
+import org.wso2.carbon.databridge.agent.DataPublisher;
+import org.wso2.carbon.databridge.agent.EventSlot;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAgentConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAuthenticationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointException;
+import org.wso2.carbon.databridge.agent.test.DataPublisherTestUtil;
+import org.wso2.carbon.databridge.commons.Credentials;
+import org.wso2.carbon.databridge.commons.Event;
+import org.wso2.carbon.databridge.commons.StreamDefinition;
+import org.wso2.carbon.databridge.commons.exception.MalformedStreamDefinitionException;
+import org.wso2.carbon.databridge.commons.exception.TransportException;
+import org.wso2.carbon.databridge.commons.utils.DataBridgeCommonsUtils;
+import org.wso2.carbon.databridge.core.AgentCallback;
+import org.wso2.carbon.databridge.core.exception.DataBridgeException;
+import org.wso2.carbon.databridge.core.exception.StreamDefinitionStoreException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class EventSlotDPBinaryTest {
+    private String agentConfigFileName = "data.agent.config.yaml";
+
+    @BeforeClass
+    public static void init() {
+        DataPublisherTestUtil.setKeyStoreParams();
+        DataPublisherTestUtil.setTrustStoreParams();
+    }
+
+    @AfterClass
+    public static void stop() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException {
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://localhost:9687",
+                "ssl://localhost:9787", "admin", "admin");
+        dataPublisher.shutdownWithAgent();
+    }
+
+    @Test
+    public void testClaimAndCommitEventSlots() throws DataEndpointAuthenticationException,
+            DataEndpointAgentConfigurationException, TransportException,
+            DataEndpointException, DataEndpointConfigurationException,
+            MalformedStreamDefinitionException, DataBridgeException,
+            StreamDefinitionStoreException, IOException {
+        BinaryTestServer testServer = new BinaryTestServer();
+        testServer.start(9689, 9789);
+        testServer.addStreamDefinition(DataPublisherTestUtil.STREAM_DEFN);
+        final AtomicLong volumeSum = new AtomicLong();
+        final AtomicInteger eventsWithArbitraryData = new AtomicInteger();
+        testServer.subscribe(new AgentCallback() {
+            @Override
+            public void definedStream(StreamDefinition streamDefinition) {
+            }
+
+            @Override
+            public void removeStream(StreamDefinition streamDefinition) {
+            }
+
+            @Override
+            public void receive(List<Event> eventList, Credentials credentials) {
+                for (Event receivedEvent : eventList) {
+                    volumeSum.addAndGet((Integer) receivedEvent.getPayloadData()[2]);
+                    if (receivedEvent.getArbitraryDataMap() != null &&
+                            "slot".equals(receivedEvent.getArbitraryDataMap().get("source"))) {
+                        eventsWithArbitraryData.incrementAndGet();
+                    }
+                }
+            }
+        });
+        AgentHolder.setConfigPath(DataPublisherTestUtil.getDataAgentConfigPath(agentConfigFileName));
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://" + hostName + ":9689",
+                "ssl://" + hostName + ":9789", "admin", "admin");
+        String streamId = DataBridgeCommonsUtils.generateStreamId(DataPublisherTestUtil.STREAM_NAME,
+                DataPublisherTestUtil.VERSION);
+
+        int numberOfEventsSent = 10000;
+        long expectedVolumeSum = 0;
+        for (int i = 0; i < numberOfEventsSent; i++) {
+            EventSlot eventSlot = dataPublisher.claim(streamId, System.currentTimeMillis(), 1, 0, 5);
+            eventSlot.setMetaData(0, "127.0.0.1");
+            eventSlot.setPayloadData(0, "WSO2");
+            eventSlot.setPayloadData(1, 123.4);
+            eventSlot.setPayloadData(2, i);
+            eventSlot.setPayloadData(3, 12.4);
+            eventSlot.setPayloadData(4, 1.3);
+            if (i % 2 == 0) {
+                eventSlot.setArbitraryData("source", "slot");
+            }
+            eventSlot.commit();
+            expectedVolumeSum += i;
+        }
+        DataPublisherTestUtil.waitForEvents(numberOfEventsSent, 10000, testServer);
+        dataPublisher.shutdown();
+        Assert.assertEquals(testServer.getNumberOfEventsReceived(), numberOfEventsSent);
+        Assert.assertEquals(volumeSum.get(), expectedVolumeSum);
+        Assert.assertEquals(eventsWithArbitraryData.get(), numberOfEventsSent / 2);
+        Assert.assertEquals(testServer.getLastReceivedEvent().getMetaData()[0], "127.0.0.1");
+        testServer.stop();
+    }
+
+    @Test
+    public void testAbortEventSlots() throws DataEndpointAuthenticationException,
+            DataEndpointAgentConfigurationException, TransportException,
+            DataEndpointException, DataEndpointConfigurationException,
+            MalformedStreamDefinitionException, DataBridgeException,
+            StreamDefinitionStoreException, IOException {
+        BinaryTestServer testServer = new BinaryTestServer();
+        testServer.start(9691, 9791);
+        testServer.addStreamDefinition(DataPublisherTestUtil.STREAM_DEFN);
+        final AtomicLong volumeSum = new AtomicLong();
+        testServer.subscribe(new AgentCallback() {
+            @Override
+            public void definedStream(StreamDefinition streamDefinition) {
+            }
+
+            @Override
+            public void removeStream(StreamDefinition streamDefinition) {
+            }
+
+            @Override
+            public void receive(List<Event> eventList, Credentials credentials) {
+                for (Event receivedEvent : eventList) {
+                    volumeSum.addAndGet((Integer) receivedEvent.getPayloadData()[2]);
+                }
+            }
+        });
+        AgentHolder.setConfigPath(DataPublisherTestUtil.getDataAgentConfigPath(agentConfigFileName));
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://" + hostName + ":9691",
+                "ssl://" + hostName + ":9791", "admin", "admin");
+        String streamId = DataBridgeCommonsUtils.generateStreamId(DataPublisherTestUtil.STREAM_NAME,
+                DataPublisherTestUtil.VERSION);
+
+        int numberOfEventsClaimed = 10000;
+        int numberOfEventsCommitted = 0;
+        long expectedVolumeSum = 0;
+        for (int i = 0; i < numberOfEventsClaimed; i++) {
+            EventSlot eventSlot = dataPublisher.claim(streamId, System.currentTimeMillis(), 1, 0, 5);
+            try {
+                eventSlot.setMetaData(0, "127.0.0.1");
+                eventSlot.setPayloadData(0, "WSO2");
+                eventSlot.setPayloadData(1, 123.4);
+                eventSlot.setPayloadData(2, i);
+                //Every third event is abandoned after it is partly written
+                if (i % 3 == 0) {
+                    continue;
+                }
+                eventSlot.setPayloadData(3, 12.4);
+                eventSlot.setPayloadData(4, 1.3);
+                eventSlot.commit();
+                numberOfEventsCommitted++;
+                expectedVolumeSum += i;
+            } finally {
+                eventSlot.abort();
+            }
+        }
+        DataPublisherTestUtil.waitForEvents(numberOfEventsCommitted, 10000, testServer);
+        dataPublisher.shutdown();
+        Assert.assertEquals(testServer.getNumberOfEventsReceived(), numberOfEventsCommitted);
+        Assert.assertEquals(volumeSum.get(), expectedVolumeSum);
+        testServer.stop();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.agent.test.binary;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.databridge.agent.AgentHolder;
+import org.wso2.carbon.databridge.agent.DataPublisher;
+import org.wso2.carbon.databridge.agent.endpoint.DataEndpoint;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAgentConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAuthenticationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointException;
+import org.wso2.carbon.databridge.agent.test.DataPublisherTestUtil;
+import org.wso2.carbon.databridge.commons.Event;
+import org.wso2.carbon.databridge.commons.exception.MalformedStreamDefinitionException;
+import org.wso2.carbon.databridge.commons.exception.TransportException;
+import org.wso2.carbon.databridge.core.exception.DataBridgeException;
+import org.wso2.carbon.databridge.core.exception.StreamDefinitionStoreException;
+import org.wso2.carbon.databridge.receiver.binary.BinaryDataReceiverConstants;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class HeartbeatDPBinaryTest {
+    @BeforeClass
+    public static void init() {
+        DataPublisherTestUtil.setKeyStoreParams();
+        DataPublisherTestUtil.setTrustStoreParams();
+    }
+
+    @AfterClass
+    public static void stop() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException {
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://localhost:9687",
+                "ssl://localhost:9787", "admin", "admin");
+        dataPublisher.shutdownWithAgent();
+    }
+
+    private synchronized BinaryTestServer startServer(int port, int securePort) throws DataBridgeException,
+            StreamDefinitionStoreException, MalformedStreamDefinitionException, IOException {
+        BinaryTestServer testServer = new BinaryTestServer();
+        testServer.start(port, securePort, BinaryDataReceiverConstants.TCP_RECEIVER_MODE_NIO);
+        testServer.addStreamDefinition(DataPublisherTestUtil.STREAM_DEFN);
+        return testServer;
+    }
+
+    @Test
+    public void testFailoverOnHeartbeat() throws DataEndpointAuthenticationException,
+            DataEndpointAgentConfigurationException, TransportException,
+            DataEndpointException, DataEndpointConfigurationException,
+            MalformedStreamDefinitionException, DataBridgeException,
+            StreamDefinitionStoreException, IOException, InterruptedException {
+        BinaryTestServer primaryServer = startServer(9678, 9778);
+        BinaryTestServer secondaryServer = startServer(9679, 9779);
+        AgentHolder.setConfigPath(DataPublisherTestUtil.getDataAgentConfigPath("Binary", "heartbeatIntervalMS", "200"));
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        DataPublisher dataPublisher = new DataPublisher("Binary",
+                "tcp://" + hostName + ":9678|tcp://" + hostName + ":9679",
+                "ssl://" + hostName + ":9778|ssl://" + hostName + ":9779", "admin", "admin");
+        Event event = DataPublisherTestUtil.createEvent(2);
+
+        int numberOfEventsSent = 1000;
+        for (int i = 0; i < numberOfEventsSent; i++) {
+            dataPublisher.publish(event);
+        }
+        DataPublisherTestUtil.waitForEvents(numberOfEventsSent, 10000, primaryServer);
+        Assert.assertEquals(primaryServer.getNumberOfEventsReceived(), numberOfEventsSent);
+
+        //The closed connections of the primary receiver are only found by the heartbeats, as nothing is sent
+        final CountDownLatch heartbeatFailed = new CountDownLatch(1);
+        AppenderSkeleton heartbeatFailureAppender = new AppenderSkeleton() {
+            @Override
+            protected void append(LoggingEvent loggingEvent) {
+                if (String.valueOf(loggingEvent.getMessage()).startsWith("Heartbeat failed")) {
+                    heartbeatFailed.countDown();
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public boolean requiresLayout() {
+                return false;
+            }
+        };
+        Logger endpointLogger = Logger.getLogger(DataEndpoint.class);
+        endpointLogger.addAppender(heartbeatFailureAppender);
+        try {
+            primaryServer.stop();
+            Assert.assertTrue(heartbeatFailed.await(10, TimeUnit.SECONDS),
+                    "The stopped receiver was not found by a heartbeat before publishing");
+        } finally {
+            endpointLogger.removeAppender(heartbeatFailureAppender);
+        }
+        for (int i = 0; i < numberOfEventsSent; i++) {
+            dataPublisher.publish(event);
+        }
+        DataPublisherTestUtil.waitForEvents(numberOfEventsSent, 10000, secondaryServer);
+        dataPublisher.shutdown();
+        Assert.assertEquals(secondaryServer.getNumberOfEventsReceived(), numberOfEventsSent);
+        secondaryServer.stop();
+    }
+}
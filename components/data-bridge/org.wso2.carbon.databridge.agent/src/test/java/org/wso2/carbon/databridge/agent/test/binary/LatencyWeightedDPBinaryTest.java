@@ -0,0 +1,133 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.agent.test.binary;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.databridge.agent.AgentHolder;
+import org.wso2.carbon.databridge.agent.DataPublisher;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAgentConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAuthenticationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointException;
+import org.wso2.carbon.databridge.agent.test.DataPublisherTestUtil;
+import org.wso2.carbon.databridge.commons.Credentials;
+import org.wso2.carbon.databridge.commons.Event;
+import org.wso2.carbon.databridge.commons.StreamDefinition;
+import org.wso2.carbon.databridge.commons.exception.MalformedStreamDefinitionException;
+import org.wso2.carbon.databridge.commons.exception.TransportException;
+import org.wso2.carbon.databridge.core.AgentCallback;
+import org.wso2.carbon.databridge.core.exception.DataBridgeException;
+import org.wso2.carbon.databridge.core.exception.StreamDefinitionStoreException;
+import org.wso2.carbon.databridge.receiver.binary.BinaryDataReceiverConstants;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LatencyWeightedDPBinaryTest {
+    private static final long SLOW_SERVER_DELAY_MS = 200;
+
+    @BeforeClass
+    public static void init() {
+        DataPublisherTestUtil.setKeyStoreParams();
+        DataPublisherTestUtil.setTrustStoreParams();
+    }
+
+    @AfterClass
+    public static void stop() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException {
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://localhost:9687",
+                "ssl://localhost:9787", "admin", "admin");
+        dataPublisher.shutdownWithAgent();
+    }
+
+    private synchronized BinaryTestServer startServer(int port, int securePort) throws DataBridgeException,
+            StreamDefinitionStoreException, MalformedStreamDefinitionException, IOException {
+        BinaryTestServer testServer = new BinaryTestServer();
+        testServer.start(port, securePort, BinaryDataReceiverConstants.TCP_RECEIVER_MODE_NIO);
+        testServer.addStreamDefinition(DataPublisherTestUtil.STREAM_DEFN);
+        return testServer;
+    }
+
+    private synchronized BinaryTestServer startSlowServer(int port, int securePort) throws DataBridgeException,
+            StreamDefinitionStoreException, MalformedStreamDefinitionException, IOException {
+        BinaryTestServer testServer = new BinaryTestServer();
+        //Keeps few events queued in the slow receiver, so that its slow subscriber soon holds back its acknowledgements
+        Map<String, String> slowQueueOptions = new HashMap<>();
+        slowQueueOptions.put("eventQueueType", "disruptor");
+        slowQueueOptions.put("maxEventBufferCapacity", "100000");
+        testServer.setDataBridgeConfigPath(DataPublisherTestUtil.getDataBridgeConfigPath(slowQueueOptions));
+        testServer.start(port, securePort, BinaryDataReceiverConstants.TCP_RECEIVER_MODE_NIO);
+        testServer.addStreamDefinition(DataPublisherTestUtil.STREAM_DEFN);
+        testServer.subscribe(new AgentCallback() {
+            @Override
+            public void definedStream(StreamDefinition streamDefinition) {
+            }
+
+            @Override
+            public void removeStream(StreamDefinition streamDefinition) {
+            }
+
+            @Override
+            public void receive(List<Event> eventList, Credentials credentials) {
+                try {
+                    Thread.sleep(SLOW_SERVER_DELAY_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        return testServer;
+    }
+
+    @Test
+    public void testLoadBalancedDataEndpoints() throws DataEndpointAuthenticationException,
+            DataEndpointAgentConfigurationException, TransportException,
+            DataEndpointException, DataEndpointConfigurationException,
+            MalformedStreamDefinitionException, DataBridgeException,
+            StreamDefinitionStoreException, IOException {
+        BinaryTestServer slowServer = startSlowServer(9683, 9783);
+        BinaryTestServer fastServer = startServer(9684, 9784);
+        AgentHolder.setConfigPath(DataPublisherTestUtil.getDataAgentConfigPath("Binary", "loadBalancingStrategy",
+                "latencyWeighted"));
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        DataPublisher dataPublisher = new DataPublisher("Binary",
+                "tcp://" + hostName + ":9683,tcp://" + hostName + ":9684",
+                "ssl://" + hostName + ":9783,ssl://" + hostName + ":9784", "admin", "admin");
+        Event event = DataPublisherTestUtil.createEvent(2);
+
+        int numberOfEventsSent = 100000;
+        for (int i = 0; i < numberOfEventsSent; i++) {
+            dataPublisher.publish(event);
+        }
+        DataPublisherTestUtil.waitForEvents(numberOfEventsSent, 60000, slowServer, fastServer);
+        dataPublisher.shutdown();
+        Assert.assertEquals(slowServer.getNumberOfEventsReceived() + fastServer.getNumberOfEventsReceived(),
+                numberOfEventsSent);
+        //Round robin would split the events evenly, whereas the slow server is only tried now and then
+        Assert.assertTrue(slowServer.getNumberOfEventsReceived() > 0);
+        Assert.assertTrue(fastServer.getNumberOfEventsReceived() > 2 * slowServer.getNumberOfEventsReceived(),
+                "Fast server received " + fastServer.getNumberOfEventsReceived() + " events, slow server "
+                        + slowServer.getNumberOfEventsReceived());
+        slowServer.stop();
+        fastServer.stop();
+    }
+}
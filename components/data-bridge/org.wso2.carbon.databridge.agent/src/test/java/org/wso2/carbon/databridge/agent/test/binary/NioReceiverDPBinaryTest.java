@@ -0,0 +1,165 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.agent.test.binary;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.databridge.agent.AgentHolder;
+import org.wso2.carbon.databridge.agent.DataPublisher;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAgentConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAuthenticationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointException;
+import org.wso2.carbon.databridge.agent.test.DataPublisherTestUtil;
+import org.wso2.carbon.databridge.commons.Event;
+import org.wso2.carbon.databridge.commons.exception.MalformedStreamDefinitionException;
+import org.wso2.carbon.databridge.commons.exception.TransportException;
+import org.wso2.carbon.databridge.core.exception.DataBridgeException;
+import org.wso2.carbon.databridge.core.exception.StreamDefinitionStoreException;
+import org.wso2.carbon.databridge.receiver.binary.BinaryDataReceiverConstants;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class NioReceiverDPBinaryTest {
+    private BinaryTestServer testServer;
+    private String agentConfigFileName = "data.agent.config.yaml";
+
+    @BeforeClass
+    public static void init() {
+        DataPublisherTestUtil.setKeyStoreParams();
+        DataPublisherTestUtil.setTrustStoreParams();
+    }
+
+    @AfterClass
+    public static void stop() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException {
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://localhost:9687",
+                "ssl://localhost:9787", "admin", "admin");
+        dataPublisher.shutdownWithAgent();
+    }
+
+    private synchronized void startServer(int port, int securePort) throws DataBridgeException,
+            StreamDefinitionStoreException, MalformedStreamDefinitionException, IOException {
+        startServer(port, securePort, BinaryDataReceiverConstants.DEFAULT_TCP_RECEIVER_IO_THREAD_COUNT);
+    }
+
+    private synchronized void startServer(int port, int securePort, int ioThreadCount) throws DataBridgeException,
+            StreamDefinitionStoreException, MalformedStreamDefinitionException, IOException {
+        testServer = new BinaryTestServer();
+        testServer.setTCPReceiverIOThreadCount(ioThreadCount);
+        testServer.start(port, securePort, BinaryDataReceiverConstants.TCP_RECEIVER_MODE_NIO);
+        testServer.addStreamDefinition(DataPublisherTestUtil.STREAM_DEFN);
+    }
+
+    @Test
+    public void testOneDataEndpointWithArbitraryEventFields() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException, MalformedStreamDefinitionException, DataBridgeException, StreamDefinitionStoreException, IOException {
+        startServer(9661, 9761);
+        AgentHolder.setConfigPath(DataPublisherTestUtil.getDataAgentConfigPath(agentConfigFileName));
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://" + hostName + ":9661",
+                "ssl://" + hostName + ":9761", "admin", "admin");
+        Event event = DataPublisherTestUtil.createEvent(2);
+        Map<String, String> arbitrary = new HashMap<String, String>();
+        arbitrary.put("test", "testValue");
+        arbitrary.put("test1", "test123");
+        event.setArbitraryDataMap(arbitrary);
+
+        int numberOfEventsSent = 1000;
+        for (int i = 0; i < numberOfEventsSent; i++) {
+            dataPublisher.publish(event);
+        }
+
+        DataPublisherTestUtil.waitForEvents(numberOfEventsSent, 10000, testServer);
+        dataPublisher.shutdown();
+        Assert.assertEquals(testServer.getNumberOfEventsReceived(), numberOfEventsSent);
+        testServer.resetReceivedEvents();
+        testServer.stop();
+    }
+
+    @Test
+    public void testShutdownDataPublisher() throws DataEndpointAuthenticationException,
+            DataEndpointAgentConfigurationException, TransportException,
+            DataEndpointException, DataEndpointConfigurationException,
+            MalformedStreamDefinitionException, DataBridgeException,
+            StreamDefinitionStoreException, IOException {
+        startServer(9662, 9762);
+        AgentHolder.setConfigPath(DataPublisherTestUtil.getDataAgentConfigPath(agentConfigFileName));
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://" + hostName + ":9662",
+                "ssl://" + hostName + ":9762", "admin", "admin");
+        Event event = DataPublisherTestUtil.createEvent(2);
+
+        int numberOfEventsSent = 100000;
+        for (int i = 0; i < numberOfEventsSent; i++) {
+            dataPublisher.publish(event);
+        }
+
+        dataPublisher.shutdown();
+
+        DataPublisherTestUtil.waitForEvents(numberOfEventsSent, 10000, testServer);
+        Assert.assertEquals(testServer.getNumberOfEventsReceived(), numberOfEventsSent);
+        testServer.resetReceivedEvents();
+        testServer.stop();
+    }
+
+    @Test
+    public void testConcurrentConnectionsOnOneIOThread() throws DataEndpointAuthenticationException,
+            DataEndpointAgentConfigurationException, TransportException,
+            DataEndpointException, DataEndpointConfigurationException,
+            MalformedStreamDefinitionException, DataBridgeException,
+            StreamDefinitionStoreException, IOException, InterruptedException {
+        startServer(9680, 9780, 1);
+        AgentHolder.setConfigPath(DataPublisherTestUtil.getDataAgentConfigPath(agentConfigFileName));
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        final Event event = DataPublisherTestUtil.createEvent(2);
+
+        //Every publisher sends on its own pooled connections, all of which share the single selector
+        int numberOfPublishers = 4;
+        final int numberOfEventsSent = 25000;
+        final DataPublisher[] dataPublishers = new DataPublisher[numberOfPublishers];
+        Thread[] publishingThreads = new Thread[numberOfPublishers];
+        for (int i = 0; i < numberOfPublishers; i++) {
+            dataPublishers[i] = new DataPublisher("Binary", "tcp://" + hostName + ":9680",
+                    "ssl://" + hostName + ":9780", "admin", "admin");
+            final DataPublisher dataPublisher = dataPublishers[i];
+            publishingThreads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < numberOfEventsSent; j++) {
+                        dataPublisher.publish(event);
+                    }
+                }
+            });
+            publishingThreads[i].start();
+        }
+        for (Thread publishingThread : publishingThreads) {
+            publishingThread.join();
+        }
+        for (DataPublisher dataPublisher : dataPublishers) {
+            dataPublisher.shutdown();
+        }
+
+        DataPublisherTestUtil.waitForEvents(numberOfPublishers * numberOfEventsSent, 10000, testServer);
+        Assert.assertEquals(testServer.getNumberOfEventsReceived(), numberOfPublishers * numberOfEventsSent);
+        testServer.resetReceivedEvents();
+        testServer.stop();
+    }
+}
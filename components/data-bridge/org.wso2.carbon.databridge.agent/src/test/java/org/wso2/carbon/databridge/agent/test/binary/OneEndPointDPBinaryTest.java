@@ -37,7 +37,9 @@ import org.wso2.carbon.databridge.core.exception.StreamDefinitionStoreException;
 
 import java.io.IOException;
 import java.net.SocketException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 
@@ -249,4 +251,89 @@ public class OneEndPointDPBinaryTest {
         testServer.stop();
     }
 
+    @Test
+    public void testBatchPublish() throws DataEndpointAuthenticationException,
+            DataEndpointAgentConfigurationException, TransportException,
+            DataEndpointException, DataEndpointConfigurationException,
+            MalformedStreamDefinitionException, DataBridgeException,
+            StreamDefinitionStoreException, IOException {
+        startServer(9603, 9703);
+        AgentHolder.setConfigPath(DataPublisherTestUtil.getDataAgentConfigPath(agentConfigFileName));
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://" + hostName + ":9603",
+                "ssl://" + hostName + ":9703", "admin", "admin");
+        List<Event> events = new ArrayList<Event>();
+        for (int i = 0; i < 100; i++) {
+            Event event = new Event();
+            event.setStreamId(DataBridgeCommonsUtils.generateStreamId(STREAM_NAME, VERSION));
+            event.setMetaData(new Object[]{"127.0.0.1"});
+            event.setCorrelationData(null);
+            event.setPayloadData(new Object[]{"WSO2", 123.4, i, 12.4, 1.3});
+            events.add(event);
+        }
+
+        int numberOfBatchesSent = 10;
+        for (int i = 0; i < numberOfBatchesSent; i++) {
+            if (i % 2 == 0) {
+                dataPublisher.publish(events);
+            } else {
+                Assert.assertTrue(dataPublisher.tryPublish(events, 1000));
+            }
+        }
+
+        DataPublisherTestUtil.waitForEvents(numberOfBatchesSent * events.size(), 10000, testServer);
+        dataPublisher.shutdown();
+        Assert.assertEquals(testServer.getNumberOfEventsReceived(), numberOfBatchesSent * events.size());
+        testServer.resetReceivedEvents();
+        testServer.stop();
+    }
+
+    @Test
+    public void testBatchLargerThanQueue() throws DataEndpointAuthenticationException,
+            DataEndpointAgentConfigurationException, TransportException,
+            DataEndpointException, DataEndpointConfigurationException,
+            MalformedStreamDefinitionException, DataBridgeException,
+            StreamDefinitionStoreException, IOException, InterruptedException {
+        startServer(9604, 9704);
+        AgentHolder.setConfigPath(DataPublisherTestUtil.getDataAgentConfigPath("Binary", "queueSize", "64"));
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        final DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://" + hostName + ":9604",
+                "ssl://" + hostName + ":9704", "admin", "admin");
+        List<Event> events = new ArrayList<Event>();
+        for (int i = 0; i < 500; i++) {
+            events.add(DataPublisherTestUtil.createEvent(i));
+        }
+
+        //The batches are larger than the queue, hence published in parts while producers of single events compete
+        //for the slots freed
+        int numberOfPublishers = 2;
+        final int numberOfEventsSent = 20000;
+        Thread[] publishingThreads = new Thread[numberOfPublishers];
+        for (int i = 0; i < numberOfPublishers; i++) {
+            publishingThreads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Event event = DataPublisherTestUtil.createEvent(2);
+                    for (int j = 0; j < numberOfEventsSent; j++) {
+                        dataPublisher.publish(event);
+                    }
+                }
+            });
+            publishingThreads[i].start();
+        }
+        int numberOfBatchesSent = 10;
+        for (int i = 0; i < numberOfBatchesSent; i++) {
+            Assert.assertTrue(dataPublisher.tryPublish(events, 10000), "Batch " + i + " was not published");
+        }
+        for (Thread publishingThread : publishingThreads) {
+            publishingThread.join();
+        }
+
+        int numberOfEvents = numberOfBatchesSent * events.size() + numberOfPublishers * numberOfEventsSent;
+        DataPublisherTestUtil.waitForEvents(numberOfEvents, 10000, testServer);
+        dataPublisher.shutdown();
+        Assert.assertEquals(testServer.getNumberOfEventsReceived(), numberOfEvents);
+        testServer.resetReceivedEvents();
+        testServer.stop();
+    }
 }
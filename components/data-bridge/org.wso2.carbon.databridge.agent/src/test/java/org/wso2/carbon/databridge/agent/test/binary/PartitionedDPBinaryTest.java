@@ -0,0 +1,121 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.agent.test.binary;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.databridge.agent.AgentHolder;
+import org.wso2.carbon.databridge.agent.DataPublisher;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAgentConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAuthenticationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointException;
+import org.wso2.carbon.databridge.agent.test.DataPublisherTestUtil;
+import org.wso2.carbon.databridge.commons.Credentials;
+import org.wso2.carbon.databridge.commons.Event;
+import org.wso2.carbon.databridge.commons.StreamDefinition;
+import org.wso2.carbon.databridge.commons.exception.MalformedStreamDefinitionException;
+import org.wso2.carbon.databridge.commons.exception.TransportException;
+import org.wso2.carbon.databridge.core.AgentCallback;
+import org.wso2.carbon.databridge.core.exception.DataBridgeException;
+import org.wso2.carbon.databridge.core.exception.StreamDefinitionStoreException;
+import org.wso2.carbon.databridge.receiver.binary.BinaryDataReceiverConstants;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class PartitionedDPBinaryTest {
+    @BeforeClass
+    public static void init() {
+        DataPublisherTestUtil.setKeyStoreParams();
+        DataPublisherTestUtil.setTrustStoreParams();
+    }
+
+    @AfterClass
+    public static void stop() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException {
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://localhost:9687",
+                "ssl://localhost:9787", "admin", "admin");
+        dataPublisher.shutdownWithAgent();
+    }
+
+    private synchronized BinaryTestServer startServer(int port, int securePort, final Set<String> symbols)
+            throws DataBridgeException, StreamDefinitionStoreException, MalformedStreamDefinitionException,
+            IOException {
+        BinaryTestServer testServer = new BinaryTestServer();
+        testServer.start(port, securePort, BinaryDataReceiverConstants.TCP_RECEIVER_MODE_NIO);
+        testServer.addStreamDefinition(DataPublisherTestUtil.STREAM_DEFN);
+        testServer.subscribe(new AgentCallback() {
+            @Override
+            public void definedStream(StreamDefinition streamDefinition) {
+            }
+
+            @Override
+            public void removeStream(StreamDefinition streamDefinition) {
+            }
+
+            @Override
+            public void receive(List<Event> eventList, Credentials credentials) {
+                for (Event receivedEvent : eventList) {
+                    symbols.add((String) receivedEvent.getPayloadData()[0]);
+                }
+            }
+        });
+        return testServer;
+    }
+
+    @Test
+    public void testPartitionedDataEndpoints() throws DataEndpointAuthenticationException,
+            DataEndpointAgentConfigurationException, TransportException,
+            DataEndpointException, DataEndpointConfigurationException,
+            MalformedStreamDefinitionException, DataBridgeException,
+            StreamDefinitionStoreException, IOException {
+        Set<String> firstServerSymbols = ConcurrentHashMap.newKeySet();
+        Set<String> secondServerSymbols = ConcurrentHashMap.newKeySet();
+        BinaryTestServer firstServer = startServer(9686, 9786, firstServerSymbols);
+        BinaryTestServer secondServer = startServer(9688, 9788, secondServerSymbols);
+        AgentHolder.setConfigPath(DataPublisherTestUtil.getDataAgentConfigPath("Binary", "partitionKey", "payloadData[0]"));
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        DataPublisher dataPublisher = new DataPublisher("Binary",
+                "tcp://" + hostName + ":9686,tcp://" + hostName + ":9688",
+                "ssl://" + hostName + ":9786,ssl://" + hostName + ":9788", "admin", "admin");
+
+        int numberOfSymbols = 100;
+        int numberOfEventsSent = 20000;
+        for (int i = 0; i < numberOfEventsSent; i++) {
+            Event event = DataPublisherTestUtil.createEvent(i);
+            event.getPayloadData()[0] = "SYMBOL" + (i % numberOfSymbols);
+            dataPublisher.publish(event);
+        }
+        DataPublisherTestUtil.waitForEvents(numberOfEventsSent, 10000, firstServer, secondServer);
+        dataPublisher.shutdown();
+        Assert.assertEquals(firstServer.getNumberOfEventsReceived() + secondServer.getNumberOfEventsReceived(),
+                numberOfEventsSent);
+        Assert.assertEquals(firstServerSymbols.size() + secondServerSymbols.size(), numberOfSymbols);
+        Assert.assertFalse(firstServerSymbols.isEmpty());
+        Assert.assertFalse(secondServerSymbols.isEmpty());
+        for (String symbol : firstServerSymbols) {
+            Assert.assertFalse(secondServerSymbols.contains(symbol), "Events of " + symbol + " sent to both servers");
+        }
+        firstServer.stop();
+        secondServer.stop();
+    }
+}
@@ -0,0 +1,173 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.agent.test.binary;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.databridge.agent.AgentHolder;
+import org.wso2.carbon.databridge.agent.DataPublisher;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAgentConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAuthenticationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointException;
+import org.wso2.carbon.databridge.agent.test.DataPublisherTestUtil;
+import org.wso2.carbon.databridge.commons.Event;
+import org.wso2.carbon.databridge.commons.exception.MalformedStreamDefinitionException;
+import org.wso2.carbon.databridge.commons.exception.TransportException;
+import org.wso2.carbon.databridge.core.exception.DataBridgeException;
+import org.wso2.carbon.databridge.core.exception.StreamDefinitionStoreException;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+public class PipelinedDPBinaryTest {
+    private BinaryTestServer testServer;
+
+    @BeforeClass
+    public static void init() {
+        DataPublisherTestUtil.setKeyStoreParams();
+        DataPublisherTestUtil.setTrustStoreParams();
+    }
+
+    @AfterClass
+    public static void stop() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException {
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://localhost:9687",
+                "ssl://localhost:9787", "admin", "admin");
+        dataPublisher.shutdownWithAgent();
+    }
+
+    private synchronized void startServer(int port, int securePort) throws DataBridgeException,
+            StreamDefinitionStoreException, MalformedStreamDefinitionException, IOException {
+        testServer = new BinaryTestServer();
+        testServer.start(port, securePort);
+        testServer.addStreamDefinition(DataPublisherTestUtil.STREAM_DEFN);
+    }
+
+    @Test
+    public void testOneDataEndpointWithArbitraryEventFields() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException, MalformedStreamDefinitionException, DataBridgeException, StreamDefinitionStoreException, IOException {
+        startServer(9663, 9763);
+        AgentHolder.setConfigPath(DataPublisherTestUtil.getDataAgentConfigPath("Binary", "publishWindowSize", "8"));
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://" + hostName + ":9663",
+                "ssl://" + hostName + ":9763", "admin", "admin");
+        Event event = DataPublisherTestUtil.createEvent(2);
+        Map<String, String> arbitrary = new HashMap<String, String>();
+        arbitrary.put("test", "testValue");
+        arbitrary.put("test1", "test123");
+        event.setArbitraryDataMap(arbitrary);
+
+        int numberOfEventsSent = 1000;
+        for (int i = 0; i < numberOfEventsSent; i++) {
+            dataPublisher.publish(event);
+        }
+
+        DataPublisherTestUtil.waitForEvents(numberOfEventsSent, 10000, testServer);
+        dataPublisher.shutdown();
+        Assert.assertEquals(testServer.getNumberOfEventsReceived(), numberOfEventsSent);
+        testServer.resetReceivedEvents();
+        testServer.stop();
+    }
+
+    @Test
+    public void testShutdownDataPublisher() throws DataEndpointAuthenticationException,
+            DataEndpointAgentConfigurationException, TransportException,
+            DataEndpointException, DataEndpointConfigurationException,
+            MalformedStreamDefinitionException, DataBridgeException,
+            StreamDefinitionStoreException, IOException {
+        startServer(9664, 9764);
+        AgentHolder.setConfigPath(DataPublisherTestUtil.getDataAgentConfigPath("Binary", "publishWindowSize", "8"));
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://" + hostName + ":9664",
+                "ssl://" + hostName + ":9764", "admin", "admin");
+        Event event = DataPublisherTestUtil.createEvent(2);
+
+        int numberOfEventsSent = 100000;
+        for (int i = 0; i < numberOfEventsSent; i++) {
+            dataPublisher.publish(event);
+        }
+
+        dataPublisher.shutdown();
+
+        DataPublisherTestUtil.waitForEvents(numberOfEventsSent, 10000, testServer);
+        Assert.assertEquals(testServer.getNumberOfEventsReceived(), numberOfEventsSent);
+        testServer.resetReceivedEvents();
+        testServer.stop();
+    }
+
+    @Test
+    public void testSequencedPublishResponses() throws DataBridgeException, StreamDefinitionStoreException,
+            MalformedStreamDefinitionException, IOException {
+        startServer(9692, 9792);
+        try (Socket socket = new Socket(DataPublisherTestUtil.LOCAL_HOST, 9692)) {
+            socket.setSoTimeout(10000);
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+
+            //Too short to carry a sequence number, hence answered with a plain error
+            out.writeByte(3);
+            out.writeInt(4);
+            out.writeInt(0);
+            out.flush();
+            Assert.assertEquals(in.readByte(), 1);
+            readError(in);
+
+            //Frames sent back to back, without waiting for their responses, are answered in the order sent
+            byte[] sessionId = "unknown-session".getBytes(StandardCharsets.UTF_8);
+            int numberOfFrames = 8;
+            for (int i = 0; i < numberOfFrames; i++) {
+                out.writeByte(3);
+                out.writeInt(4 + sessionId.length + 8);
+                out.writeInt(sessionId.length);
+                out.write(sessionId);
+                out.writeLong(i);
+            }
+            //A session id length beyond the frame is reported against the sequence number of the frame
+            out.writeByte(3);
+            out.writeInt(4 + 8);
+            out.writeInt(Integer.MAX_VALUE);
+            out.writeLong(numberOfFrames);
+            out.flush();
+            for (int i = 0; i <= numberOfFrames; i++) {
+                Assert.assertEquals(in.readByte(), 4);
+                Assert.assertEquals(in.readLong(), i);
+                readError(in);
+            }
+
+            //The connection is still usable after the malformed frames
+            out.writeByte(7);
+            out.writeInt(0);
+            out.flush();
+            Assert.assertEquals(in.readByte(), 0);
+        } finally {
+            testServer.stop();
+        }
+    }
+
+    private void readError(DataInputStream in) throws IOException {
+        int errorClassNameLength = in.readInt();
+        int errorMsgLength = in.readInt();
+        in.readFully(new byte[errorClassNameLength + errorMsgLength]);
+    }
+}
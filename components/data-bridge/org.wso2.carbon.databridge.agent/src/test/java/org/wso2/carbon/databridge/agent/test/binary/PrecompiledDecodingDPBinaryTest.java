@@ -0,0 +1,194 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.agent.test.binary;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.databridge.agent.AgentHolder;
+import org.wso2.carbon.databridge.agent.DataPublisher;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAgentConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAuthenticationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointException;
+import org.wso2.carbon.databridge.agent.test.DataPublisherTestUtil;
+import org.wso2.carbon.databridge.commons.Event;
+import org.wso2.carbon.databridge.commons.StreamDefinition;
+import org.wso2.carbon.databridge.commons.binary.BinaryMessageConverterUtil;
+import org.wso2.carbon.databridge.commons.exception.MalformedStreamDefinitionException;
+import org.wso2.carbon.databridge.commons.exception.TransportException;
+import org.wso2.carbon.databridge.commons.utils.DataBridgeCommonsUtils;
+import org.wso2.carbon.databridge.commons.utils.EventDefinitionConverterUtils;
+import org.wso2.carbon.databridge.core.StreamTypeHolder;
+import org.wso2.carbon.databridge.core.exception.DataBridgeException;
+import org.wso2.carbon.databridge.core.exception.StreamDefinitionStoreException;
+import org.wso2.carbon.databridge.receiver.binary.BinaryEventConverter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+public class PrecompiledDecodingDPBinaryTest {
+    private static final Log log = LogFactory.getLog(PrecompiledDecodingDPBinaryTest.class);
+    private static final int BENCHMARK_EVENT_COUNT = 1000000;
+    private static final int BENCHMARK_ROUNDS = 5;
+    private static final String STREAM_NAME = "org.wso2.esb.MediatorStatistics";
+    private static final String VERSION = "1.0.0";
+    private BinaryTestServer testServer;
+    private String agentConfigFileName = "data.agent.config.yaml";
+
+
+    private static final String STREAM_DEFN = "{" +
+            "  'name':'" + STREAM_NAME + "'," +
+            "  'version':'" + VERSION + "'," +
+            "  'nickName': 'Stock Quote Information'," +
+            "  'description': 'Some Desc'," +
+            "  'tags':['foo', 'bar']," +
+            "  'metaData':[" +
+            "          {'name':'ipAdd','type':'STRING'}" +
+            "  ]," +
+            "  'correlationData':[" +
+            "          {'name':'correlationId','type':'LONG'}" +
+            "  ]," +
+            "  'payloadData':[" +
+            "          {'name':'symbol','type':'STRING'}," +
+            "          {'name':'price','type':'DOUBLE'}," +
+            "          {'name':'volume','type':'INT'}," +
+            "          {'name':'total','type':'LONG'}," +
+            "          {'name':'ratio','type':'FLOAT'}," +
+            "          {'name':'active','type':'BOOL'}," +
+            "          {'name':'comment','type':'STRING'}" +
+            "  ]" +
+            "}";
+
+
+    @BeforeClass
+    public static void init() {
+        DataPublisherTestUtil.setKeyStoreParams();
+        DataPublisherTestUtil.setTrustStoreParams();
+    }
+
+    @AfterClass
+    public static void stop() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException {
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://localhost:9676",
+                "ssl://localhost:9776", "admin", "admin");
+        dataPublisher.shutdownWithAgent();
+    }
+
+    private synchronized void startServer(int port, int securePort, String tcpReceiverMode,
+                                          boolean messageBufferPooling) throws DataBridgeException, StreamDefinitionStoreException, MalformedStreamDefinitionException,
+            IOException {
+        testServer = new BinaryTestServer();
+        testServer.start(port, securePort, tcpReceiverMode, messageBufferPooling, false, true);
+        testServer.addStreamDefinition(STREAM_DEFN);
+    }
+
+    @Test
+    public void testPrecompiledDecodingOfAllAttributeTypes() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException, MalformedStreamDefinitionException, DataBridgeException, StreamDefinitionStoreException, IOException {
+        publishWithPrecompiledDecoding(9676, 9776, "blocking", false);
+    }
+
+    @Test
+    public void testPrecompiledDecodingWithPooledBuffers() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException, MalformedStreamDefinitionException, DataBridgeException, StreamDefinitionStoreException, IOException {
+        publishWithPrecompiledDecoding(9677, 9777, "nio", true);
+    }
+
+    private void publishWithPrecompiledDecoding(int port, int securePort, String tcpReceiverMode,
+                                                boolean messageBufferPooling) throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException, MalformedStreamDefinitionException, DataBridgeException, StreamDefinitionStoreException, IOException {
+        startServer(port, securePort, tcpReceiverMode, messageBufferPooling);
+        AgentHolder.setConfigPath(DataPublisherTestUtil.getDataAgentConfigPath(agentConfigFileName));
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://" + hostName + ":" + port,
+                "ssl://" + hostName + ":" + securePort, "admin", "admin");
+        Event event = new Event();
+        event.setStreamId(DataBridgeCommonsUtils.generateStreamId(STREAM_NAME, VERSION));
+        event.setMetaData(new Object[]{"127.0.0.1"});
+        event.setCorrelationData(new Object[]{45L});
+        event.setPayloadData(new Object[]{"WSO2", 123.4, 2, 1234567890123L, 1.5f, true, null});
+        Map<String, String> arbitrary = new HashMap<String, String>();
+        arbitrary.put("test", "testValue");
+        event.setArbitraryDataMap(arbitrary);
+
+        int numberOfEventsSent = 10000;
+        for (int i = 0; i < numberOfEventsSent; i++) {
+            dataPublisher.publish(event);
+        }
+
+        DataPublisherTestUtil.waitForEvents(numberOfEventsSent, 10000, testServer);
+        dataPublisher.shutdown();
+        Assert.assertEquals(testServer.getNumberOfEventsReceived(), numberOfEventsSent);
+        Event lastReceivedEvent = testServer.getLastReceivedEvent();
+        Assert.assertEquals(lastReceivedEvent.getMetaData(), event.getMetaData());
+        Assert.assertEquals(lastReceivedEvent.getCorrelationData(), event.getCorrelationData());
+        Assert.assertEquals(lastReceivedEvent.getPayloadData(), event.getPayloadData());
+        Assert.assertEquals(lastReceivedEvent.getArbitraryDataMap(), event.getArbitraryDataMap());
+        testServer.resetReceivedEvents();
+        testServer.stop();
+    }
+
+    /**
+     * Decodes the same encoded event with the precompiled decoders and with the per attribute type switch, and logs
+     * the time each takes per event. The first rounds include the warm up of both.
+     */
+    @Test
+    public void testPrecompiledDecodingThroughput() throws MalformedStreamDefinitionException, IOException {
+        StreamDefinition streamDefinition = EventDefinitionConverterUtils.convertFromJson(STREAM_DEFN);
+        StreamTypeHolder streamTypeHolder = new StreamTypeHolder();
+        streamTypeHolder.putStreamDefinition(streamDefinition);
+        ByteBuffer encodedEvent = ByteBuffer.allocate(256);
+        encodedEvent.putLong(System.currentTimeMillis());
+        BinaryMessageConverterUtil.assignData(streamDefinition.getStreamId(), encodedEvent);
+        for (Object data : new Object[]{"127.0.0.1", 45L, "WSO2", 123.4, 2, 1234567890123L, 1.5f, true, "comment"}) {
+            BinaryMessageConverterUtil.assignData(data, encodedEvent);
+        }
+        encodedEvent.flip();
+
+        BinaryEventConverter switchConverter = BinaryEventConverter.newConnectionConverter(null, false, false);
+        BinaryEventConverter precompiledConverter = BinaryEventConverter.newConnectionConverter(null, false, true);
+        Event switchDecodedEvent = switchConverter.getEvent(encodedEvent.duplicate(), streamTypeHolder);
+        Event precompiledDecodedEvent = precompiledConverter.getEvent(encodedEvent.duplicate(), streamTypeHolder);
+        Assert.assertEquals(precompiledDecodedEvent.getMetaData(), switchDecodedEvent.getMetaData());
+        Assert.assertEquals(precompiledDecodedEvent.getCorrelationData(), switchDecodedEvent.getCorrelationData());
+        Assert.assertEquals(precompiledDecodedEvent.getPayloadData(), switchDecodedEvent.getPayloadData());
+
+        for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+            long switchNanos = timeDecoding(switchConverter, encodedEvent, streamTypeHolder);
+            long precompiledNanos = timeDecoding(precompiledConverter, encodedEvent, streamTypeHolder);
+            log.info("Decoding round " + round + ": " + (double) switchNanos / BENCHMARK_EVENT_COUNT +
+                    " ns per event with the type switch, " + (double) precompiledNanos / BENCHMARK_EVENT_COUNT +
+                    " ns per event with precompiled decoders");
+        }
+    }
+
+    private long timeDecoding(BinaryEventConverter eventConverter, ByteBuffer encodedEvent,
+                              StreamTypeHolder streamTypeHolder) {
+        long attributeCount = 0;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_EVENT_COUNT; i++) {
+            attributeCount += eventConverter.getEvent(encodedEvent.duplicate(), streamTypeHolder).getPayloadData()
+                    .length;
+        }
+        long elapsedTime = System.nanoTime() - startTime;
+        Assert.assertEquals(attributeCount, 7L * BENCHMARK_EVENT_COUNT);
+        return elapsedTime;
+    }
+}
@@ -37,6 +37,8 @@ import org.wso2.carbon.databridge.core.exception.StreamDefinitionStoreException;
 
 import java.io.IOException;
 import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ServerOfflineSyncBinaryTest {
     private static final String STREAM_NAME = "org.wso2.esb.MediatorStatistics";
@@ -104,6 +106,29 @@ public class ServerOfflineSyncBinaryTest {
         dataPublisher.shutdown();
     }
 
+    @Test
+    public void testTryPublishingEventBatchWhileServerOffline()
+            throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException,
+            DataEndpointException, DataEndpointConfigurationException {
+        AgentHolder.setConfigPath(DataPublisherTestUtil.getDataAgentConfigPath(agentConfigFileName));
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://" + hostName + ":9613",
+                "ssl://" + hostName + ":9713", "admin", "admin");
+        List<Event> events = new ArrayList<Event>();
+        for (int i = 0; i < 10; i++) {
+            Event event = new Event();
+            event.setStreamId(DataBridgeCommonsUtils.generateStreamId(STREAM_NAME, VERSION));
+            event.setMetaData(new Object[]{"127.0.0.1"});
+            event.setCorrelationData(null);
+            event.setPayloadData(new Object[]{"WSO2", 123.4, 2, 12.4, 1.3});
+            events.add(event);
+        }
+
+        //No endpoint becomes available, hence the events are dropped rather than accepted
+        Assert.assertFalse(dataPublisher.tryPublish(events, 100));
+        dataPublisher.shutdown();
+    }
+
     @Test
     public void testBlockingEventSendingAndServerStartup()
             throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException, MalformedStreamDefinitionException, DataBridgeException, StreamDefinitionStoreException, IOException {
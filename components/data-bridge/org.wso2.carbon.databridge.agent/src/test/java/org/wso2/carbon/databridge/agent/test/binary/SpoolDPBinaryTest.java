@@ -0,0 +1,149 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.agent.test.binary;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.databridge.agent.AgentHolder;
+import org.wso2.carbon.databridge.agent.DataPublisher;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAgentConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAuthenticationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointException;
+import org.wso2.carbon.databridge.agent.test.DataPublisherTestUtil;
+import org.wso2.carbon.databridge.commons.Credentials;
+import org.wso2.carbon.databridge.commons.Event;
+import org.wso2.carbon.databridge.commons.StreamDefinition;
+import org.wso2.carbon.databridge.commons.exception.MalformedStreamDefinitionException;
+import org.wso2.carbon.databridge.commons.exception.TransportException;
+import org.wso2.carbon.databridge.core.AgentCallback;
+import org.wso2.carbon.databridge.core.exception.DataBridgeException;
+import org.wso2.carbon.databridge.core.exception.StreamDefinitionStoreException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SpoolDPBinaryTest {
+    @BeforeClass
+    public static void init() {
+        DataPublisherTestUtil.setKeyStoreParams();
+        DataPublisherTestUtil.setTrustStoreParams();
+    }
+
+    @AfterClass
+    public static void stop() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException {
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://localhost:9687",
+                "ssl://localhost:9787", "admin", "admin");
+        dataPublisher.shutdownWithAgent();
+    }
+
+    @Test
+    public void testSpoolingEventsWhileServerOffline() throws DataEndpointAuthenticationException,
+            DataEndpointAgentConfigurationException, TransportException,
+            DataEndpointException, DataEndpointConfigurationException,
+            MalformedStreamDefinitionException, DataBridgeException,
+            StreamDefinitionStoreException, IOException {
+        File spoolDirectory = new File("target", "spool");
+        if (!spoolDirectory.isDirectory() && !spoolDirectory.mkdirs()) {
+            throw new IOException("Cannot create " + spoolDirectory.getAbsolutePath());
+        }
+        spoolDirectory = Files.createTempDirectory(spoolDirectory.toPath(), "test-").toFile();
+        spoolDirectory.deleteOnExit();
+        //A single publisher thread keeps the spooled batches in the order they are drained
+        Map<String, String> spoolOptions = new HashMap<>();
+        spoolOptions.put("queueSize", "1024");
+        spoolOptions.put("reconnectionInterval", "1");
+        spoolOptions.put("corePoolSize", "1");
+        spoolOptions.put("maxPoolSize", "1");
+        spoolOptions.put("spoolDirectory", spoolDirectory.getPath());
+        spoolOptions.put("spoolSegmentSize", "65536");
+        AgentHolder.setConfigPath(DataPublisherTestUtil.getDataAgentConfigPath("Binary", spoolOptions));
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://" + hostName + ":9685",
+                "ssl://" + hostName + ":9785", "admin", "admin");
+
+        //Several times the events the queue holds, which are spooled as the receiver is not started yet
+        int queueSize = AgentHolder.getInstance().getDataEndpointAgent("Binary").
+                getAgentConfiguration().getQueueSize();
+        int numberOfEventsSent = queueSize * 5;
+        for (int i = 0; i < numberOfEventsSent; i++) {
+            Assert.assertTrue(dataPublisher.tryPublish(DataPublisherTestUtil.createEvent(i)));
+        }
+        Assert.assertTrue(getSpoolSegmentCount(spoolDirectory) > 0, "No events were spooled");
+
+        BinaryTestServer testServer = new BinaryTestServer();
+        testServer.setDataBridgeConfigPath(DataPublisherTestUtil.getDataBridgeConfigPath(
+                Collections.singletonMap("eventDispatchOrder", "session")));
+        testServer.start(9685, 9785);
+        //The events held by the queue and the spooled events are sent alongside each other once the receiver is
+        //up, hence each of them is only in order within itself. The queue holds the oldest events, so an event is
+        //either the next of those or newer than any spooled event received so far.
+        final AtomicInteger nextQueuedVolume = new AtomicInteger();
+        final AtomicInteger lastSpooledVolume = new AtomicInteger(-1);
+        final AtomicInteger outOfOrderEvents = new AtomicInteger();
+        testServer.subscribe(new AgentCallback() {
+            @Override
+            public void definedStream(StreamDefinition streamDefinition) {
+            }
+
+            @Override
+            public void removeStream(StreamDefinition streamDefinition) {
+            }
+
+            @Override
+            public void receive(List<Event> eventList, Credentials credentials) {
+                for (Event receivedEvent : eventList) {
+                    int volume = (Integer) receivedEvent.getPayloadData()[2];
+                    if (volume == nextQueuedVolume.get()) {
+                        nextQueuedVolume.incrementAndGet();
+                    } else if (volume > lastSpooledVolume.get()) {
+                        lastSpooledVolume.set(volume);
+                    } else {
+                        outOfOrderEvents.incrementAndGet();
+                    }
+                }
+            }
+        });
+        testServer.addStreamDefinition(DataPublisherTestUtil.STREAM_DEFN);
+        DataPublisherTestUtil.waitForEvents(numberOfEventsSent, 10000, testServer);
+        dataPublisher.shutdown();
+        Assert.assertEquals(testServer.getNumberOfEventsReceived(), numberOfEventsSent);
+        Assert.assertEquals(outOfOrderEvents.get(), 0);
+        testServer.stop();
+    }
+
+    private static int getSpoolSegmentCount(File spoolDirectory) {
+        int segmentCount = 0;
+        File[] spools = spoolDirectory.listFiles();
+        if (spools != null) {
+            for (File spool : spools) {
+                String[] segments = spool.list();
+                segmentCount += segments == null ? 0 : segments.length;
+            }
+        }
+        return segmentCount;
+    }
+}
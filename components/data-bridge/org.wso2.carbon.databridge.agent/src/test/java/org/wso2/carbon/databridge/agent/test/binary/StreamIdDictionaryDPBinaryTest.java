@@ -0,0 +1,184 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.agent.test.binary;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.databridge.agent.AgentHolder;
+import org.wso2.carbon.databridge.agent.DataPublisher;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAgentConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAuthenticationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointException;
+import org.wso2.carbon.databridge.agent.test.DataPublisherTestUtil;
+import org.wso2.carbon.databridge.commons.Credentials;
+import org.wso2.carbon.databridge.commons.Event;
+import org.wso2.carbon.databridge.commons.StreamDefinition;
+import org.wso2.carbon.databridge.commons.exception.MalformedStreamDefinitionException;
+import org.wso2.carbon.databridge.commons.exception.TransportException;
+import org.wso2.carbon.databridge.commons.utils.DataBridgeCommonsUtils;
+import org.wso2.carbon.databridge.core.AgentCallback;
+import org.wso2.carbon.databridge.core.exception.DataBridgeException;
+import org.wso2.carbon.databridge.core.exception.StreamDefinitionStoreException;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StreamIdDictionaryDPBinaryTest {
+    private static final String SECOND_STREAM_NAME = "org.wso2.esb.ProxyStatistics";
+    private static final String FIRST_STREAM_ID = DataBridgeCommonsUtils.generateStreamId(
+            DataPublisherTestUtil.STREAM_NAME, DataPublisherTestUtil.VERSION);
+    private static final String SECOND_STREAM_ID = DataBridgeCommonsUtils.generateStreamId(
+            SECOND_STREAM_NAME, DataPublisherTestUtil.VERSION);
+    private BinaryTestServer testServer;
+    //The events received of a stream other than the one named by their symbol, which a stream id handle bound to
+    //the wrong stream id causes
+    private final AtomicInteger misattributedEvents = new AtomicInteger();
+
+    @BeforeClass
+    public static void init() {
+        DataPublisherTestUtil.setKeyStoreParams();
+        DataPublisherTestUtil.setTrustStoreParams();
+    }
+
+    @AfterClass
+    public static void stop() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException {
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://localhost:9687",
+                "ssl://localhost:9787", "admin", "admin");
+        dataPublisher.shutdownWithAgent();
+    }
+
+    private synchronized void startServer(int port, int securePort, String tcpReceiverMode)
+            throws DataBridgeException, StreamDefinitionStoreException, MalformedStreamDefinitionException,
+            IOException {
+        misattributedEvents.set(0);
+        testServer = new BinaryTestServer();
+        testServer.start(port, securePort, tcpReceiverMode);
+        testServer.addStreamDefinition(DataPublisherTestUtil.STREAM_DEFN);
+        testServer.addStreamDefinition(DataPublisherTestUtil.STREAM_DEFN.replace(DataPublisherTestUtil.STREAM_NAME,
+                SECOND_STREAM_NAME));
+        testServer.subscribe(new AgentCallback() {
+            @Override
+            public void definedStream(StreamDefinition streamDefinition) {
+            }
+
+            @Override
+            public void removeStream(StreamDefinition streamDefinition) {
+            }
+
+            @Override
+            public void receive(List<Event> eventList, Credentials credentials) {
+                for (Event receivedEvent : eventList) {
+                    if (!receivedEvent.getStreamId().equals(receivedEvent.getPayloadData()[0])) {
+                        misattributedEvents.incrementAndGet();
+                    }
+                }
+            }
+        });
+    }
+
+    private void setAgentConfigPath() throws IOException {
+        Map<String, String> options = new HashMap<String, String>();
+        options.put("publishWindowSize", "8");
+        options.put("streamIdDictionary", "true");
+        AgentHolder.setConfigPath(DataPublisherTestUtil.getDataAgentConfigPath("Binary", options));
+    }
+
+    /**
+     * @return an event of the given stream, whose symbol is the stream id so that the receiver can check the stream
+     * it was decoded with
+     */
+    private static Event createEvent(String streamId) {
+        Event event = DataPublisherTestUtil.createEvent(2);
+        event.setStreamId(streamId);
+        event.getPayloadData()[0] = streamId;
+        return event;
+    }
+
+    @Test
+    public void testMultipleStreamsWithArbitraryEventFields() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException, MalformedStreamDefinitionException, DataBridgeException, StreamDefinitionStoreException, IOException {
+        publishToBothStreams(9665, 9765, "blocking");
+    }
+
+    @Test
+    public void testMultipleStreamsWithNioReceiver() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException, MalformedStreamDefinitionException, DataBridgeException, StreamDefinitionStoreException, IOException {
+        publishToBothStreams(9666, 9766, "nio");
+    }
+
+    private void publishToBothStreams(int port, int securePort, String tcpReceiverMode) throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException, MalformedStreamDefinitionException, DataBridgeException, StreamDefinitionStoreException, IOException {
+        startServer(port, securePort, tcpReceiverMode);
+        setAgentConfigPath();
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        DataPublisher dataPublisher = new DataPublisher("Binary", "tcp://" + hostName + ":" + port,
+                "ssl://" + hostName + ":" + securePort, "admin", "admin");
+        Event event = createEvent(FIRST_STREAM_ID);
+        Map<String, String> arbitrary = new HashMap<String, String>();
+        arbitrary.put("test", "testValue");
+        event.setArbitraryDataMap(arbitrary);
+        Event secondEvent = createEvent(SECOND_STREAM_ID);
+
+        int numberOfEventsSent = 10000;
+        for (int i = 0; i < numberOfEventsSent; i++) {
+            dataPublisher.publish(i % 2 == 0 ? event : secondEvent);
+        }
+
+        DataPublisherTestUtil.waitForEvents(numberOfEventsSent, 10000, testServer);
+        dataPublisher.shutdown();
+        Assert.assertEquals(testServer.getNumberOfEventsReceived(), numberOfEventsSent);
+        Assert.assertEquals(misattributedEvents.get(), 0);
+        testServer.resetReceivedEvents();
+        testServer.stop();
+    }
+
+    @Test
+    public void testPublishersSharingConnections() throws DataEndpointAuthenticationException,
+            DataEndpointAgentConfigurationException, TransportException, DataEndpointException,
+            DataEndpointConfigurationException, MalformedStreamDefinitionException, DataBridgeException,
+            StreamDefinitionStoreException, IOException {
+        startServer(9605, 9705, "blocking");
+        setAgentConfigPath();
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        //Both publishers borrow the same pooled connections, as they publish to the same receiver as the same user,
+        //hence each registers its stream on connections the other may already have registered its stream on
+        DataPublisher firstDataPublisher = new DataPublisher("Binary", "tcp://" + hostName + ":9605",
+                "ssl://" + hostName + ":9705", "admin", "admin");
+        DataPublisher secondDataPublisher = new DataPublisher("Binary", "tcp://" + hostName + ":9605",
+                "ssl://" + hostName + ":9705", "admin", "admin");
+        Event event = createEvent(FIRST_STREAM_ID);
+        Event secondEvent = createEvent(SECOND_STREAM_ID);
+
+        int numberOfEventsSent = 10000;
+        for (int i = 0; i < numberOfEventsSent; i++) {
+            firstDataPublisher.publish(event);
+            secondDataPublisher.publish(secondEvent);
+        }
+
+        DataPublisherTestUtil.waitForEvents(2 * numberOfEventsSent, 10000, testServer);
+        firstDataPublisher.shutdown();
+        secondDataPublisher.shutdown();
+        Assert.assertEquals(testServer.getNumberOfEventsReceived(), 2 * numberOfEventsSent);
+        Assert.assertEquals(misattributedEvents.get(), 0);
+        testServer.resetReceivedEvents();
+        testServer.stop();
+    }
+}
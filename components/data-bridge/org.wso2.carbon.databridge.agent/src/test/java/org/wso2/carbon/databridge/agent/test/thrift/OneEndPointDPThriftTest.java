@@ -219,4 +219,44 @@ public class OneEndPointDPThriftTest {
 
     }
 
+    @Test
+    public void testConcurrentPublishing() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException, MalformedStreamDefinitionException, DataBridgeException, StreamDefinitionStoreException, SocketException, InterruptedException {
+        startServer(7683);
+        AgentHolder.setConfigPath(DataPublisherTestUtil.getDataAgentConfigPath(agentConfigFileName));
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        final DataPublisher dataPublisher = new DataPublisher("Thrift", "tcp://" + hostName + ":7683",
+                "ssl://" + hostName + ":7783", "admin", "admin");
+        final Event event = new Event();
+        event.setStreamId(DataBridgeCommonsUtils.generateStreamId(STREAM_NAME, VERSION));
+        event.setMetaData(new Object[]{"127.0.0.1"});
+        event.setCorrelationData(null);
+        event.setPayloadData(new Object[]{"WSO2", 123.4, 2, 12.4, 1.3});
+
+        final int eventsPerThread = 2500;
+        Thread[] publishers = new Thread[4];
+        for (int i = 0; i < publishers.length; i++) {
+            publishers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < eventsPerThread; j++) {
+                        dataPublisher.publish(event);
+                    }
+                }
+            });
+            publishers[i].start();
+        }
+        for (Thread publisher : publishers) {
+            publisher.join();
+        }
+
+        try {
+            Thread.sleep(5000);
+        } catch (InterruptedException e) {
+        }
+        dataPublisher.shutdownWithAgent();
+        Assert.assertEquals(thriftTestServer.getNumberOfEventsReceived(), eventsPerThread * publishers.length);
+        thriftTestServer.resetReceivedEvents();
+        thriftTestServer.stop();
+    }
+
 }
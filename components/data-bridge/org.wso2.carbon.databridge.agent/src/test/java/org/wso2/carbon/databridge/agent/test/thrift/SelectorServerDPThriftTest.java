@@ -0,0 +1,118 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.agent.test.thrift;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransportException;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.databridge.agent.AgentHolder;
+import org.wso2.carbon.databridge.agent.DataPublisher;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAgentConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointAuthenticationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointConfigurationException;
+import org.wso2.carbon.databridge.agent.exception.DataEndpointException;
+import org.wso2.carbon.databridge.agent.test.DataPublisherTestUtil;
+import org.wso2.carbon.databridge.commons.Event;
+import org.wso2.carbon.databridge.commons.thrift.data.ThriftEventBundle;
+import org.wso2.carbon.databridge.commons.thrift.exception.ThriftSessionExpiredException;
+import org.wso2.carbon.databridge.commons.thrift.service.general.ThriftEventTransmissionService;
+import org.wso2.carbon.databridge.commons.exception.MalformedStreamDefinitionException;
+import org.wso2.carbon.databridge.commons.exception.TransportException;
+import org.wso2.carbon.databridge.core.exception.DataBridgeException;
+import org.wso2.carbon.databridge.core.exception.StreamDefinitionStoreException;
+import org.wso2.carbon.databridge.receiver.thrift.internal.utils.ThriftDataReceiverConstants;
+
+import java.io.IOException;
+
+public class SelectorServerDPThriftTest {
+    private ThriftTestServer thriftTestServer;
+
+    @BeforeClass
+    public static void init() {
+        DataPublisherTestUtil.setKeyStoreParams();
+        DataPublisherTestUtil.setTrustStoreParams();
+    }
+
+    @AfterClass
+    public static void stop() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException {
+        AgentHolder.shutdown();
+    }
+
+    private synchronized void startServer(int port) throws DataBridgeException,
+            StreamDefinitionStoreException, MalformedStreamDefinitionException {
+        thriftTestServer = new ThriftTestServer();
+        thriftTestServer.start(port, ThriftDataReceiverConstants.SERVER_MODE_SELECTOR);
+        thriftTestServer.addStreamDefinition(DataPublisherTestUtil.STREAM_DEFN);
+
+    }
+
+    @Test
+    public void testSelectorServerWithFramedTransport() throws DataEndpointAuthenticationException, DataEndpointAgentConfigurationException, TransportException, DataEndpointException, DataEndpointConfigurationException, MalformedStreamDefinitionException, DataBridgeException, StreamDefinitionStoreException, IOException, TException {
+        startServer(7681);
+        AgentHolder.setConfigPath(DataPublisherTestUtil.getDataAgentConfigPath("Thrift", "framedTransport", "true"));
+        String hostName = DataPublisherTestUtil.LOCAL_HOST;
+        DataPublisher dataPublisher = new DataPublisher("Thrift", "tcp://" + hostName + ":7681",
+                "ssl://" + hostName + ":7781", "admin", "admin");
+        Event event = DataPublisherTestUtil.createEvent(2);
+
+        int numberOfEventsSent = 1000;
+        for (int i = 0; i < numberOfEventsSent; i++) {
+            dataPublisher.publish(event);
+        }
+
+        DataPublisherTestUtil.waitForEvents(numberOfEventsSent, 10000, thriftTestServer);
+        dataPublisher.shutdownWithAgent();
+        Assert.assertEquals(thriftTestServer.getNumberOfEventsReceived(), numberOfEventsSent);
+
+        //The selector server only reads framed requests
+        Assert.assertTrue(publishWithUnknownSession(new TBinaryProtocol(new TFramedTransport(new TSocket(hostName, 7681, 10000)))),
+                "The server did not answer a client matching its configuration");
+        Assert.assertFalse(publishWithUnknownSession(new TBinaryProtocol(new TSocket(hostName, 7681, 10000))),
+                "The server answered a client not matching its configuration");
+        thriftTestServer.resetReceivedEvents();
+        thriftTestServer.stop();
+    }
+
+    /**
+     * Publishes an empty bundle with a session the server does not know of, over the given client transport.
+     *
+     * @return true if the server answered with the expired session, false if it could not read the request
+     */
+    private boolean publishWithUnknownSession(TProtocol protocol) throws TException {
+        try {
+            protocol.getTransport().open();
+            new ThriftEventTransmissionService.Client(protocol).publish(
+                    new ThriftEventBundle().setSessionId("unknown-session").setEventNum(0));
+            Assert.fail("An unknown session was accepted");
+            return false;
+        } catch (ThriftSessionExpiredException e) {
+            return true;
+        } catch (TTransportException e) {
+            return false;
+        } finally {
+            protocol.getTransport().close();
+        }
+    }
+}
@@ -24,6 +24,7 @@ import org.wso2.carbon.databridge.commons.Credentials;
 import org.wso2.carbon.databridge.commons.Event;
 import org.wso2.carbon.databridge.commons.StreamDefinition;
 import org.wso2.carbon.databridge.commons.exception.MalformedStreamDefinitionException;
+import org.wso2.carbon.databridge.commons.thrift.utils.CommonThriftConstants;
 import org.wso2.carbon.databridge.commons.utils.EventDefinitionConverterUtils;
 import org.wso2.carbon.databridge.core.AgentCallback;
 import org.wso2.carbon.databridge.core.DataBridge;
@@ -33,12 +34,14 @@ import org.wso2.carbon.databridge.core.exception.DataBridgeException;
 import org.wso2.carbon.databridge.core.exception.StreamDefinitionStoreException;
 import org.wso2.carbon.databridge.core.internal.authentication.AuthenticationHandler;
 import org.wso2.carbon.databridge.receiver.thrift.ThriftDataReceiver;
+import org.wso2.carbon.databridge.receiver.thrift.conf.ThriftDataReceiverConfiguration;
+import org.wso2.carbon.databridge.receiver.thrift.internal.utils.ThriftDataReceiverConstants;
 
 import java.net.SocketException;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
-public class ThriftTestServer {
+public class ThriftTestServer implements DataPublisherTestUtil.EventCounter {
     Logger log = Logger.getLogger(ThriftTestServer.class);
     ThriftDataReceiver thriftDataReceiver;
     InMemoryStreamDefinitionStore streamDefinitionStore;
@@ -72,6 +75,14 @@ public class ThriftTestServer {
     }
 
     public void start(int receiverPort) throws DataBridgeException {
+        start(receiverPort, ThriftDataReceiverConstants.DEFAULT_SERVER_MODE);
+    }
+
+    public void start(int receiverPort, String serverMode) throws DataBridgeException {
+        start(receiverPort, serverMode, ThriftDataReceiverConstants.DEFAULT_THRIFT_PROTOCOL);
+    }
+
+    public void start(int receiverPort, String serverMode, String thriftProtocol) throws DataBridgeException {
         DataPublisherTestUtil.setKeyStoreParams();
         streamDefinitionStore = getStreamDefinitionStore();
         numberOfEventsReceived = new AtomicInteger(0);
@@ -94,7 +105,11 @@ public class ThriftTestServer {
             }
         }, streamDefinitionStore, DataPublisherTestUtil.getDataBridgeConfigPath());
 
-        thriftDataReceiver = new ThriftDataReceiver(receiverPort, databridge);
+        ThriftDataReceiverConfiguration thriftDataReceiverConfiguration = new ThriftDataReceiverConfiguration(
+                receiverPort + CommonThriftConstants.SECURE_EVENT_RECEIVER_PORT_OFFSET, receiverPort);
+        thriftDataReceiverConfiguration.setServerMode(serverMode);
+        thriftDataReceiverConfiguration.setThriftProtocol(thriftProtocol);
+        thriftDataReceiver = new ThriftDataReceiver(thriftDataReceiverConfiguration, databridge);
 
         databridge.subscribe(new AgentCallback() {
             int totalSize = 0;
@@ -123,6 +138,7 @@ public class ThriftTestServer {
             log.info("Test Server Started");
     }
 
+    @Override
     public int getNumberOfEventsReceived() {
        if(numberOfEventsReceived != null) return numberOfEventsReceived.get();
         else return 0;
@@ -19,5 +19,6 @@ package org.wso2.carbon.databridge.commons.binary;
 
 public class BinaryMessageConstants {
     public static final String DEFAULT_CHARSET = "UTF-8";
+    public static final int MAX_STREAM_ID_HANDLES = 1024;
 
 }
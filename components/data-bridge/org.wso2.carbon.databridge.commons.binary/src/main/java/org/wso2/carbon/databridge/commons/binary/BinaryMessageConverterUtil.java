@@ -25,15 +25,22 @@ import java.nio.ByteBuffer;
 public class BinaryMessageConverterUtil {
 
     public static byte[] loadData(InputStream in, byte[] dataArray) throws IOException {
+        return loadData(in, dataArray, dataArray.length);
+    }
+
+    /**
+     * Fills the first length bytes of the array, which may be longer than the data to be read.
+     */
+    public static byte[] loadData(InputStream in, byte[] dataArray, int length) throws IOException {
 
         int start = 0;
         while (true) {
-            int readCount = in.read(dataArray, start, dataArray.length - start);
+            if (start == length) {
+                return dataArray;
+            }
+            int readCount = in.read(dataArray, start, length - start);
             if (readCount != -1) {
                 start += readCount;
-                if (start == dataArray.length) {
-                    return dataArray;
-                }
             } else {
                 throw new EOFException("Connection closed from remote end.");
             }
@@ -24,4 +24,7 @@ public class CommonThriftConstants {
 
     public static final int SECURE_EVENT_RECEIVER_PORT_OFFSET = 100;
     public static final int DEFAULT_RECEIVER_PORT = 7611;
+    // Stream looked up by publishers to check their connections, receivers answer it without a definition lookup
+    public static final String HEARTBEAT_STREAM_NAME = "org.wso2.carbon.databridge.heartbeat";
+    public static final String HEARTBEAT_STREAM_VERSION = "1.0.0";
 }
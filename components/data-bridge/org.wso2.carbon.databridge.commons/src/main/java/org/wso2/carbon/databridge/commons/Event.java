@@ -112,26 +112,29 @@ public class Event {
 
     public void setData(String key, Object[] dataObjArray) {
         if (key.equals("metaData")) {
-            metaData = dataObjArray;
+            setMetaData(dataObjArray);
         } else if (key.equals("correlationData")) {
-            correlationData = dataObjArray;
+            setCorrelationData(dataObjArray);
         } else if (key.equals("payloadData")) {
-            payloadData = dataObjArray;
+            setPayloadData(dataObjArray);
         }
     }
 
     @Override
     public String toString() {
+        Object[] metaData = getMetaData();
+        Object[] correlationData = getCorrelationData();
+        Object[] payloadData = getPayloadData();
         return "\nEvent{\n" +
-                "  " + EventBuilderCommonsConstants.STREAM_ID + "='" + streamId + "\',\n" +
-                "  " + EventBuilderCommonsConstants.TIME_STAMP + "=" + timeStamp + ",\n" +
+                "  " + EventBuilderCommonsConstants.STREAM_ID + "='" + getStreamId() + "\',\n" +
+                "  " + EventBuilderCommonsConstants.TIME_STAMP + "=" + getTimeStamp() + ",\n" +
                 "  " + EventBuilderCommonsConstants.META_DATA + "=" +
                 (metaData == null ? null : Arrays.asList(metaData)) + ",\n" +
                 "  " + EventBuilderCommonsConstants.CORRELATION_DATA + "=" +
                 (correlationData == null ? null : Arrays.asList(correlationData)) + ",\n" +
                 "  " + EventBuilderCommonsConstants.PAYLOAD_DATA + "=" +
                 (payloadData == null ? null : Arrays.asList(payloadData)) + ",\n" +
-                "  " + EventBuilderCommonsConstants.ARBITRARY_DATA_MAP + "=" + arbitraryDataMap + ",\n" +
+                "  " + EventBuilderCommonsConstants.ARBITRARY_DATA_MAP + "=" + getArbitraryDataMap() + ",\n" +
                 "}\n";
     }
 
@@ -146,24 +149,26 @@ public class Event {
 
         Event event = (Event) o;
 
-        if (timeStamp != event.timeStamp) {
+        if (getTimeStamp() != event.getTimeStamp()) {
             return false;
         }
+        Map<String, String> arbitraryDataMap = getArbitraryDataMap();
         if (arbitraryDataMap != null ?
-                !arbitraryDataMap.equals(event.arbitraryDataMap) :
-                event.arbitraryDataMap != null) {
+                !arbitraryDataMap.equals(event.getArbitraryDataMap()) :
+                event.getArbitraryDataMap() != null) {
             return false;
         }
-        if (!Arrays.deepEquals(correlationData, event.correlationData)) {
+        if (!Arrays.deepEquals(getCorrelationData(), event.getCorrelationData())) {
             return false;
         }
-        if (!Arrays.deepEquals(metaData, event.metaData)) {
+        if (!Arrays.deepEquals(getMetaData(), event.getMetaData())) {
             return false;
         }
-        if (!Arrays.deepEquals(payloadData, event.payloadData)) {
+        if (!Arrays.deepEquals(getPayloadData(), event.getPayloadData())) {
             return false;
         }
-        if (streamId != null ? !streamId.equals(event.streamId) : event.streamId != null) {
+        String streamId = getStreamId();
+        if (streamId != null ? !streamId.equals(event.getStreamId()) : event.getStreamId() != null) {
             return false;
         }
 
@@ -172,6 +177,12 @@ public class Event {
 
     @Override
     public int hashCode() {
+        String streamId = getStreamId();
+        long timeStamp = getTimeStamp();
+        Object[] metaData = getMetaData();
+        Object[] correlationData = getCorrelationData();
+        Object[] payloadData = getPayloadData();
+        Map<String, String> arbitraryDataMap = getArbitraryDataMap();
         int result = streamId != null ? streamId.hashCode() : 0;
         result = 31 * result + (int) (timeStamp ^ (timeStamp >>> 32));
         result = 31 * result + (metaData != null ? Arrays.hashCode(metaData) : 0);
@@ -22,6 +22,7 @@ import org.wso2.carbon.databridge.commons.exception.DifferentStreamDefinitionAlr
 import org.wso2.carbon.databridge.commons.exception.MalformedStreamDefinitionException;
 import org.wso2.carbon.databridge.commons.exception.SessionTimeoutException;
 import org.wso2.carbon.databridge.commons.exception.UndefinedEventTypeException;
+import org.wso2.carbon.databridge.core.Utils.AgentSession;
 import org.wso2.carbon.databridge.core.conf.DataBridgeConfiguration;
 import org.wso2.carbon.databridge.core.exception.StreamDefinitionNotFoundException;
 import org.wso2.carbon.databridge.core.exception.StreamDefinitionStoreException;
@@ -74,6 +75,17 @@ public abstract class AbstractDataReceiver implements DataBridgeReceiverService
         getDatabridgeReceiver().publish(eventBundle, sessionId, eventConverter);
     }
 
+    @Override
+    public AgentSession getSession(String sessionId) throws SessionTimeoutException {
+        return getDatabridgeReceiver().getSession(sessionId);
+    }
+
+    @Override
+    public void publish(Object eventBundle, AgentSession agentSession, EventConverter eventConverter)
+            throws UndefinedEventTypeException, SessionTimeoutException {
+        getDatabridgeReceiver().publish(eventBundle, agentSession, eventConverter);
+    }
+
     @Override
     public String login(String username, String password) throws AuthenticationException {
         return getDatabridgeReceiver().login(username, password);
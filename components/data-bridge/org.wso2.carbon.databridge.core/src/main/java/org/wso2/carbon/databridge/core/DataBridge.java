@@ -251,13 +251,50 @@ public class DataBridge implements DataBridgeSubscriberService, DataBridgeReceiv
         }
         try {
             authenticatorHandler.initContext(agentSession);
+            //The bundle must not be read once it is dispatched, as it may be released by the worker at any time.
+            int eventsNum = eventConverter.getNumberOfEvents(eventBundle);
             eventDispatcher.publish(eventBundle, agentSession, eventConverter);
-            endTimeMeasurement(eventConverter.getNumberOfEvents(eventBundle));
+            endTimeMeasurement(eventsNum);
         } finally {
             authenticatorHandler.destroyContext(agentSession);
         }
     }
 
+    /**
+     * Resolves and validates a session once, so that transports can hold on to it and publish through
+     * {@link #publish(Object, AgentSession, EventConverter)} for as long as it stays valid.
+     */
+    public AgentSession getSession(String sessionId) throws SessionTimeoutException {
+        AgentSession agentSession = authenticator.getSession(sessionId);
+        if (!agentSession.isValid()) {
+            if (log.isDebugEnabled()) {
+                log.debug("session " + sessionId + " expired ");
+            }
+            throw new SessionTimeoutException(sessionId + " expired");
+        }
+        return agentSession;
+    }
+
+    /**
+     * Publishes with a session previously resolved by {@link #getSession(String)}. The session cache and the
+     * authentication handler are not consulted, the bundle is processed by the core worker threads which never
+     * carried the handler context anyway.
+     */
+    public void publish(Object eventBundle, AgentSession agentSession, EventConverter eventConverter)
+            throws UndefinedEventTypeException, SessionTimeoutException {
+        startTimeMeasurement();
+        if (!agentSession.isValid()) {
+            if (log.isDebugEnabled()) {
+                log.debug("session " + agentSession.getSessionId() + " expired ");
+            }
+            throw new SessionTimeoutException(agentSession.getSessionId() + " expired");
+        }
+        //The bundle must not be read once it is dispatched, as it may be released by the worker at any time.
+        int eventsNum = eventConverter.getNumberOfEvents(eventBundle);
+        eventDispatcher.publish(eventBundle, agentSession, eventConverter);
+        endTimeMeasurement(eventsNum);
+    }
+
     private void endTimeMeasurement(int eventsNum) {
         if (isProfileReceiver) {
             eventsReceived.addAndGet(eventsNum);
@@ -406,7 +443,7 @@ public class DataBridge implements DataBridgeSubscriberService, DataBridgeReceiv
         try {
             authenticatorHandler.initContext(agentSession);
             saveStreamDefinition(streamDefinition);
-            eventDispatcher.updateStreamDefinitionHolder(agentSession);
+            eventDispatcher.loadStreamDefinition(streamDefinition.getStreamId());
         } finally {
             authenticatorHandler.destroyContext(agentSession);
         }
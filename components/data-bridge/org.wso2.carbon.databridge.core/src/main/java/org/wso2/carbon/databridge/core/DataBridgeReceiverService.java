@@ -22,6 +22,7 @@ import org.wso2.carbon.databridge.commons.exception.DifferentStreamDefinitionAlr
 import org.wso2.carbon.databridge.commons.exception.MalformedStreamDefinitionException;
 import org.wso2.carbon.databridge.commons.exception.SessionTimeoutException;
 import org.wso2.carbon.databridge.commons.exception.UndefinedEventTypeException;
+import org.wso2.carbon.databridge.core.Utils.AgentSession;
 import org.wso2.carbon.databridge.core.conf.DataBridgeConfiguration;
 import org.wso2.carbon.databridge.core.definitionstore.StreamAddRemoveListener;
 import org.wso2.carbon.databridge.core.exception.StreamDefinitionNotFoundException;
@@ -56,6 +57,11 @@ public interface DataBridgeReceiverService {
     public void publish(Object eventBundle, String sessionId, EventConverter eventConverter)
             throws UndefinedEventTypeException, SessionTimeoutException;
 
+    public AgentSession getSession(String sessionId) throws SessionTimeoutException;
+
+    public void publish(Object eventBundle, AgentSession agentSession, EventConverter eventConverter)
+            throws UndefinedEventTypeException, SessionTimeoutException;
+
     public StreamDefinition getStreamDefinition(String sessionId, String streamName,
                                                 String streamVersion)
             throws SessionTimeoutException, StreamDefinitionNotFoundException,
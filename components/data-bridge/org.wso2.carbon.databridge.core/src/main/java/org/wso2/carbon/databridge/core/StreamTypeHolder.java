@@ -47,6 +47,13 @@ public class StreamTypeHolder {
         eventDispatcherCallback.reloadDomainNameStreamTypeHolderCache();
     }
 
+    /**
+     * Loads the definition of a stream that is not known yet, without reloading the definitions of all streams.
+     */
+    public void reloadStreamTypeHolder(String streamId) {
+        eventDispatcherCallback.loadStreamDefinition(streamId);
+    }
+
     public StreamAttributeComposite getAttributeComposite(String streamId) {
         return attributeCompositeMap.get(streamId);
     }
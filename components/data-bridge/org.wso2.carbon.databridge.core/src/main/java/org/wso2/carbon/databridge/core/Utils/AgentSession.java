@@ -27,6 +27,8 @@ public class AgentSession {
     private String sessionId;
     private Credentials credentials;
     private long createdAt;
+    private long expiresAt = Long.MAX_VALUE;
+    private volatile boolean invalidated;
 
     public AgentSession(String sessionId, Credentials credentials) {
         this.sessionId = sessionId;
@@ -60,6 +62,26 @@ public class AgentSession {
         this.createdAt = createdAt;
     }
 
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public void invalidate() {
+        invalidated = true;
+    }
+
+    /**
+     * Cheap check of whether the session is still usable, so that transports can keep the session of a connection
+     * instead of looking it up for every event bundle. A session is not usable once it has expired or logged out.
+     */
+    public boolean isValid() {
+        return credentials != null && !invalidated && System.currentTimeMillis() < expiresAt;
+    }
+
     @Override
     public String toString() {
         return "AgentSession{" +
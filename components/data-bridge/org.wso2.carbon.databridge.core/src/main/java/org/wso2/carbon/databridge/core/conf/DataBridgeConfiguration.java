@@ -37,6 +37,12 @@ public class DataBridgeConfiguration {
     @Element(description = "Queue size; the maximum number of events that can be stored in the queue", required = true)
     private int eventBufferSize = 2000;
 
+    @Element(description = "Internal event queue implementation; blocking or disruptor")
+    private String eventQueueType = "blocking";
+
+    @Element(description = "Order in which events are delivered to the subscribers; none or session")
+    private String eventDispatchOrder = "none";
+
     @Element(description = "Session timeout value in mins", required = true)
     private int clientTimeoutMin = 30;
 
@@ -74,6 +80,14 @@ public class DataBridgeConfiguration {
         return eventBufferSize;
     }
 
+    public String getEventQueueType() {
+        return eventQueueType;
+    }
+
+    public String getEventDispatchOrder() {
+        return eventDispatchOrder;
+    }
+
     public int getClientTimeoutMin() {
         return clientTimeoutMin;
     }
@@ -102,6 +116,14 @@ public class DataBridgeConfiguration {
         this.eventBufferSize = eventBufferSize;
     }
 
+    public void setEventQueueType(String eventQueueType) {
+        this.eventQueueType = eventQueueType;
+    }
+
+    public void setEventDispatchOrder(String eventDispatchOrder) {
+        this.eventDispatchOrder = eventDispatchOrder;
+    }
+
     public void setClientTimeoutMin(int clientTimeoutMin) {
         this.clientTimeoutMin = clientTimeoutMin;
     }
@@ -48,6 +48,16 @@ public class DatabridgeConfigurationFileResolver {
             dataBridgeConfiguration.setEventBufferSize(Integer.parseInt(eventBufferSizeObject.toString().trim()));
         }
 
+        Object eventQueueTypeObject = databridgeConfigHashMap.get("eventQueueType");
+        if (eventQueueTypeObject != null && !eventQueueTypeObject.toString().trim().isEmpty()) {
+            dataBridgeConfiguration.setEventQueueType(eventQueueTypeObject.toString().trim());
+        }
+
+        Object eventDispatchOrderObject = databridgeConfigHashMap.get("eventDispatchOrder");
+        if (eventDispatchOrderObject != null && !eventDispatchOrderObject.toString().trim().isEmpty()) {
+            dataBridgeConfiguration.setEventDispatchOrder(eventDispatchOrderObject.toString().trim());
+        }
+
         Object clientTimeoutMinObject = databridgeConfigHashMap.get("clientTimeoutMin");
         if (clientTimeoutMinObject != null && !clientTimeoutMinObject.toString().trim().isEmpty()) {
             dataBridgeConfiguration.setClientTimeoutMin(Integer.parseInt(clientTimeoutMinObject.toString().trim()));
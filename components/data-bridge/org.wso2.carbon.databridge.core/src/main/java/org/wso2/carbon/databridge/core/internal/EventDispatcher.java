@@ -44,7 +44,6 @@ import org.wso2.carbon.databridge.core.internal.queue.EventQueue;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -56,7 +55,7 @@ public class EventDispatcher {
     private List<AgentCallback> subscribers = new ArrayList<AgentCallback>();
     private List<RawDataAgentCallback> rawDataSubscribers = new ArrayList<RawDataAgentCallback>();
     private AbstractStreamDefinitionStore streamDefinitionStore;
-    private StreamTypeHolder streamTypeHolder;
+    private volatile StreamTypeHolder streamTypeHolder;
     private EventQueue eventQueue;
     private AuthenticationHandler authenticationHandler;
 
@@ -72,7 +71,9 @@ public class EventDispatcher {
         streamDefinitionStore.subscribe(new StreamAddRemoveListener() {
             @Override
             public void streamAdded(String streamId) {
-
+                if (streamTypeHolder != null) {
+                    loadStreamDefinition(streamId);
+                }
             }
 
             @Override
@@ -230,29 +231,46 @@ public class EventDispatcher {
         }
     }
 
-    public synchronized void updateStreamDefinitionHolder(AgentSession agentSession) {
-        if (streamTypeHolder != null) {
-            if (log.isDebugEnabled()) {
-                String logMsg = "Event stream holder: \n ";
-                logMsg += "Meta, Correlation & Payload Data Type Map : ";
-                for (Map.Entry entry : streamTypeHolder.getAttributeCompositeMap().entrySet()) {
-                    logMsg += "StreamID=" + entry.getKey() + " :  ";
-                    logMsg += "Meta= " + Arrays.deepToString(((StreamAttributeComposite) entry.getValue()).getAttributeTypes()[0]) + " :  ";
-                    logMsg += "Correlation= " + Arrays.deepToString(((StreamAttributeComposite) entry.getValue()).getAttributeTypes()[1]) + " :  ";
-                    logMsg += "Payload= " + Arrays.deepToString(((StreamAttributeComposite) entry.getValue()).getAttributeTypes()[2]) + "\n";
-                }
-                log.debug(logMsg);
-            }
-            updateDomainNameStreamTypeHolderCache();
-        }
-    }
-
     private synchronized void updateDomainNameStreamTypeHolderCache(
             StreamDefinition streamDefinition) {
         StreamTypeHolder streamTypeHolder = getStreamDefinitionHolder();
         streamTypeHolder.putStreamDefinition(streamDefinition);
     }
 
+    /**
+     * Adds the definition of the given stream to the stream type holder, when it is not there yet, by loading only
+     * that definition from the store. Used instead of reloading every definition whenever a stream is added or
+     * an unknown stream id is seen.
+     */
+    public void loadStreamDefinition(String streamId) {
+        if (getStreamDefinitionHolder().getAttributeComposite(streamId) != null) {
+            return;
+        }
+        StreamDefinition streamDefinition;
+        try {
+            streamDefinition = streamDefinitionStore.getStreamDefinition(streamId);
+        } catch (StreamDefinitionStoreException e) {
+            log.error("Error while loading the stream definition of " + streamId, e);
+            return;
+        }
+        if (streamDefinition != null) {
+            addStreamDefinitionToStreamTypeHolder(streamDefinition);
+        }
+    }
+
+    private synchronized void addStreamDefinitionToStreamTypeHolder(StreamDefinition streamDefinition) {
+        StreamTypeHolder streamTypeHolder = getStreamDefinitionHolder();
+        if (streamTypeHolder.getAttributeComposite(streamDefinition.getStreamId()) == null) {
+            streamTypeHolder.putStreamDefinition(streamDefinition);
+            for (AgentCallback agentCallback : subscribers) {
+                agentCallback.definedStream(streamDefinition);
+            }
+            for (RawDataAgentCallback agentCallback : rawDataSubscribers) {
+                agentCallback.definedStream(streamDefinition);
+            }
+        }
+    }
+
     public synchronized void reloadDomainNameStreamTypeHolderCache() {
         Collection<StreamDefinition> allStreamDefinitions =
                 streamDefinitionStore.getAllStreamDefinitions();
@@ -290,41 +308,6 @@ public class EventDispatcher {
         return streamTypeHolder;
     }
 
-    private synchronized StreamTypeHolder updateDomainNameStreamTypeHolderCache() {
-        if (null != streamTypeHolder) {
-            Collection<StreamDefinition> allStreamDefinitions =
-                    streamDefinitionStore.getAllStreamDefinitions();
-            if (null != allStreamDefinitions) {
-                for (StreamDefinition aStreamDefinition : allStreamDefinitions) {
-                    if (streamTypeHolder.getAttributeComposite(aStreamDefinition.getStreamId()) == null) {
-                        streamTypeHolder.putStreamDefinition(aStreamDefinition);
-                        for (AgentCallback agentCallback : subscribers) {
-                            agentCallback.definedStream(aStreamDefinition);
-                        }
-                        for (RawDataAgentCallback agentCallback : rawDataSubscribers) {
-                            agentCallback.definedStream(aStreamDefinition);
-                        }
-                    }
-                }
-
-                List<String> streamIdList = new ArrayList<String>();
-                for (StreamDefinition streamDefinition : allStreamDefinitions) {
-                    streamIdList.add(streamDefinition.getStreamId());
-                }
-
-                Iterator<String> streamIdIterator = streamTypeHolder.getAttributeCompositeMap().keySet().iterator();
-                while (streamIdIterator.hasNext()) {
-                    if (!streamIdList.contains(streamIdIterator.next())) {
-                        streamIdIterator.remove();
-                    }
-                }
-
-            }
-        }
-        return streamTypeHolder;
-    }
-
-
     public List<AgentCallback> getSubscribers() {
         return subscribers;
     }
@@ -336,12 +319,13 @@ public class EventDispatcher {
     public String findStreamId(String streamName, String streamVersion, AgentSession agentSession)
             throws StreamDefinitionStoreException {
 
-        //Updating the cache when calling the findStreamId to keep the sync between the stream manager and register with data publisher
-        //for CEP - need to review and fix
-        updateDomainNameStreamTypeHolderCache();
-        StreamTypeHolder streamTypeHolder = getStreamDefinitionHolder();
-        StreamAttributeComposite attributeComposite = streamTypeHolder.getAttributeComposite(
-                DataBridgeCommonsUtils.generateStreamId(streamName, streamVersion));
+        String streamId = DataBridgeCommonsUtils.generateStreamId(streamName, streamVersion);
+        StreamAttributeComposite attributeComposite = getStreamDefinitionHolder().getAttributeComposite(streamId);
+        if (attributeComposite == null) {
+            //Definitions added to the store directly, e.g. by the stream manager, are picked up here one at a time
+            loadStreamDefinition(streamId);
+            attributeComposite = getStreamDefinitionHolder().getAttributeComposite(streamId);
+        }
         if (attributeComposite != null) {
             return attributeComposite.getStreamDefinition().getStreamId();
         }
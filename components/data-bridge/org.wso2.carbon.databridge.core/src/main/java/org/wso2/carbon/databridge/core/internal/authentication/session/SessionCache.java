@@ -37,13 +37,21 @@ public class SessionCache {
     public SessionCache(int expirationTimeInMinutes) {
         cache = CacheBuilder.newBuilder()
                 .expireAfterWrite(expirationTimeInMinutes, TimeUnit.MINUTES)
-                .build(CacheLoader.from(new SessionFunction()));
+                .build(CacheLoader.from(new SessionFunction(TimeUnit.MINUTES.toMillis(expirationTimeInMinutes))));
     }
 
     static class SessionFunction implements Function<SessionBean, AgentSession> {
+        private final long expirationTimeInMillis;
+
+        SessionFunction(long expirationTimeInMillis) {
+            this.expirationTimeInMillis = expirationTimeInMillis;
+        }
+
         @Override
         public AgentSession apply(SessionBean sessionBean) {
-            return new AgentSession(sessionBean.getSessionId(), sessionBean.getCredentials());
+            AgentSession agentSession = new AgentSession(sessionBean.getSessionId(), sessionBean.getCredentials());
+            agentSession.setExpiresAt(agentSession.getCreatedAt() + expirationTimeInMillis);
+            return agentSession;
         }
     }
 
@@ -56,6 +64,11 @@ public class SessionCache {
     }
 
     public void removeSession(String sessionId) {
-        cache.invalidate(new SessionBean(sessionId));
+        SessionBean sessionBean = new SessionBean(sessionId);
+        AgentSession agentSession = cache.getIfPresent(sessionBean);
+        if (agentSession != null) {
+            agentSession.invalidate();
+        }
+        cache.invalidate(sessionBean);
     }
 }
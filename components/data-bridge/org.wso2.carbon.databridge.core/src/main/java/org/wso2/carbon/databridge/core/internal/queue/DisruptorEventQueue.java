@@ -0,0 +1,247 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.core.internal.queue;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.EventFactory;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.WorkHandler;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.databridge.commons.utils.DataBridgeThreadFactory;
+import org.wso2.carbon.databridge.core.AgentCallback;
+import org.wso2.carbon.databridge.core.RawDataAgentCallback;
+import org.wso2.carbon.databridge.core.Utils.DataBridgeUtils;
+import org.wso2.carbon.databridge.core.Utils.EventComposite;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Event queue backed by a preallocated ring buffer which is drained by a fixed set of long lived worker threads.
+ * Each event composite is processed by exactly one worker, as with the blocking queue, and producers are admitted
+ * while the queued event composites stay within the configured byte capacity.
+ * <p>
+ * When session ordering is enabled each worker owns a lane and event composites are assigned to lanes by the hash of
+ * their session id, so the subscribers receive the events of a session in the order they were received while
+ * different sessions are still processed in parallel. Event composites without a session have no order to keep and
+ * are spread over the lanes in turn.
+ * <p>
+ * The lanes share the ring buffer, and a slot is only reused once every lane has passed it. A lane that falls behind,
+ * for example because a subscriber is slow for the events of one session, therefore fills the ring buffer and holds
+ * back the producers of all sessions, not only those hashed to its lane.
+ */
+public class DisruptorEventQueue {
+
+    private static final Log log = LogFactory.getLog(DisruptorEventQueue.class);
+    private static final long CAPACITY_CHECK_INTERVAL_NS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Disruptor<EventCompositeHolder> disruptor;
+    private final RingBuffer<EventCompositeHolder> ringBuffer;
+    private final ExecutorService executorService;
+    private final long maxSize;
+    private final AtomicLong currentSize = new AtomicLong();
+    private final ReentrantLock capacityLock = new ReentrantLock();
+    private final Condition capacityAvailable = capacityLock.newCondition();
+    private final AtomicInteger waitingProducers = new AtomicInteger();
+    private final List<AgentCallback> subscribers;
+    private final List<RawDataAgentCallback> rawDataSubscribers;
+    private final boolean sessionOrdered;
+    private final int lanes;
+    private final AtomicInteger nextSessionlessLane = new AtomicInteger();
+
+    public DisruptorEventQueue(List<AgentCallback> subscribers,
+                               List<RawDataAgentCallback> rawDataSubscribers,
+                               int workerThreads, int eventBufferSize, int maxSizeCapacity) {
+        this(subscribers, rawDataSubscribers, workerThreads, eventBufferSize, maxSizeCapacity, false);
+    }
+
+    public DisruptorEventQueue(List<AgentCallback> subscribers,
+                               List<RawDataAgentCallback> rawDataSubscribers,
+                               int workerThreads, int eventBufferSize, int maxSizeCapacity,
+                               boolean sessionOrdered) {
+        this.subscribers = subscribers;
+        this.rawDataSubscribers = rawDataSubscribers;
+        this.maxSize = maxSizeCapacity;
+        this.sessionOrdered = sessionOrdered;
+        this.lanes = workerThreads;
+        this.executorService = Executors.newFixedThreadPool(workerThreads, new DataBridgeThreadFactory("Core"));
+        this.disruptor = new Disruptor<>(new EventCompositeHolderFactory(), getRingBufferSize(eventBufferSize),
+                executorService, ProducerType.MULTI, new BlockingWaitStrategy());
+        if (sessionOrdered) {
+            LaneEventHandler[] laneHandlers = new LaneEventHandler[workerThreads];
+            for (int i = 0; i < workerThreads; i++) {
+                laneHandlers[i] = new LaneEventHandler(i);
+            }
+            disruptor.handleEventsWith(laneHandlers);
+        } else {
+            QueueWorkHandler[] workHandlers = new QueueWorkHandler[workerThreads];
+            for (int i = 0; i < workerThreads; i++) {
+                workHandlers[i] = new QueueWorkHandler();
+            }
+            disruptor.handleEventsWithWorkerPool(workHandlers);
+        }
+        this.ringBuffer = disruptor.start();
+    }
+
+    public void publish(EventComposite eventComposite) {
+        eventComposite.setSize(DataBridgeUtils.getSize(eventComposite));
+        reserveCapacity(eventComposite.getSize());
+        long sequence = ringBuffer.next();
+        try {
+            EventCompositeHolder holder = ringBuffer.get(sequence);
+            holder.eventComposite = eventComposite;
+            if (sessionOrdered) {
+                holder.lane = getLane(eventComposite);
+            }
+        } finally {
+            ringBuffer.publish(sequence);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("current queue size in bytes : " + currentSize + " , remaining slots : "
+                    + ringBuffer.remainingCapacity());
+        }
+    }
+
+    public void shutdown() {
+        disruptor.shutdown();
+        executorService.shutdown();
+    }
+
+    /**
+     * Adds the size of an event composite to the queued bytes once they are below the capacity. The check and the
+     * addition are a single compare and set, so concurrent producers cannot all pass the check before any of them
+     * adds its size. An interrupted producer is admitted regardless of the capacity.
+     */
+    private void reserveCapacity(int size) {
+        while (true) {
+            long current = currentSize.get();
+            if (current >= maxSize) {
+                if (!awaitCapacity()) {
+                    currentSize.addAndGet(size);
+                    return;
+                }
+            } else if (currentSize.compareAndSet(current, current + size)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return false if the producer was interrupted while waiting
+     */
+    private boolean awaitCapacity() {
+        if (currentSize.get() < maxSize) {
+            return true;
+        }
+        capacityLock.lock();
+        waitingProducers.incrementAndGet();
+        try {
+            while (currentSize.get() >= maxSize) {
+                capacityAvailable.awaitNanos(CAPACITY_CHECK_INTERVAL_NS);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for space in the event queue");
+            return false;
+        } finally {
+            waitingProducers.decrementAndGet();
+            capacityLock.unlock();
+        }
+    }
+
+    private void releaseCapacity(int size) {
+        if (currentSize.addAndGet(-size) < maxSize && waitingProducers.get() > 0) {
+            capacityLock.lock();
+            try {
+                capacityAvailable.signalAll();
+            } finally {
+                capacityLock.unlock();
+            }
+        }
+    }
+
+    private int getLane(EventComposite eventComposite) {
+        String sessionId = eventComposite.getAgentSession() == null ? null :
+                eventComposite.getAgentSession().getSessionId();
+        if (sessionId == null) {
+            return (nextSessionlessLane.getAndIncrement() & Integer.MAX_VALUE) % lanes;
+        }
+        return (sessionId.hashCode() & Integer.MAX_VALUE) % lanes;
+    }
+
+    private void process(EventCompositeHolder holder) {
+        EventComposite eventComposite = holder.eventComposite;
+        holder.eventComposite = null;
+        releaseCapacity(eventComposite.getSize());
+        QueueWorker.dispatch(eventComposite, subscribers, rawDataSubscribers);
+    }
+
+    private static int getRingBufferSize(int eventBufferSize) {
+        int ringBufferSize = 1;
+        while (ringBufferSize < eventBufferSize) {
+            ringBufferSize <<= 1;
+        }
+        return ringBufferSize;
+    }
+
+    private static class EventCompositeHolder {
+        private EventComposite eventComposite;
+        private int lane;
+    }
+
+    private static class EventCompositeHolderFactory implements EventFactory<EventCompositeHolder> {
+        @Override
+        public EventCompositeHolder newInstance() {
+            return new EventCompositeHolder();
+        }
+    }
+
+    private class QueueWorkHandler implements WorkHandler<EventCompositeHolder> {
+
+        @Override
+        public void onEvent(EventCompositeHolder holder) {
+            process(holder);
+        }
+    }
+
+    private class LaneEventHandler implements EventHandler<EventCompositeHolder> {
+        private final int lane;
+
+        private LaneEventHandler(int lane) {
+            this.lane = lane;
+        }
+
+        @Override
+        public void onEvent(EventCompositeHolder holder, long sequence, boolean endOfBatch) {
+            if (holder.lane == lane) {
+                process(holder);
+            }
+        }
+    }
+}
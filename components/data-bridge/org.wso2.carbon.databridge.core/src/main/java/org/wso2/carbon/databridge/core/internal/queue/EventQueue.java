@@ -24,6 +24,7 @@ import org.wso2.carbon.databridge.core.AgentCallback;
 import org.wso2.carbon.databridge.core.RawDataAgentCallback;
 import org.wso2.carbon.databridge.core.Utils.EventComposite;
 import org.wso2.carbon.databridge.core.conf.DataBridgeConfiguration;
+import org.wso2.carbon.databridge.core.internal.utils.DataBridgeConstants;
 
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
@@ -41,6 +42,7 @@ public class EventQueue {
     private BlockingQueue<EventComposite> eventQueue;
 
     private ExecutorService executorService;
+    private DisruptorEventQueue disruptorEventQueue;
     private List<AgentCallback> subscribers;
     private List<RawDataAgentCallback> rawDataSubscribers;
 
@@ -49,6 +51,16 @@ public class EventQueue {
                       DataBridgeConfiguration dataBridgeConfiguration) {
         this.subscribers = subscribers;
         this.rawDataSubscribers = rawDataSubscribers;
+        boolean sessionOrdered = DataBridgeConstants.SESSION_DISPATCH_ORDER.equalsIgnoreCase(
+                dataBridgeConfiguration.getEventDispatchOrder());
+        if (sessionOrdered || DataBridgeConstants.DISRUPTOR_EVENT_QUEUE.equalsIgnoreCase(
+                dataBridgeConfiguration.getEventQueueType())) {
+            // Note : Ordered dispatch needs dedicated worker lanes, which only the disruptor based queue provides
+            disruptorEventQueue = new DisruptorEventQueue(subscribers, rawDataSubscribers,
+                    dataBridgeConfiguration.getWorkerThreads(), dataBridgeConfiguration.getEventBufferSize(),
+                    dataBridgeConfiguration.getMaxEventBufferCapacity(), sessionOrdered);
+            return;
+        }
         // Note : Using a fixed worker thread pool and a bounded queue to prevent the server dying if load is too high
         executorService = Executors.newFixedThreadPool(dataBridgeConfiguration.getWorkerThreads(), new DataBridgeThreadFactory("Core"));
         eventQueue = new EventBlockingQueue(dataBridgeConfiguration.getEventBufferSize(),
@@ -56,6 +68,10 @@ public class EventQueue {
     }
 
     public void publish(EventComposite eventComposite) {
+        if (disruptorEventQueue != null) {
+            disruptorEventQueue.publish(eventComposite);
+            return;
+        }
         try {
             eventQueue.put(eventComposite);
         } catch (InterruptedException e) {
@@ -67,7 +83,11 @@ public class EventQueue {
 
     @Override
     protected void finalize() throws Throwable {
-        executorService.shutdown();
+        if (disruptorEventQueue != null) {
+            disruptorEventQueue.shutdown();
+        } else {
+            executorService.shutdown();
+        }
         super.finalize();
     }
 }
@@ -22,6 +22,7 @@ import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.databridge.commons.Event;
 import org.wso2.carbon.databridge.core.AgentCallback;
 import org.wso2.carbon.databridge.core.RawDataAgentCallback;
+import org.wso2.carbon.databridge.core.ReleasableEventConverter;
 import org.wso2.carbon.databridge.core.Utils.EventComposite;
 import org.wso2.carbon.databridge.core.exception.EventConversionException;
 
@@ -47,17 +48,28 @@ public class QueueWorker implements Runnable {
     }
 
     public void run() {
+        if (log.isDebugEnabled()) {
+            // Useful log to determine if the server can handle the load
+            // If the numbers go above 1000+, then it probably will.
+            // Typically, for c = 300, n = 1000, the number stays < 100
+            log.debug(eventQueue.size() + " messages in queue before " +
+                      Thread.currentThread().getName() + " worker has polled queue");
+        }
+        dispatch(eventQueue.poll(), subscribers, rawDataSubscribers);
+        if (log.isDebugEnabled()) {
+            log.debug(eventQueue.size() + " messages in queue after " +
+                      Thread.currentThread().getName() + " worker has finished work");
+        }
+    }
+
+    /**
+     * Hands the given event composite over to the raw data subscribers and the converted events over to the
+     * subscribers, and releases the event bundle afterwards. Shared by all event queue implementations.
+     */
+    static void dispatch(EventComposite eventComposite, List<AgentCallback> subscribers,
+                         List<RawDataAgentCallback> rawDataSubscribers) {
         List<Event> eventList = null;
         try {
-            if (log.isDebugEnabled()) {
-                // Useful log to determine if the server can handle the load
-                // If the numbers go above 1000+, then it probably will.
-                // Typically, for c = 300, n = 1000, the number stays < 100
-                log.debug(eventQueue.size() + " messages in queue before " +
-                          Thread.currentThread().getName() + " worker has polled queue");
-            }
-            EventComposite eventComposite = eventQueue.poll();
-
             if (rawDataSubscribers.size() > 0) {
                 for (RawDataAgentCallback agentCallback : rawDataSubscribers) {
                     try {
@@ -82,17 +94,17 @@ public class QueueWorker implements Runnable {
                             log.error("Error in passing event eventList " + eventList + " to subscriber " + agentCallback, e);
                         }
                     }
-                    if (log.isDebugEnabled()) {
-                        log.debug(eventQueue.size() + " messages in queue after " +
-                                  Thread.currentThread().getName() + " worker has finished work");
-                    }
-
                 } catch (EventConversionException re) {
                     log.error("Dropping wrongly formatted event sent ", re);
                 }
             }
         } catch (Throwable e) {
             log.error("Error in passing events " + eventList + " to subscribers " + subscribers + " " + rawDataSubscribers, e);
+        } finally {
+            if (eventComposite != null && eventComposite.getEventConverter() instanceof ReleasableEventConverter) {
+                ((ReleasableEventConverter) eventComposite.getEventConverter()).release(
+                        eventComposite.getEventBundle());
+            }
         }
     }
 
@@ -32,6 +32,10 @@ public final class DataBridgeConstants {
     public static final int NO_OF_WORKER_THREADS = 10;
     public static final int EVENT_BUFFER_CAPACITY = 10000;
     public static final int CLIENT_TIMEOUT_MS = 30000;
+    public static final String BLOCKING_EVENT_QUEUE = "blocking";
+    public static final String DISRUPTOR_EVENT_QUEUE = "disruptor";
+    public static final String NO_DISPATCH_ORDER = "none";
+    public static final String SESSION_DISPATCH_ORDER = "session";
 
     public static final String STREAM_DEFINITIONS_XML = "stream-definitions.xml";
     public static final String DATA_BRIDGE_CONF_PASSWORD_ALIAS = "DataBridge.Config.keyStorePassword";
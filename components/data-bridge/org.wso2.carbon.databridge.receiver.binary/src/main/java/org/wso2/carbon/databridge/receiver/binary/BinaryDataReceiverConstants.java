@@ -31,11 +31,22 @@ public class BinaryDataReceiverConstants {
     public static final int DEFAULT_TCP_RECEIVER_THREAD_POOL_SIZE = 100;
     public static final int DEFAULT_SSL_RECEIVER_PORT = 9611;
     public static final int DEFAULT_TCP_RECEIVER_PORT = 9711;
+    public static final int DEFAULT_TCP_RECEIVER_IO_THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+    public static final int DEFAULT_MAX_MESSAGE_SIZE = 64 * 1024 * 1024;
     public static final String DATA_BRIDGE_RECEIVER_CONFIG_NAME = "Binary";
     public static final String SSL_RECEIVER_PORT_CONFIG_NAME = "sslPort";
     public static final String TCP_RECEIVER_PORT_CONFIG_NAME = "tcpPort";
     public static final String SSL_RECEIVER_THREAD_POOL_SIZE = "sslReceiverThreadPoolSize";
     public static final String TCP_RECEIVER_THREAD_POOL_SIZE = "tcpReceiverThreadPoolSize";
+    public static final String TCP_RECEIVER_MODE_CONFIG_NAME = "tcpReceiverMode";
+    public static final String TCP_RECEIVER_IO_THREAD_COUNT = "tcpReceiverIOThreadCount";
+    public static final String MAX_MESSAGE_SIZE_CONFIG_NAME = "maxMessageSize";
+    public static final String TCP_RECEIVER_MODE_BLOCKING = "blocking";
+    public static final String TCP_RECEIVER_MODE_NIO = "nio";
+    public static final String DEFAULT_TCP_RECEIVER_MODE = TCP_RECEIVER_MODE_BLOCKING;
+    public static final String MESSAGE_BUFFER_POOLING_CONFIG_NAME = "messageBufferPooling";
+    public static final String LAZY_EVENT_DECODING_CONFIG_NAME = "lazyEventDecoding";
+    public static final String PRECOMPILED_EVENT_DECODING_CONFIG_NAME = "precompiledEventDecoding";
     public static final String SSL_RECEIVER_PROTOCOLS_CONFIG_NAME = "sslEnabledProtocols";
     public static final String SSL_RECEIVER_CIPHERS_CONFIG_NAME = "ciphers";
     public static final String META_DATA_FIELD = "Meta Data";
@@ -0,0 +1,40 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.receiver.binary;
+
+/**
+ * Event bundle published by the binary receiver. The message array may be longer than the message when it is taken
+ * from the buffer pool, hence the bundle carries the actual message size along with it.
+ */
+public class BinaryEventBundle {
+    private final byte[] message;
+    private final int messageSize;
+
+    public BinaryEventBundle(byte[] message, int messageSize) {
+        this.message = message;
+        this.messageSize = messageSize;
+    }
+
+    public byte[] getMessage() {
+        return message;
+    }
+
+    public int getMessageSize() {
+        return messageSize;
+    }
+}
@@ -19,15 +19,18 @@ package org.wso2.carbon.databridge.receiver.binary;
 
 import org.wso2.carbon.databridge.commons.AttributeType;
 import org.wso2.carbon.databridge.commons.Event;
+import org.wso2.carbon.databridge.commons.binary.BinaryMessageConstants;
 import org.wso2.carbon.databridge.commons.binary.BinaryMessageConverterUtil;
 import org.wso2.carbon.databridge.commons.exception.MalformedEventException;
-import org.wso2.carbon.databridge.core.EventConverter;
+import org.wso2.carbon.databridge.core.ReleasableEventConverter;
 import org.wso2.carbon.databridge.core.StreamTypeHolder;
+import org.wso2.carbon.databridge.core.Utils.AgentSession;
 import org.wso2.carbon.databridge.core.exception.EventConversionException;
 import org.wso2.carbon.kernel.context.PrivilegedCarbonContext;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,63 +39,77 @@ import java.util.Map;
  * This class is a implementation EventConverter to create the event from the Binary message.
  * This is used within data bridge to create the event from the row message received.
  */
-public class BinaryEventConverter implements EventConverter {
-    private static BinaryEventConverter instance = new BinaryEventConverter();
+public class BinaryEventConverter implements ReleasableEventConverter {
+    private final BinaryMessageBufferPool bufferPool;
+    private final boolean lazyEventDecoding;
+    private final boolean precompiledEventDecoding;
+    private volatile String[] registeredStreamIds = new String[0];
+    private volatile AgentSession agentSession;
 
-    private BinaryEventConverter() {
+    private BinaryEventConverter(BinaryMessageBufferPool bufferPool, boolean lazyEventDecoding,
+                                 boolean precompiledEventDecoding) {
+        this.bufferPool = bufferPool;
+        this.lazyEventDecoding = lazyEventDecoding;
+        this.precompiledEventDecoding = precompiledEventDecoding;
     }
 
     @Override
     public List<Event> toEventList(Object eventBundle, StreamTypeHolder streamTypeHolder) {
 
-        ByteBuffer byteBuffer = ByteBuffer.wrap((byte[]) eventBundle);
+        BinaryEventBundle binaryEventBundle = (BinaryEventBundle) eventBundle;
+        int messageSize = binaryEventBundle.getMessageSize();
+        ByteBuffer byteBuffer = ByteBuffer.wrap(binaryEventBundle.getMessage(), 0, messageSize);
         int sessionIdSize = byteBuffer.getInt();
-        byteBuffer.get(new byte[sessionIdSize]);
+        byteBuffer.position(byteBuffer.position() + sessionIdSize);
         int events = byteBuffer.getInt();
 
-        List<Event> eventList = new ArrayList<>();
+        List<Event> eventList = new ArrayList<>(events);
         for (int i = 0; i < events; i++) {
             int eventSize = byteBuffer.getInt();
-            byte[] bytes= new byte[eventSize];
-            byteBuffer.get(bytes);
-            ByteBuffer eventByteBuffer = ByteBuffer.wrap(bytes);
-            eventList.add(getEvent(eventByteBuffer, streamTypeHolder));
+            int eventEnd = byteBuffer.position() + eventSize;
+            //Decode the event in place, limiting the buffer to the event so that arbitrary data ends with it
+            byteBuffer.limit(eventEnd);
+            if (lazyEventDecoding) {
+                eventList.add(getLazyEvent(byteBuffer, streamTypeHolder));
+            } else {
+                eventList.add(getEvent(byteBuffer, streamTypeHolder));
+            }
+            byteBuffer.limit(messageSize);
+            byteBuffer.position(eventEnd);
         }
         return eventList;
     }
 
     @Override
     public int getSize(Object eventBundle) {
-        return ((byte[])eventBundle).length;
+        return ((BinaryEventBundle) eventBundle).getMessageSize();
     }
 
     @Override
     public int getNumberOfEvents(Object eventBundle) {
-        ByteBuffer byteBuffer = ByteBuffer.wrap((byte[]) eventBundle);
+        ByteBuffer byteBuffer = ByteBuffer.wrap(((BinaryEventBundle) eventBundle).getMessage());
         int sessionIdSize = byteBuffer.getInt();
-        byteBuffer.get(new byte[sessionIdSize]);
-        return byteBuffer.getInt();
+        return byteBuffer.getInt(4 + sessionIdSize);
     }
 
     public Event getEvent(ByteBuffer byteBuffer, StreamTypeHolder streamTypeHolder) throws MalformedEventException {
         long timeStamp = byteBuffer.getLong();
-        int streamIdSize = byteBuffer.getInt();
-        String streamId = BinaryMessageConverterUtil.getString(byteBuffer, streamIdSize);
+        String streamId = getStreamId(byteBuffer);
 
         Event event = new Event();
         event.setStreamId(streamId);
         event.setTimeStamp(timeStamp);
 
-        AttributeType[][] attributeTypeOrder = streamTypeHolder.getDataType(event.getStreamId());
-        if (attributeTypeOrder == null) {
-            streamTypeHolder.reloadStreamTypeHolder();
-            attributeTypeOrder = streamTypeHolder.getDataType(event.getStreamId());
-            if (attributeTypeOrder == null) {
-                throw new EventConversionException("No StreamDefinition for streamId " + event.getStreamId()
-                        + " present in cache ");
-            }
-        }
+        AttributeType[][] attributeTypeOrder = getAttributeTypeOrder(streamId, streamTypeHolder);
 
+        if (precompiledEventDecoding) {
+            BinaryEventDecoder decoder = BinaryEventDecoder.getDecoder(streamId, attributeTypeOrder);
+            event.setMetaData(decoder.decode(0, byteBuffer));
+            event.setCorrelationData(decoder.decode(1, byteBuffer));
+            event.setPayloadData(decoder.decode(2, byteBuffer));
+            event.setArbitraryDataMap(this.toStringMap(byteBuffer));
+            return event;
+        }
         event.setMetaData(this.toObjectArray(byteBuffer, attributeTypeOrder[0],
                 BinaryDataReceiverConstants.META_DATA_FIELD));
         event.setCorrelationData(this.toObjectArray(byteBuffer, attributeTypeOrder[1],
@@ -103,6 +120,47 @@ public class BinaryEventConverter implements EventConverter {
         return event;
     }
 
+    /**
+     * Creates an event that decodes its attributes from the remaining bytes of the buffer only when they are
+     * accessed. The bytes are copied when the bundle is pooled, as the event may outlive the bundle's buffer.
+     */
+    private Event getLazyEvent(ByteBuffer byteBuffer, StreamTypeHolder streamTypeHolder) {
+        long timeStamp = byteBuffer.getLong();
+        String streamId = getStreamId(byteBuffer);
+        AttributeType[][] attributeTypeOrder = getAttributeTypeOrder(streamId, streamTypeHolder);
+
+        ByteBuffer attributeBuffer;
+        if (bufferPool != null) {
+            byte[] attributes = new byte[byteBuffer.remaining()];
+            byteBuffer.get(attributes);
+            attributeBuffer = ByteBuffer.wrap(attributes);
+        } else {
+            attributeBuffer = byteBuffer.slice();
+        }
+        return new BinaryLazyEvent(streamId, timeStamp, attributeBuffer, attributeTypeOrder, this);
+    }
+
+    private String getStreamId(ByteBuffer byteBuffer) {
+        int streamIdSize = byteBuffer.getInt();
+        if (streamIdSize < 0) {
+            return getRegisteredStreamId(-streamIdSize - 1);
+        }
+        return BinaryMessageConverterUtil.getString(byteBuffer, streamIdSize);
+    }
+
+    private AttributeType[][] getAttributeTypeOrder(String streamId, StreamTypeHolder streamTypeHolder) {
+        AttributeType[][] attributeTypeOrder = streamTypeHolder.getDataType(streamId);
+        if (attributeTypeOrder == null) {
+            streamTypeHolder.reloadStreamTypeHolder(streamId);
+            attributeTypeOrder = streamTypeHolder.getDataType(streamId);
+            if (attributeTypeOrder == null) {
+                throw new EventConversionException("No StreamDefinition for streamId " + streamId
+                        + " present in cache ");
+            }
+        }
+        return attributeTypeOrder;
+    }
+
     public Object[] toObjectArray(ByteBuffer byteBuffer,
                                   AttributeType[] attributeTypeOrder,
                                   String type) {
@@ -161,8 +219,77 @@ public class BinaryEventConverter implements EventConverter {
         return null;
     }
 
-    public static BinaryEventConverter getConverter() {
-        return instance;
+    /**
+     * Registers a stream id under the handle the publisher will use for it on this connection. The registrations
+     * are copied on write, as the events referring to them are converted by the core worker threads. A handle is
+     * never bound to another stream id, as events already queued may still refer to it.
+     */
+    public void registerStreamId(int handle, String streamId) {
+        if (handle < 0 || handle >= BinaryMessageConstants.MAX_STREAM_ID_HANDLES) {
+            throw new MalformedEventException("Invalid stream id handle " + handle + " for stream id " + streamId);
+        }
+        String[] streamIds = registeredStreamIds;
+        if (handle < streamIds.length && streamIds[handle] != null) {
+            if (!streamIds[handle].equals(streamId)) {
+                throw new MalformedEventException("Stream id handle " + handle + " is already registered for " +
+                        streamIds[handle] + ", hence cannot be registered for " + streamId);
+            }
+            return;
+        }
+        if (handle < streamIds.length) {
+            streamIds = streamIds.clone();
+        } else {
+            streamIds = Arrays.copyOf(streamIds, handle + 1);
+        }
+        streamIds[handle] = streamId;
+        registeredStreamIds = streamIds;
+    }
+
+    /**
+     * The session last published with on this connection, kept so that it need not be looked up for every bundle.
+     */
+    public AgentSession getAgentSession() {
+        return agentSession;
+    }
+
+    public void setAgentSession(AgentSession agentSession) {
+        this.agentSession = agentSession;
+    }
+
+    private String getRegisteredStreamId(int handle) {
+        String[] streamIds = registeredStreamIds;
+        if (handle >= streamIds.length || streamIds[handle] == null) {
+            throw new MalformedEventException("Stream id handle " + handle + " is not registered on this connection");
+        }
+        return streamIds[handle];
+    }
+
+    /**
+     * Returns the bundle's buffer to the pool it was taken from, if any.
+     */
+    @Override
+    public void release(Object eventBundle) {
+        if (bufferPool != null) {
+            bufferPool.release(((BinaryEventBundle) eventBundle).getMessage());
+        }
+    }
+
+    /**
+     * Drops the precompiled decoder of a removed stream, so that decoders are not kept for streams that no longer
+     * exist.
+     */
+    public static void streamRemoved(String streamId) {
+        BinaryEventDecoder.removeDecoder(streamId);
+    }
+
+    /**
+     * @return a new connection converter, which decodes the attributes of eagerly decoded events with decoders built
+     * once per stream definition when precompiledEventDecoding is true
+     */
+    public static BinaryEventConverter newConnectionConverter(BinaryMessageBufferPool bufferPool,
+                                                              boolean lazyEventDecoding,
+                                                              boolean precompiledEventDecoding) {
+        return new BinaryEventConverter(bufferPool, lazyEventDecoding, precompiledEventDecoding);
     }
 
 }
@@ -0,0 +1,166 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.receiver.binary;
+
+import org.wso2.carbon.databridge.commons.AttributeType;
+import org.wso2.carbon.databridge.commons.binary.BinaryMessageConverterUtil;
+import org.wso2.carbon.databridge.core.exception.EventConversionException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decodes the attributes of the events of one stream. The attribute types of the stream are resolved once, when the
+ * decoder is built, into a method handle per attribute group that reads each attribute in order, so decoding an
+ * event does not switch on the type of every attribute.
+ * <p>
+ * Decoders are shared by all connections, are rebuilt when the definition of their stream changes and are dropped
+ * when their stream is removed.
+ */
+final class BinaryEventDecoder {
+    private static final ConcurrentHashMap<String, BinaryEventDecoder> decoders = new ConcurrentHashMap<>();
+    private static final Map<AttributeType, MethodHandle> attributeReaders = new EnumMap<>(AttributeType.class);
+    private static final MethodHandle NEW_ATTRIBUTE_ARRAY;
+    private static final MethodHandle SET_ATTRIBUTE = MethodHandles.arrayElementSetter(Object[].class);
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodType readerType = MethodType.methodType(Object.class, ByteBuffer.class);
+        try {
+            attributeReaders.put(AttributeType.INT, lookup.findStatic(BinaryEventDecoder.class, "readInt", readerType));
+            attributeReaders.put(AttributeType.LONG, lookup.findStatic(BinaryEventDecoder.class, "readLong", readerType));
+            attributeReaders.put(AttributeType.STRING, lookup.findStatic(BinaryEventDecoder.class, "readString",
+                    readerType));
+            attributeReaders.put(AttributeType.DOUBLE, lookup.findStatic(BinaryEventDecoder.class, "readDouble",
+                    readerType));
+            attributeReaders.put(AttributeType.FLOAT, lookup.findStatic(BinaryEventDecoder.class, "readFloat",
+                    readerType));
+            attributeReaders.put(AttributeType.BOOL, lookup.findStatic(BinaryEventDecoder.class, "readBool", readerType));
+            NEW_ATTRIBUTE_ARRAY = lookup.findStatic(BinaryEventDecoder.class, "newAttributeArray",
+                    MethodType.methodType(Object[].class, int.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final AttributeType[][] attributeTypeOrder;
+    private final MethodHandle[] groupDecoders;
+
+    private BinaryEventDecoder(AttributeType[][] attributeTypeOrder) {
+        this.attributeTypeOrder = attributeTypeOrder;
+        this.groupDecoders = new MethodHandle[attributeTypeOrder.length];
+        for (int i = 0; i < attributeTypeOrder.length; i++) {
+            groupDecoders[i] = buildGroupDecoder(attributeTypeOrder[i]);
+        }
+    }
+
+    /**
+     * @return the decoder of the given stream, building it if the stream has none yet or if the attribute types it
+     * was built for are no longer the stream's current ones
+     */
+    static BinaryEventDecoder getDecoder(String streamId, AttributeType[][] attributeTypeOrder) {
+        BinaryEventDecoder decoder = decoders.get(streamId);
+        if (decoder == null || decoder.attributeTypeOrder != attributeTypeOrder) {
+            decoder = new BinaryEventDecoder(attributeTypeOrder);
+            decoders.put(streamId, decoder);
+        }
+        return decoder;
+    }
+
+    static void removeDecoder(String streamId) {
+        decoders.remove(streamId);
+    }
+
+    /**
+     * Reads the attributes of the given group, i.e. meta, correlation or payload data, from the buffer.
+     *
+     * @return the attribute values, or null if the stream does not define the group
+     */
+    Object[] decode(int group, ByteBuffer byteBuffer) {
+        MethodHandle groupDecoder = groupDecoders[group];
+        if (groupDecoder == null) {
+            return null;
+        }
+        try {
+            return (Object[]) groupDecoder.invokeExact(byteBuffer);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new EventConversionException("Error while decoding the event attributes", t);
+        }
+    }
+
+    /**
+     * Composes a handle of type (ByteBuffer)Object[] that creates the attribute array and then, for each attribute
+     * in order, reads it with the reader of its type and stores it at its index.
+     */
+    private static MethodHandle buildGroupDecoder(AttributeType[] attributeTypes) {
+        if (attributeTypes == null) {
+            return null;
+        }
+        MethodHandle decoder = MethodHandles.dropArguments(MethodHandles.identity(Object[].class), 1,
+                ByteBuffer.class);
+        //Folded from the last attribute, as the outermost fold is the first to run
+        for (int i = attributeTypes.length - 1; i >= 0; i--) {
+            MethodHandle setAttribute = MethodHandles.insertArguments(SET_ATTRIBUTE, 1, i);
+            MethodHandle readAttribute = MethodHandles.filterArguments(setAttribute, 1,
+                    attributeReaders.get(attributeTypes[i]));
+            decoder = MethodHandles.foldArguments(decoder, readAttribute);
+        }
+        MethodHandle newAttributeArray = MethodHandles.dropArguments(
+                MethodHandles.insertArguments(NEW_ATTRIBUTE_ARRAY, 0, attributeTypes.length), 0, ByteBuffer.class);
+        return MethodHandles.foldArguments(decoder, newAttributeArray);
+    }
+
+    private static Object[] newAttributeArray(int size) {
+        return new Object[size];
+    }
+
+    private static Object readInt(ByteBuffer byteBuffer) {
+        return byteBuffer.getInt();
+    }
+
+    private static Object readLong(ByteBuffer byteBuffer) {
+        return byteBuffer.getLong();
+    }
+
+    private static Object readString(ByteBuffer byteBuffer) {
+        int stringSize = byteBuffer.getInt();
+        if (stringSize == 0) {
+            return null;
+        }
+        return BinaryMessageConverterUtil.getString(byteBuffer, stringSize);
+    }
+
+    private static Object readDouble(ByteBuffer byteBuffer) {
+        return byteBuffer.getDouble();
+    }
+
+    private static Object readFloat(ByteBuffer byteBuffer) {
+        return byteBuffer.getFloat();
+    }
+
+    private static Object readBool(ByteBuffer byteBuffer) {
+        return byteBuffer.get() == 1;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.receiver.binary;
+
+import org.wso2.carbon.databridge.commons.AttributeType;
+import org.wso2.carbon.databridge.commons.Event;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Event that keeps the binary encoded attributes of a received event and decodes the meta, correlation, payload and
+ * arbitrary data separately when they are first accessed. Subscribers that only look at some of them, or only at
+ * the stream id and timestamp, therefore do not pay for decoding the rest. Decoding works on duplicates of the
+ * buffer, so a lazy event may be read from several threads.
+ */
+class BinaryLazyEvent extends Event {
+    private final ByteBuffer attributeBuffer;
+    private final AttributeType[][] attributeTypeOrder;
+    private final BinaryEventConverter eventConverter;
+    private volatile boolean metaDataDecoded;
+    private volatile boolean correlationDataDecoded;
+    private volatile boolean payloadDataDecoded;
+    private volatile boolean arbitraryDataDecoded;
+
+    /**
+     * @param attributeBuffer buffer holding only the encoded attributes of the event, starting at position 0
+     */
+    BinaryLazyEvent(String streamId, long timeStamp, ByteBuffer attributeBuffer,
+                    AttributeType[][] attributeTypeOrder, BinaryEventConverter eventConverter) {
+        setStreamId(streamId);
+        setTimeStamp(timeStamp);
+        this.attributeBuffer = attributeBuffer;
+        this.attributeTypeOrder = attributeTypeOrder;
+        this.eventConverter = eventConverter;
+    }
+
+    @Override
+    public Object[] getMetaData() {
+        if (!metaDataDecoded) {
+            super.setMetaData(eventConverter.toObjectArray(getAttributeBuffer(0), attributeTypeOrder[0],
+                    BinaryDataReceiverConstants.META_DATA_FIELD));
+            metaDataDecoded = true;
+        }
+        return super.getMetaData();
+    }
+
+    @Override
+    public void setMetaData(Object[] metaData) {
+        super.setMetaData(metaData);
+        metaDataDecoded = true;
+    }
+
+    @Override
+    public Object[] getCorrelationData() {
+        if (!correlationDataDecoded) {
+            super.setCorrelationData(eventConverter.toObjectArray(getAttributeBuffer(1), attributeTypeOrder[1],
+                    BinaryDataReceiverConstants.CORRELATION_DATA_FIELD));
+            correlationDataDecoded = true;
+        }
+        return super.getCorrelationData();
+    }
+
+    @Override
+    public void setCorrelationData(Object[] correlationData) {
+        super.setCorrelationData(correlationData);
+        correlationDataDecoded = true;
+    }
+
+    @Override
+    public Object[] getPayloadData() {
+        if (!payloadDataDecoded) {
+            super.setPayloadData(eventConverter.toObjectArray(getAttributeBuffer(2), attributeTypeOrder[2],
+                    BinaryDataReceiverConstants.PAYLOAD_DATA_FIELD));
+            payloadDataDecoded = true;
+        }
+        return super.getPayloadData();
+    }
+
+    @Override
+    public void setPayloadData(Object[] payloadData) {
+        super.setPayloadData(payloadData);
+        payloadDataDecoded = true;
+    }
+
+    @Override
+    public Map<String, String> getArbitraryDataMap() {
+        if (!arbitraryDataDecoded) {
+            super.setArbitraryDataMap(eventConverter.toStringMap(getAttributeBuffer(3)));
+            arbitraryDataDecoded = true;
+        }
+        return super.getArbitraryDataMap();
+    }
+
+    @Override
+    public void setArbitraryDataMap(Map<String, String> arbitraryDataMap) {
+        super.setArbitraryDataMap(arbitraryDataMap);
+        arbitraryDataDecoded = true;
+    }
+
+    /**
+     * @return a duplicate of the attribute buffer positioned at the given attribute group, skipping the groups
+     * before it without decoding them
+     */
+    private ByteBuffer getAttributeBuffer(int attributeGroup) {
+        ByteBuffer byteBuffer = attributeBuffer.duplicate();
+        for (int i = 0; i < attributeGroup; i++) {
+            AttributeType[] attributeTypes = attributeTypeOrder[i];
+            if (attributeTypes == null) {
+                continue;
+            }
+            for (AttributeType attributeType : attributeTypes) {
+                switch (attributeType) {
+                    case INT:
+                    case FLOAT:
+                        byteBuffer.position(byteBuffer.position() + 4);
+                        break;
+                    case LONG:
+                    case DOUBLE:
+                        byteBuffer.position(byteBuffer.position() + 8);
+                        break;
+                    case BOOL:
+                        byteBuffer.position(byteBuffer.position() + 1);
+                        break;
+                    case STRING:
+                        int stringSize = byteBuffer.getInt();
+                        byteBuffer.position(byteBuffer.position() + stringSize);
+                        break;
+                }
+            }
+        }
+        return byteBuffer;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.receiver.binary;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of message buffers in power of two size classes. A buffer is at least as long as the requested size, hence
+ * the users of a pooled buffer must track the actual message size themselves. Messages larger than the biggest size
+ * class are allocated on demand and never pooled.
+ */
+public class BinaryMessageBufferPool {
+    private static final int MIN_SIZE_CLASS_SHIFT = 10;
+    private static final int MAX_SIZE_CLASS_SHIFT = 20;
+    private static final int MAX_RETAINED_BYTES_PER_SIZE_CLASS = 8 * 1024 * 1024;
+
+    private final SizeClass[] sizeClasses = new SizeClass[MAX_SIZE_CLASS_SHIFT - MIN_SIZE_CLASS_SHIFT + 1];
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public BinaryMessageBufferPool() {
+        for (int i = 0; i < sizeClasses.length; i++) {
+            sizeClasses[i] = new SizeClass(1 << (MIN_SIZE_CLASS_SHIFT + i));
+        }
+    }
+
+    /**
+     * @return a buffer of at least the given size, its content is undefined
+     */
+    public byte[] acquire(int size) {
+        SizeClass sizeClass = getSizeClass(size);
+        if (sizeClass == null) {
+            missCount.incrementAndGet();
+            return new byte[size];
+        }
+        byte[] buffer = sizeClass.buffers.poll();
+        if (buffer != null) {
+            sizeClass.retainedCount.decrementAndGet();
+            hitCount.incrementAndGet();
+            return buffer;
+        }
+        missCount.incrementAndGet();
+        return new byte[sizeClass.bufferSize];
+    }
+
+    /**
+     * Returns a buffer to the pool. The caller must not use the buffer afterwards.
+     */
+    public void release(byte[] buffer) {
+        SizeClass sizeClass = getSizeClass(buffer.length);
+        if (sizeClass == null || sizeClass.bufferSize != buffer.length) {
+            return;
+        }
+        if (sizeClass.retainedCount.incrementAndGet() <= sizeClass.maxRetainedCount) {
+            sizeClass.buffers.offer(buffer);
+        } else {
+            sizeClass.retainedCount.decrementAndGet();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private SizeClass getSizeClass(int size) {
+        if (size <= 0) {
+            return sizeClasses[0];
+        }
+        int shift = 32 - Integer.numberOfLeadingZeros(size - 1);
+        if (shift > MAX_SIZE_CLASS_SHIFT) {
+            return null;
+        }
+        return sizeClasses[Math.max(shift, MIN_SIZE_CLASS_SHIFT) - MIN_SIZE_CLASS_SHIFT];
+    }
+
+    private static class SizeClass {
+        private final int bufferSize;
+        private final int maxRetainedCount;
+        private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<byte[]>();
+        private final AtomicInteger retainedCount = new AtomicInteger();
+
+        private SizeClass(int bufferSize) {
+            this.bufferSize = bufferSize;
+            this.maxRetainedCount = Math.max(2, MAX_RETAINED_BYTES_PER_SIZE_CLASS / bufferSize);
+        }
+    }
+}
@@ -32,12 +32,21 @@ public class BinaryDataReceiverConfiguration {
     private int sizeOfTCPThreadPool;
     private String sslProtocols;
     private String ciphers;
+    private String tcpReceiverMode;
+    private int tcpReceiverIOThreadCount;
+    private int maxMessageSize;
+    private boolean messageBufferPooling;
+    private boolean lazyEventDecoding;
+    private boolean precompiledEventDecoding;
 
     public BinaryDataReceiverConfiguration(int sslPort, int tcpPort) {
         this.sslPort = sslPort;
         this.tcpPort = tcpPort;
         this.sizeOfSSLThreadPool = BinaryDataReceiverConstants.DEFAULT_SSL_RECEIVER_THREAD_POOL_SIZE;
         this.sizeOfTCPThreadPool = BinaryDataReceiverConstants.DEFAULT_TCP_RECEIVER_THREAD_POOL_SIZE;
+        this.tcpReceiverMode = BinaryDataReceiverConstants.DEFAULT_TCP_RECEIVER_MODE;
+        this.tcpReceiverIOThreadCount = BinaryDataReceiverConstants.DEFAULT_TCP_RECEIVER_IO_THREAD_COUNT;
+        this.maxMessageSize = BinaryDataReceiverConstants.DEFAULT_MAX_MESSAGE_SIZE;
     }
 
     public BinaryDataReceiverConfiguration(DataBridgeConfiguration dataBridgeConfiguration) {
@@ -55,6 +64,18 @@ public class BinaryDataReceiverConfiguration {
                 BinaryDataReceiverConstants.SSL_RECEIVER_PROTOCOLS_CONFIG_NAME);
         String ciphers = dataReceiverConfiguration.getProperties().get(
                 BinaryDataReceiverConstants.SSL_RECEIVER_CIPHERS_CONFIG_NAME);
+        String tcpReceiverMode = dataReceiverConfiguration.getProperties().get(
+                BinaryDataReceiverConstants.TCP_RECEIVER_MODE_CONFIG_NAME);
+        String tcpReceiverIOThreadCount = dataReceiverConfiguration.getProperties().get(
+                BinaryDataReceiverConstants.TCP_RECEIVER_IO_THREAD_COUNT);
+        String maxMessageSize = dataReceiverConfiguration.getProperties().get(
+                BinaryDataReceiverConstants.MAX_MESSAGE_SIZE_CONFIG_NAME);
+        String messageBufferPooling = dataReceiverConfiguration.getProperties().get(
+                BinaryDataReceiverConstants.MESSAGE_BUFFER_POOLING_CONFIG_NAME);
+        String lazyEventDecoding = dataReceiverConfiguration.getProperties().get(
+                BinaryDataReceiverConstants.LAZY_EVENT_DECODING_CONFIG_NAME);
+        String precompiledEventDecoding = dataReceiverConfiguration.getProperties().get(
+                BinaryDataReceiverConstants.PRECOMPILED_EVENT_DECODING_CONFIG_NAME);
 
 
         if (sslPortConfiguration != null && !sslPortConfiguration.trim().isEmpty()) {
@@ -89,6 +110,35 @@ public class BinaryDataReceiverConfiguration {
             this.ciphers = ciphers;
         }
 
+        if (tcpReceiverMode != null && !tcpReceiverMode.trim().isEmpty()) {
+            this.tcpReceiverMode = tcpReceiverMode.trim();
+        } else {
+            this.tcpReceiverMode = BinaryDataReceiverConstants.DEFAULT_TCP_RECEIVER_MODE;
+        }
+
+        if (tcpReceiverIOThreadCount != null && !tcpReceiverIOThreadCount.trim().isEmpty()) {
+            this.tcpReceiverIOThreadCount = Integer.parseInt(tcpReceiverIOThreadCount.trim());
+        } else {
+            this.tcpReceiverIOThreadCount = BinaryDataReceiverConstants.DEFAULT_TCP_RECEIVER_IO_THREAD_COUNT;
+        }
+
+        if (maxMessageSize != null && !maxMessageSize.trim().isEmpty()) {
+            this.maxMessageSize = Integer.parseInt(maxMessageSize.trim());
+        } else {
+            this.maxMessageSize = BinaryDataReceiverConstants.DEFAULT_MAX_MESSAGE_SIZE;
+        }
+
+        if (messageBufferPooling != null && !messageBufferPooling.trim().isEmpty()) {
+            this.messageBufferPooling = Boolean.parseBoolean(messageBufferPooling.trim());
+        }
+
+        if (lazyEventDecoding != null && !lazyEventDecoding.trim().isEmpty()) {
+            this.lazyEventDecoding = Boolean.parseBoolean(lazyEventDecoding.trim());
+        }
+
+        if (precompiledEventDecoding != null && !precompiledEventDecoding.trim().isEmpty()) {
+            this.precompiledEventDecoding = Boolean.parseBoolean(precompiledEventDecoding.trim());
+        }
     }
 
     private static int getPortOffset() {
@@ -119,4 +169,75 @@ public class BinaryDataReceiverConfiguration {
     public String getCiphers() {
         return ciphers;
     }
+
+    public String getTCPReceiverMode() {
+        return tcpReceiverMode;
+    }
+
+    public void setTCPReceiverMode(String tcpReceiverMode) {
+        this.tcpReceiverMode = tcpReceiverMode;
+    }
+
+    /**
+     * @return true if the TCP transport should multiplex connections on selector based I/O threads instead of
+     * dedicating a pooled thread to each connection.
+     */
+    public boolean isNioTCPReceiver() {
+        return BinaryDataReceiverConstants.TCP_RECEIVER_MODE_NIO.equalsIgnoreCase(tcpReceiverMode);
+    }
+
+    public int getTCPReceiverIOThreadCount() {
+        return tcpReceiverIOThreadCount;
+    }
+
+    public void setTCPReceiverIOThreadCount(int tcpReceiverIOThreadCount) {
+        this.tcpReceiverIOThreadCount = tcpReceiverIOThreadCount;
+    }
+
+    /**
+     * @return the largest message, in bytes, accepted from a publisher. Connections announcing a larger message are
+     * closed before any buffer is allocated for it.
+     */
+    public int getMaxMessageSize() {
+        return maxMessageSize;
+    }
+
+    public void setMaxMessageSize(int maxMessageSize) {
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    /**
+     * @return true if received messages should be read into pooled buffers, which are reused once the core has
+     * processed them. Raw data subscribers must then not keep references to the event bundles.
+     */
+    public boolean isMessageBufferPooling() {
+        return messageBufferPooling;
+    }
+
+    public void setMessageBufferPooling(boolean messageBufferPooling) {
+        this.messageBufferPooling = messageBufferPooling;
+    }
+
+    /**
+     * @return true if received events should decode their attributes only when the subscribers access them
+     */
+    public boolean isLazyEventDecoding() {
+        return lazyEventDecoding;
+    }
+
+    public void setLazyEventDecoding(boolean lazyEventDecoding) {
+        this.lazyEventDecoding = lazyEventDecoding;
+    }
+
+    /**
+     * @return true if received events should be decoded with decoders built once per stream definition, instead of
+     * switching on the type of each attribute of every event
+     */
+    public boolean isPrecompiledEventDecoding() {
+        return precompiledEventDecoding;
+    }
+
+    public void setPrecompiledEventDecoding(boolean precompiledEventDecoding) {
+        this.precompiledEventDecoding = precompiledEventDecoding;
+    }
 }
@@ -21,9 +21,15 @@ package org.wso2.carbon.databridge.receiver.binary.internal;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.databridge.commons.binary.BinaryMessageConstants;
+import org.wso2.carbon.databridge.commons.exception.MalformedEventException;
+import org.wso2.carbon.databridge.commons.exception.SessionTimeoutException;
 import org.wso2.carbon.databridge.core.DataBridgeReceiverService;
+import org.wso2.carbon.databridge.core.Utils.AgentSession;
+import org.wso2.carbon.databridge.core.definitionstore.StreamAddRemoveListener;
 import org.wso2.carbon.databridge.core.exception.DataBridgeException;
+import org.wso2.carbon.databridge.receiver.binary.BinaryEventBundle;
 import org.wso2.carbon.databridge.receiver.binary.BinaryEventConverter;
+import org.wso2.carbon.databridge.receiver.binary.BinaryMessageBufferPool;
 import org.wso2.carbon.databridge.receiver.binary.conf.BinaryDataReceiverConfiguration;
 
 import javax.net.ServerSocketFactory;
@@ -38,6 +44,8 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.util.concurrent.ExecutorService;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 import static org.wso2.carbon.databridge.commons.binary.BinaryMessageConverterUtil.loadData;
 
@@ -46,10 +54,21 @@ import static org.wso2.carbon.databridge.commons.binary.BinaryMessageConverterUt
  */
 public class BinaryDataReceiver {
     private static final Log log = LogFactory.getLog(BinaryDataReceiver.class);
+    //The session id length and the trailing sequence number
+    private static final int SEQUENCED_PUBLISH_MIN_SIZE = 4 + 8;
+    private static final ThreadLocal<Inflater> INFLATER = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater();
+        }
+    };
     private DataBridgeReceiverService dataBridgeReceiverService;
     private BinaryDataReceiverConfiguration binaryDataReceiverConfiguration;
     private ExecutorService sslReceiverExecutorService;
     private ExecutorService tcpReceiverExecutorService;
+    private BinaryNioEventServer nioEventServer;
+    private BinaryMessageBufferPool bufferPool;
+    private StreamAddRemoveListener decoderRemover;
 
     public BinaryDataReceiver(BinaryDataReceiverConfiguration binaryDataReceiverConfiguration,
                               DataBridgeReceiverService dataBridgeReceiverService) {
@@ -59,17 +78,45 @@ public class BinaryDataReceiver {
                 getSizeOfSSLThreadPool(), "Receiver-Binary-SSL");
         this.tcpReceiverExecutorService = new BinaryDataReceiverThreadPoolExecutor(binaryDataReceiverConfiguration.
                 getSizeOfTCPThreadPool(), "Receiver-Binary-TCP");
+        if (binaryDataReceiverConfiguration.isMessageBufferPooling()) {
+            this.bufferPool = new BinaryMessageBufferPool();
+        }
     }
 
     public void start() throws IOException, DataBridgeException {
+        if (binaryDataReceiverConfiguration.isPrecompiledEventDecoding()) {
+            decoderRemover = new StreamAddRemoveListener() {
+                @Override
+                public void streamAdded(String streamId) {
+                }
+
+                @Override
+                public void streamRemoved(String streamId) {
+                    BinaryEventConverter.streamRemoved(streamId);
+                }
+            };
+            dataBridgeReceiverService.subscribe(decoderRemover);
+        }
         startSecureTransmission();
-        startEventTransmission();
+        if (binaryDataReceiverConfiguration.isNioTCPReceiver()) {
+            startNioEventTransmission();
+        } else {
+            startEventTransmission();
+        }
     }
 
     public void stop() {
         log.info("Stopping Binary Server..");
+        if (nioEventServer != null) {
+            nioEventServer.stop();
+            nioEventServer = null;
+        }
         sslReceiverExecutorService.shutdown();
         tcpReceiverExecutorService.shutdown();
+        if (decoderRemover != null) {
+            dataBridgeReceiverService.unsubscribe(decoderRemover);
+            decoderRemover = null;
+        }
     }
 
     private void startSecureTransmission() throws IOException, DataBridgeException {
@@ -136,76 +183,276 @@ public class BinaryDataReceiver {
         log.info("Started Binary TCP Transport on port : " + binaryDataReceiverConfiguration.getTCPPort());
     }
 
-    private String processMessage(int messageType, byte[] message, OutputStream outputStream) {
+    private void startNioEventTransmission() throws IOException {
+        nioEventServer = new BinaryNioEventServer(this, binaryDataReceiverConfiguration.getTCPPort(),
+                binaryDataReceiverConfiguration.getTCPReceiverIOThreadCount(),
+                binaryDataReceiverConfiguration.getSizeOfTCPThreadPool());
+        nioEventServer.start();
+        log.info("Started Binary TCP Transport in NIO mode with " + binaryDataReceiverConfiguration.
+                getTCPReceiverIOThreadCount() + " I/O threads on port : " + binaryDataReceiverConfiguration.getTCPPort());
+    }
+
+    /**
+     * Processes a single message. The message array may be longer than the message, when it is taken from the
+     * buffer pool, and is released here unless it is handed over to the core as a published event bundle. A bundle
+     * that the core rejected is released here too, as it was never dispatched.
+     */
+    String processMessage(int messageType, byte[] message, int messageSize, OutputStream outputStream,
+                          BinaryEventConverter eventConverter) {
         ByteBuffer byteBuffer = ByteBuffer.wrap(message);
         int sessionIdLength;
         String sessionId;
+        boolean published = false;
 
-        switch (messageType) {
-            case 0: //Login
-                int userNameLength = byteBuffer.getInt();
-                int passwordLength = byteBuffer.getInt();
+        try {
+            switch (messageType) {
+                case 0: //Login
+                    int userNameLength = byteBuffer.getInt();
+                    int passwordLength = byteBuffer.getInt();
 
-                String userName = new String(message, 8, userNameLength);
-                String password = new String(message, 8 + userNameLength, passwordLength);
+                    String userName = new String(message, 8, userNameLength);
+                    String password = new String(message, 8 + userNameLength, passwordLength);
 
-                try {
-                    sessionId = dataBridgeReceiverService.login(userName, password);
-
-                    ByteBuffer buffer = ByteBuffer.allocate(5 + sessionId.length());
-                    buffer.put((byte) 2);
-                    buffer.putInt(sessionId.length());
-                    buffer.put(sessionId.getBytes(BinaryMessageConstants.DEFAULT_CHARSET));
-
-                    outputStream.write(buffer.array());
-                    outputStream.flush();
-                } catch (Exception e) {
                     try {
-                        sendError(e, outputStream);
-                    } catch (IOException e1) {
-                        log.error("Error while sending response for login message: " + e1.getMessage(), e1);
+                        sessionId = dataBridgeReceiverService.login(userName, password);
+
+                        ByteBuffer buffer = ByteBuffer.allocate(5 + sessionId.length());
+                        buffer.put((byte) 2);
+                        buffer.putInt(sessionId.length());
+                        buffer.put(sessionId.getBytes(BinaryMessageConstants.DEFAULT_CHARSET));
+
+                        outputStream.write(buffer.array());
+                        outputStream.flush();
+                    } catch (Exception e) {
+                        try {
+                            sendError(e, outputStream);
+                        } catch (IOException e1) {
+                            log.error("Error while sending response for login message: " + e1.getMessage(), e1);
+                        }
                     }
-                }
-                break;
-            case 1://Logout
-                sessionIdLength = byteBuffer.getInt();
-                sessionId = new String(message, 4, sessionIdLength);
-                try {
-                    dataBridgeReceiverService.logout(sessionId);
-
-                    outputStream.write((byte) 0);
-                    outputStream.flush();
-                } catch (Exception e) {
+                    break;
+                case 1://Logout
+                    sessionIdLength = byteBuffer.getInt();
+                    sessionId = new String(message, 4, sessionIdLength);
                     try {
-                        sendError(e, outputStream);
-                    } catch (IOException e1) {
-                        log.error("Error while sending response for login message: " + e1.getMessage(), e1);
+                        dataBridgeReceiverService.logout(sessionId);
+
+                        outputStream.write((byte) 0);
+                        outputStream.flush();
+                    } catch (Exception e) {
+                        try {
+                            sendError(e, outputStream);
+                        } catch (IOException e1) {
+                            log.error("Error while sending response for login message: " + e1.getMessage(), e1);
+                        }
                     }
-                }
-                break;
-            case 2: //Publish
-                sessionIdLength = byteBuffer.getInt();
-                sessionId = new String(message, 4, sessionIdLength);
-                try {
-                    dataBridgeReceiverService.publish(message, sessionId, BinaryEventConverter.getConverter());
-
-                    outputStream.write((byte) 0);
-                    outputStream.flush();
-                } catch (Exception e) {
+                    break;
+                case 2: //Publish
+                    sessionIdLength = byteBuffer.getInt();
+                    sessionId = new String(message, 4, sessionIdLength);
                     try {
-                        sendError(e, outputStream);
-                    } catch (IOException e1) {
-                        log.error("Error while sending response for login message: " + e1.getMessage(), e1);
+                        dataBridgeReceiverService.publish(new BinaryEventBundle(message, messageSize),
+                                getSession(sessionId, eventConverter), eventConverter);
+                        published = true;
+
+                        outputStream.write((byte) 0);
+                        outputStream.flush();
+                    } catch (Exception e) {
+                        try {
+                            sendError(e, outputStream);
+                        } catch (IOException e1) {
+                            log.error("Error while sending response for login message: " + e1.getMessage(), e1);
+                        }
                     }
-                }
-                break;
-            default:
-                log.error("Message Type " + messageType + " is not supported!");
+                    break;
+                case 3: //Sequenced publish, the trailing sequence number is echoed so publishers can pipeline frames
+                    if (messageSize < SEQUENCED_PUBLISH_MIN_SIZE) {
+                        //Without the sequence number the error cannot be matched to the message it is sent for
+                        try {
+                            sendError(new MalformedEventException("Sequenced publish message of " + messageSize +
+                                    " bytes is too short"), outputStream);
+                        } catch (IOException e1) {
+                            log.error("Error while sending response for publish message: " + e1.getMessage(), e1);
+                        }
+                        break;
+                    }
+                    long sequence = byteBuffer.getLong(messageSize - 8);
+                    try {
+                        sessionIdLength = byteBuffer.getInt();
+                        if (sessionIdLength < 0 || sessionIdLength > messageSize - SEQUENCED_PUBLISH_MIN_SIZE) {
+                            throw new MalformedEventException("Invalid session id length " + sessionIdLength +
+                                    " in sequenced publish message of " + messageSize + " bytes");
+                        }
+                        sessionId = new String(message, 4, sessionIdLength);
+                        dataBridgeReceiverService.publish(new BinaryEventBundle(message, messageSize),
+                                getSession(sessionId, eventConverter), eventConverter);
+                        published = true;
+
+                        ByteBuffer buffer = ByteBuffer.allocate(9);
+                        buffer.put((byte) 3);
+                        buffer.putLong(sequence);
+                        outputStream.write(buffer.array());
+                        outputStream.flush();
+                    } catch (Exception e) {
+                        try {
+                            sendSequencedError(e, sequence, outputStream);
+                        } catch (IOException e1) {
+                            log.error("Error while sending response for publish message: " + e1.getMessage(), e1);
+                        }
+                    }
+                    break;
+                case 5: //Stream id registration, not acknowledged so that it never interleaves with publish responses
+                    int streamIdHandle = byteBuffer.getInt();
+                    int streamIdLength = byteBuffer.getInt();
+                    try {
+                        eventConverter.registerStreamId(streamIdHandle, new String(message, 8, streamIdLength));
+                    } catch (MalformedEventException e) {
+                        log.error("Error while registering stream id: " + e.getMessage(), e);
+                    }
+                    break;
+                case 6: //Compressed messages, processed in the order they were compressed
+                    try {
+                        processCompressedMessages(message, messageSize, outputStream, eventConverter);
+                    } catch (Exception e) {
+                        try {
+                            sendError(new MalformedEventException("Error while decompressing binary message: " +
+                                    e.getMessage()), outputStream);
+                        } catch (IOException e1) {
+                            log.error("Error while sending response for compressed message: " + e1.getMessage(), e1);
+                        }
+                    }
+                    break;
+                case 7: //Heartbeat, answered so that publishers can check their pooled connections
+                    try {
+                        outputStream.write((byte) 0);
+                        outputStream.flush();
+                    } catch (IOException e) {
+                        log.error("Error while sending response for heartbeat message: " + e.getMessage(), e);
+                    }
+                    break;
+                default:
+                    log.error("Message Type " + messageType + " is not supported!");
+            }
+        } finally {
+            if (bufferPool != null && !published) {
+                bufferPool.release(message);
+            }
         }
         return null;
     }
 
+    /**
+     * Returns the session the connection of the given converter publishes with, resolving it only when the session
+     * id changes or the kept session is no longer valid.
+     */
+    private AgentSession getSession(String sessionId, BinaryEventConverter eventConverter)
+            throws SessionTimeoutException {
+        AgentSession agentSession = eventConverter.getAgentSession();
+        if (agentSession == null || !agentSession.isValid() || !agentSession.getSessionId().equals(sessionId)) {
+            agentSession = dataBridgeReceiverService.getSession(sessionId);
+            eventConverter.setAgentSession(agentSession);
+        }
+        return agentSession;
+    }
+
+    /**
+     * Rejects a message size announced by a publisher before a buffer is allocated for it.
+     */
+    void checkMessageSize(int messageSize) throws IOException {
+        if (messageSize < 0 || messageSize > binaryDataReceiverConfiguration.getMaxMessageSize()) {
+            throw new IOException("Invalid binary message size " + messageSize + " received, the maximum is " +
+                    binaryDataReceiverConfiguration.getMaxMessageSize());
+        }
+    }
+
+    byte[] acquireMessageBuffer(int messageSize) {
+        if (bufferPool != null) {
+            return bufferPool.acquire(messageSize);
+        }
+        return new byte[messageSize];
+    }
+
+    BinaryEventConverter newConnectionConverter() {
+        return BinaryEventConverter.newConnectionConverter(bufferPool,
+                binaryDataReceiverConfiguration.isLazyEventDecoding(),
+                binaryDataReceiverConfiguration.isPrecompiledEventDecoding());
+    }
+
+    /**
+     * @return the number of received messages that were read into a reused buffer
+     */
+    public long getBufferPoolHitCount() {
+        return bufferPool != null ? bufferPool.getHitCount() : 0;
+    }
+
+    /**
+     * @return the number of received messages for which a new buffer had to be allocated, while pooling is enabled
+     */
+    public long getBufferPoolMissCount() {
+        return bufferPool != null ? bufferPool.getMissCount() : 0;
+    }
+
+    private void processCompressedMessages(byte[] message, int messageSize, OutputStream outputStream,
+                                           BinaryEventConverter eventConverter) throws DataFormatException {
+        int uncompressedSize = ByteBuffer.wrap(message).getInt();
+        if (uncompressedSize < 0 || uncompressedSize > binaryDataReceiverConfiguration.getMaxMessageSize()) {
+            throw new DataFormatException("Invalid uncompressed size " + uncompressedSize);
+        }
+        byte[] uncompressed = acquireMessageBuffer(uncompressedSize);
+        try {
+            inflateMessages(message, messageSize, uncompressed, uncompressedSize, outputStream, eventConverter);
+        } finally {
+            if (bufferPool != null) {
+                bufferPool.release(uncompressed);
+            }
+        }
+    }
+
+    private void inflateMessages(byte[] message, int messageSize, byte[] uncompressed, int uncompressedSize,
+                                 OutputStream outputStream, BinaryEventConverter eventConverter)
+            throws DataFormatException {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(message, 4, messageSize - 4);
+        int length = 0;
+        while (length < uncompressedSize && !inflater.finished()) {
+            int inflated = inflater.inflate(uncompressed, length, uncompressedSize - length);
+            if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                break;
+            }
+            length += inflated;
+        }
+        if (length != uncompressedSize) {
+            throw new DataFormatException("Expected " + uncompressedSize + " bytes but inflated " + length);
+        }
+        ByteBuffer byteBuffer = ByteBuffer.wrap(uncompressed, 0, uncompressedSize);
+        while (byteBuffer.remaining() >= 5) {
+            int messageType = byteBuffer.get();
+            int containedMessageSize = byteBuffer.getInt();
+            if (messageType == 6 || containedMessageSize < 0 || containedMessageSize > byteBuffer.remaining()) {
+                throw new DataFormatException("Invalid compressed message of type " + messageType +
+                        " and size " + containedMessageSize);
+            }
+            byte[] containedMessage = acquireMessageBuffer(containedMessageSize);
+            byteBuffer.get(containedMessage, 0, containedMessageSize);
+            processMessage(messageType, containedMessage, containedMessageSize, outputStream, eventConverter);
+        }
+    }
+
     private void sendError(Exception e, OutputStream outputStream) throws IOException {
+        outputStream.write((byte) 1);//Error
+        writeError(e, outputStream);
+    }
+
+    private void sendSequencedError(Exception e, long sequence, OutputStream outputStream) throws IOException {
+        ByteBuffer bbuf = ByteBuffer.wrap(new byte[9]);
+        bbuf.put((byte) 4);//Sequenced error
+        bbuf.putLong(sequence);
+        outputStream.write(bbuf.array());
+        writeError(e, outputStream);
+    }
+
+    private void writeError(Exception e, OutputStream outputStream) throws IOException {
 
         int errorClassNameLength = e.getClass().getCanonicalName().length();
         int errorMsgLength = e.getMessage().length();
@@ -214,7 +461,6 @@ public class BinaryDataReceiver {
         bbuf.putInt(errorClassNameLength);
         bbuf.putInt(errorMsgLength);
 
-        outputStream.write((byte) 1);//Error
         outputStream.write(bbuf.array());
         outputStream.write(e.getClass().getCanonicalName().getBytes(BinaryMessageConstants.DEFAULT_CHARSET));
         outputStream.write(e.getMessage().getBytes(BinaryMessageConstants.DEFAULT_CHARSET));
@@ -273,11 +519,13 @@ public class BinaryDataReceiver {
             try {
                 InputStream inputstream = new BufferedInputStream(socket.getInputStream());
                 OutputStream outputStream = new BufferedOutputStream((socket.getOutputStream()));
+                BinaryEventConverter eventConverter = newConnectionConverter();
                 int messageType = inputstream.read();
                 while (messageType != -1) {
                     int messageSize = ByteBuffer.wrap(loadData(inputstream, new byte[4])).getInt();
-                    byte[] message = loadData(inputstream, new byte[messageSize]);
-                    processMessage(messageType, message, outputStream);
+                    checkMessageSize(messageSize);
+                    byte[] message = loadData(inputstream, acquireMessageBuffer(messageSize), messageSize);
+                    processMessage(messageType, message, messageSize, outputStream, eventConverter);
                     messageType = inputstream.read();
                 }
             } catch (IOException ex) {
@@ -0,0 +1,349 @@
+/*
+*  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.databridge.receiver.binary.internal;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.databridge.commons.utils.DataBridgeThreadFactory;
+import org.wso2.carbon.databridge.receiver.binary.BinaryEventConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selector based server for the binary TCP transport. Accepted connections are spread across a fixed number of
+ * I/O threads, each of which multiplexes its connections on a single selector and decodes the
+ * [type][size][payload] frames incrementally. Complete messages are processed by a pool of worker threads, while
+ * reading from their connection is suspended, so that a publish blocked on a full event queue only stops its own
+ * connection and not the logins, heartbeats and publishes of the others on the same selector. The number of
+ * threads therefore no longer grows with the number of connected publishers.
+ */
+public class BinaryNioEventServer {
+    private static final Log log = LogFactory.getLog(BinaryNioEventServer.class);
+    private static final int MESSAGE_HEADER_SIZE = 5;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final BinaryDataReceiver binaryDataReceiver;
+    private final int port;
+    private final int ioThreadCount;
+    private final int workerThreadCount;
+    private ServerSocketChannel serverSocketChannel;
+    private IOWorker[] ioWorkers;
+    //Unbounded, as each connection has at most one message processing task queued or running
+    private ExecutorService messageProcessors;
+    private volatile boolean running;
+
+    public BinaryNioEventServer(BinaryDataReceiver binaryDataReceiver, int port, int ioThreadCount,
+                                int workerThreadCount) {
+        this.binaryDataReceiver = binaryDataReceiver;
+        this.port = port;
+        this.ioThreadCount = ioThreadCount > 0 ? ioThreadCount : 1;
+        this.workerThreadCount = workerThreadCount > 0 ? workerThreadCount : 1;
+    }
+
+    public void start() throws IOException {
+        serverSocketChannel = ServerSocketChannel.open();
+        serverSocketChannel.socket().setReuseAddress(true);
+        serverSocketChannel.socket().bind(new InetSocketAddress(port));
+        running = true;
+        messageProcessors = new ThreadPoolExecutor(workerThreadCount, workerThreadCount, 0L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new DataBridgeThreadFactory("Receiver-Binary-TCP"));
+        ioWorkers = new IOWorker[ioThreadCount];
+        for (int i = 0; i < ioThreadCount; i++) {
+            ioWorkers[i] = new IOWorker(Selector.open());
+            new Thread(ioWorkers[i], "Receiver-Binary-TCP-IO-" + i).start();
+        }
+        new Thread(new Acceptor(), "Receiver-Binary-TCP-Acceptor").start();
+    }
+
+    public void stop() {
+        running = false;
+        try {
+            serverSocketChannel.close();
+        } catch (IOException e) {
+            log.error("Error while closing the binary server socket channel. ", e);
+        }
+        for (IOWorker ioWorker : ioWorkers) {
+            ioWorker.selector.wakeup();
+        }
+        messageProcessors.shutdown();
+    }
+
+    private class Acceptor implements Runnable {
+
+        @Override
+        public void run() {
+            int nextWorker = 0;
+            while (running) {
+                try {
+                    SocketChannel socketChannel = serverSocketChannel.accept();
+                    socketChannel.configureBlocking(false);
+                    socketChannel.socket().setTcpNoDelay(true);
+                    ioWorkers[nextWorker].register(socketChannel);
+                    nextWorker = (nextWorker + 1) % ioWorkers.length;
+                } catch (ClosedChannelException e) {
+                    if (running) {
+                        log.error("Binary server socket channel closed unexpectedly. ", e);
+                    }
+                    return;
+                } catch (IOException e) {
+                    log.error("Error while accepting the connection. ", e);
+                }
+            }
+        }
+    }
+
+    private class IOWorker implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> acceptedChannels = new ConcurrentLinkedQueue<SocketChannel>();
+        private final Queue<BinaryConnection> processedConnections = new ConcurrentLinkedQueue<BinaryConnection>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+        private IOWorker(Selector selector) {
+            this.selector = selector;
+        }
+
+        private void register(SocketChannel socketChannel) {
+            acceptedChannels.add(socketChannel);
+            selector.wakeup();
+        }
+
+        /**
+         * Called by the message processors once the messages of a connection are processed, so that the I/O thread
+         * writes the responses and resumes reading from the connection.
+         */
+        private void resume(BinaryConnection connection) {
+            processedConnections.add(connection);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select();
+                    registerAcceptedChannels();
+                    resumeProcessedConnections();
+                    Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                    while (selectedKeys.hasNext()) {
+                        SelectionKey key = selectedKeys.next();
+                        selectedKeys.remove();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        BinaryConnection connection = (BinaryConnection) key.attachment();
+                        try {
+                            if (key.isWritable()) {
+                                connection.flushResponses();
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                connection.read(readBuffer);
+                            }
+                        } catch (IOException e) {
+                            log.error("Error while reading from the socket. ", e);
+                            connection.close();
+                        }
+                    }
+                } catch (IOException e) {
+                    log.error("Error while selecting binary transport connections. ", e);
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                ((BinaryConnection) key.attachment()).close();
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.error("Error while closing the binary transport selector. ", e);
+            }
+        }
+
+        private void resumeProcessedConnections() {
+            BinaryConnection connection;
+            while ((connection = processedConnections.poll()) != null) {
+                if (!connection.key.isValid()) {
+                    continue;
+                }
+                try {
+                    connection.flushResponses();
+                } catch (IOException e) {
+                    log.error("Error while writing to the socket. ", e);
+                    connection.close();
+                }
+            }
+        }
+
+        private void registerAcceptedChannels() {
+            SocketChannel socketChannel;
+            while ((socketChannel = acceptedChannels.poll()) != null) {
+                BinaryConnection connection = new BinaryConnection(socketChannel, this);
+                try {
+                    connection.key = socketChannel.register(selector, SelectionKey.OP_READ, connection);
+                } catch (ClosedChannelException e) {
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Per connection decoding state. Reading is suspended while the received messages are processed, which keeps
+     * them in order and pushes back on the publisher while the event queue is full, and while a response is only
+     * partially written, which pushes back on publishers that do not drain their acknowledgements.
+     */
+    private class BinaryConnection implements Runnable {
+        private final SocketChannel socketChannel;
+        private final IOWorker ioWorker;
+        private final ByteBuffer header = ByteBuffer.allocate(MESSAGE_HEADER_SIZE);
+        private final ByteArrayOutputStream responses = new ByteArrayOutputStream();
+        private final BinaryEventConverter eventConverter = binaryDataReceiver.newConnectionConverter();
+        private SelectionKey key;
+        private int messageType;
+        private ByteBuffer message;
+        private int messageSize;
+        private ByteBuffer pendingResponse;
+        private List<ReceivedMessage> receivedMessages = new ArrayList<ReceivedMessage>();
+
+        private BinaryConnection(SocketChannel socketChannel, IOWorker ioWorker) {
+            this.socketChannel = socketChannel;
+            this.ioWorker = ioWorker;
+        }
+
+        private void read(ByteBuffer readBuffer) throws IOException {
+            readBuffer.clear();
+            if (socketChannel.read(readBuffer) == -1) {
+                close();
+                return;
+            }
+            readBuffer.flip();
+            while (readBuffer.hasRemaining()) {
+                if (message == null) {
+                    transfer(readBuffer, header);
+                    if (header.hasRemaining()) {
+                        break;
+                    }
+                    header.flip();
+                    messageType = header.get();
+                    messageSize = header.getInt();
+                    header.clear();
+                    binaryDataReceiver.checkMessageSize(messageSize);
+                    message = ByteBuffer.wrap(binaryDataReceiver.acquireMessageBuffer(messageSize), 0, messageSize);
+                }
+                transfer(readBuffer, message);
+                if (!message.hasRemaining()) {
+                    receivedMessages.add(new ReceivedMessage(messageType, message.array(), messageSize));
+                    message = null;
+                }
+            }
+            if (!receivedMessages.isEmpty()) {
+                key.interestOps(0);
+                try {
+                    messageProcessors.execute(this);
+                } catch (RejectedExecutionException e) {
+                    //The server is stopping
+                    close();
+                }
+            }
+        }
+
+        /**
+         * Processes the messages received by the last read, on a message processor thread.
+         */
+        @Override
+        public void run() {
+            List<ReceivedMessage> messages = receivedMessages;
+            receivedMessages = new ArrayList<ReceivedMessage>();
+            try {
+                for (ReceivedMessage receivedMessage : messages) {
+                    binaryDataReceiver.processMessage(receivedMessage.type, receivedMessage.message,
+                            receivedMessage.size, responses, eventConverter);
+                }
+            } catch (Throwable t) {
+                log.error("Error while processing binary messages. ", t);
+            } finally {
+                ioWorker.resume(this);
+            }
+        }
+
+        private void flushResponses() throws IOException {
+            while (true) {
+                if (pendingResponse == null) {
+                    if (responses.size() == 0) {
+                        key.interestOps(SelectionKey.OP_READ);
+                        return;
+                    }
+                    pendingResponse = ByteBuffer.wrap(responses.toByteArray());
+                    responses.reset();
+                }
+                socketChannel.write(pendingResponse);
+                if (pendingResponse.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_WRITE);
+                    return;
+                }
+                pendingResponse = null;
+            }
+        }
+
+        private void transfer(ByteBuffer source, ByteBuffer destination) {
+            int limit = source.limit();
+            source.limit(source.position() + Math.min(source.remaining(), destination.remaining()));
+            destination.put(source);
+            source.limit(limit);
+        }
+
+        private void close() {
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                socketChannel.close();
+            } catch (IOException e) {
+                log.error("Error while closing the binary transport connection. ", e);
+            }
+        }
+    }
+
+    private static class ReceivedMessage {
+        private final int type;
+        private final byte[] message;
+        private final int size;
+
+        private ReceivedMessage(int type, byte[] message, int size) {
+            this.type = type;
+            this.message = message;
+            this.size = size;
+        }
+    }
+}
@@ -21,8 +21,14 @@ package org.wso2.carbon.databridge.receiver.thrift;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
 import org.apache.thrift.server.TServer;
 import org.apache.thrift.server.TThreadPoolServer;
+import org.apache.thrift.server.TThreadedSelectorServer;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TNonblockingServerSocket;
 import org.apache.thrift.transport.TSSLTransportFactory;
 import org.apache.thrift.transport.TServerSocket;
 import org.apache.thrift.transport.TTransportException;
@@ -182,8 +188,13 @@ public class ThriftDataReceiver {
         ThriftSecureEventTransmissionService.Processor<ThriftSecureEventTransmissionServiceImpl> processor =
                 new ThriftSecureEventTransmissionService.Processor<ThriftSecureEventTransmissionServiceImpl>(
                         new ThriftSecureEventTransmissionServiceImpl(dataBridgeReceiverService));
-        authenticationServer = new TThreadPoolServer(
-                new TThreadPoolServer.Args(serverTransport).processor(processor));
+        TThreadPoolServer.Args args = new TThreadPoolServer.Args(serverTransport).processor(processor)
+                .protocolFactory(getProtocolFactory());
+        if (thriftDataReceiverConfiguration.isSelectorServerMode()) {
+            //The secure connections are only used to authenticate, and stay blocking as they are served over SSL
+            args.transportFactory(new TFramedTransport.Factory());
+        }
+        authenticationServer = new TThreadPoolServer(args);
         Thread thread = new Thread(new ServerThread(authenticationServer));
         log.info("Thrift SSL port : " + port);
         thread.start();
@@ -193,13 +204,24 @@ public class ThriftDataReceiver {
                                           DataBridgeReceiverService dataBridgeReceiverService)
             throws DataBridgeException {
         try {
-            TServerSocket serverTransport = new TServerSocket(
-                    new InetSocketAddress(hostName, port));
             ThriftEventTransmissionService.Processor<ThriftEventTransmissionServiceImpl> processor =
                     new ThriftEventTransmissionService.Processor<ThriftEventTransmissionServiceImpl>(
                             new ThriftEventTransmissionServiceImpl(dataBridgeReceiverService));
-            dataReceiverServer = new TThreadPoolServer(
-                    new TThreadPoolServer.Args(serverTransport).processor(processor));
+            if (thriftDataReceiverConfiguration.isSelectorServerMode()) {
+                TNonblockingServerSocket serverTransport = new TNonblockingServerSocket(
+                        new InetSocketAddress(hostName, port));
+                dataReceiverServer = new TThreadedSelectorServer(
+                        new TThreadedSelectorServer.Args(serverTransport).processor(processor)
+                                .protocolFactory(getProtocolFactory())
+                                .selectorThreads(thriftDataReceiverConfiguration.getSelectorThreads())
+                                .workerThreads(thriftDataReceiverConfiguration.getWorkerThreads()));
+            } else {
+                TServerSocket serverTransport = new TServerSocket(
+                        new InetSocketAddress(hostName, port));
+                dataReceiverServer = new TThreadPoolServer(
+                        new TThreadPoolServer.Args(serverTransport).processor(processor)
+                                .protocolFactory(getProtocolFactory()));
+            }
             Thread thread = new Thread(new ServerThread(dataReceiverServer));
             log.info("Thrift port : " + port);
             thread.start();
@@ -209,6 +231,13 @@ public class ThriftDataReceiver {
         }
     }
 
+    private TProtocolFactory getProtocolFactory() {
+        if (thriftDataReceiverConfiguration.isCompactThriftProtocol()) {
+            return new TCompactProtocol.Factory();
+        }
+        return new TBinaryProtocol.Factory();
+    }
+
     /**
      * To stop the server
      */
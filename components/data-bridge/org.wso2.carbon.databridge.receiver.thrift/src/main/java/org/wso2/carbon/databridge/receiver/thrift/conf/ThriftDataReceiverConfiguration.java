@@ -33,6 +33,10 @@ public class ThriftDataReceiverConfiguration {
     private String sslProtocols;
     private String ciphers;
     private String receiverHostName;
+    private String serverMode = ThriftDataReceiverConstants.DEFAULT_SERVER_MODE;
+    private int selectorThreads = ThriftDataReceiverConstants.DEFAULT_SELECTOR_THREADS;
+    private int workerThreads = ThriftDataReceiverConstants.DEFAULT_WORKER_THREADS;
+    private String thriftProtocol = ThriftDataReceiverConstants.DEFAULT_THRIFT_PROTOCOL;
 
     public ThriftDataReceiverConfiguration(int defaultSslPort, int defaultPort) {
         secureDataReceiverPort = defaultSslPort;
@@ -52,6 +56,14 @@ public class ThriftDataReceiverConfiguration {
         String sslProtocols = dataReceiverConfiguration.getProperties().get(
                 ThriftDataReceiverConstants.PROTOCOLS_ELEMENT);
         String ciphers = dataReceiverConfiguration.getProperties().get(ThriftDataReceiverConstants.CIPHERS_ELEMENT);
+        String serverMode = dataReceiverConfiguration.getProperties().get(
+                ThriftDataReceiverConstants.SERVER_MODE_ELEMENT);
+        String selectorThreads = dataReceiverConfiguration.getProperties().get(
+                ThriftDataReceiverConstants.SELECTOR_THREADS_ELEMENT);
+        String workerThreads = dataReceiverConfiguration.getProperties().get(
+                ThriftDataReceiverConstants.WORKER_THREADS_ELEMENT);
+        String thriftProtocol = dataReceiverConfiguration.getProperties().get(
+                ThriftDataReceiverConstants.THRIFT_PROTOCOL_ELEMENT);
 
         if (sslPortConfiguration != null && !sslPortConfiguration.trim().isEmpty()) {
             this.secureDataReceiverPort = Integer.parseInt(sslPortConfiguration.trim()) + portOffset;
@@ -79,6 +91,22 @@ public class ThriftDataReceiverConfiguration {
         if (ciphers != null && !ciphers.trim().isEmpty()) {
             this.ciphers = ciphers;
         }
+
+        if (serverMode != null && !serverMode.trim().isEmpty()) {
+            this.serverMode = serverMode.trim();
+        }
+
+        if (selectorThreads != null && !selectorThreads.trim().isEmpty()) {
+            this.selectorThreads = Integer.parseInt(selectorThreads.trim());
+        }
+
+        if (workerThreads != null && !workerThreads.trim().isEmpty()) {
+            this.workerThreads = Integer.parseInt(workerThreads.trim());
+        }
+
+        if (thriftProtocol != null && !thriftProtocol.trim().isEmpty()) {
+            this.thriftProtocol = thriftProtocol.trim();
+        }
     }
 
     public ThriftDataReceiverConfiguration(int defaultSslPort, int defaultPort,
@@ -127,4 +155,52 @@ public class ThriftDataReceiverConfiguration {
     public void setCiphers(String ciphers) {
         this.ciphers = ciphers;
     }
+
+    public String getServerMode() {
+        return serverMode;
+    }
+
+    public void setServerMode(String serverMode) {
+        this.serverMode = serverMode;
+    }
+
+    /**
+     * @return true if the receiver should serve framed connections, multiplexing the event connections on a fixed
+     * number of selector threads instead of dedicating a thread to each connection.
+     */
+    public boolean isSelectorServerMode() {
+        return ThriftDataReceiverConstants.SERVER_MODE_SELECTOR.equalsIgnoreCase(serverMode);
+    }
+
+    public int getSelectorThreads() {
+        return selectorThreads;
+    }
+
+    public void setSelectorThreads(int selectorThreads) {
+        this.selectorThreads = selectorThreads;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public String getThriftProtocol() {
+        return thriftProtocol;
+    }
+
+    public void setThriftProtocol(String thriftProtocol) {
+        this.thriftProtocol = thriftProtocol;
+    }
+
+    /**
+     * @return true if the event bundles should be read with the compact protocol, which encodes the integers,
+     * longs and list headers as variable length integers instead of fixed width fields.
+     */
+    public boolean isCompactThriftProtocol() {
+        return ThriftDataReceiverConstants.THRIFT_PROTOCOL_COMPACT.equalsIgnoreCase(thriftProtocol);
+    }
 }
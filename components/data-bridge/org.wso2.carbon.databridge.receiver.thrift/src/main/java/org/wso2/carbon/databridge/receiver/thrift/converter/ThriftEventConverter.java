@@ -153,7 +153,7 @@ public final class ThriftEventConverter implements EventConverter {
                 event.setTimeStamp(timeStamp);
                 AttributeType[][] attributeTypeOrder = streamTypeHolder.getDataType(streamId);
                 if (attributeTypeOrder == null) {
-                    streamTypeHolder.reloadStreamTypeHolder();
+                    streamTypeHolder.reloadStreamTypeHolder(streamId);
                     attributeTypeOrder = streamTypeHolder.getDataType(streamId);
                     if (attributeTypeOrder == null) {
                         throw new EventConversionException("No StreamDefinition for streamId " + streamId + " present in cache ");
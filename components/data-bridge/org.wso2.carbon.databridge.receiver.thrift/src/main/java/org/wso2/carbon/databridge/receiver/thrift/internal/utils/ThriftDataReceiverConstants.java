@@ -31,6 +31,18 @@ public final class ThriftDataReceiverConstants {
     public static final String PROTOCOLS_ELEMENT = "sslEnabledProtocols";
     public static final String CIPHERS_ELEMENT = "ciphers";
     public static final String RECEIVER_HOST_NAME = "hostName";
+    public static final String SERVER_MODE_ELEMENT = "serverMode";
+    public static final String SERVER_MODE_BLOCKING = "blocking";
+    public static final String SERVER_MODE_SELECTOR = "selector";
+    public static final String DEFAULT_SERVER_MODE = SERVER_MODE_BLOCKING;
+    public static final String SELECTOR_THREADS_ELEMENT = "selectorThreads";
+    public static final int DEFAULT_SELECTOR_THREADS = 2;
+    public static final String WORKER_THREADS_ELEMENT = "workerThreads";
+    public static final int DEFAULT_WORKER_THREADS = 10;
+    public static final String THRIFT_PROTOCOL_ELEMENT = "thriftProtocol";
+    public static final String THRIFT_PROTOCOL_BINARY = "binary";
+    public static final String THRIFT_PROTOCOL_COMPACT = "compact";
+    public static final String DEFAULT_THRIFT_PROTOCOL = THRIFT_PROTOCOL_BINARY;
     public static final String DEFAULT_HOSTNAME = "0.0.0.0";
     public static final String DATA_BRIDGE_RECEIVER_NAME = "Thrift";
     public static final String DATA_BRIDGE_KEY_STORE_LOCATION = "keyStoreLocation";
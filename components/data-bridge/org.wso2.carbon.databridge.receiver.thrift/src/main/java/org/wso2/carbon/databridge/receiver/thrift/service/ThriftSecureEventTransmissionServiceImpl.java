@@ -32,8 +32,10 @@ import org.wso2.carbon.databridge.commons.thrift.exception.ThriftNoStreamDefinit
 import org.wso2.carbon.databridge.commons.thrift.exception.ThriftSessionExpiredException;
 import org.wso2.carbon.databridge.commons.thrift.exception.ThriftUndefinedEventTypeException;
 import org.wso2.carbon.databridge.commons.thrift.service.secure.ThriftSecureEventTransmissionService;
+import org.wso2.carbon.databridge.commons.thrift.utils.CommonThriftConstants;
 import org.wso2.carbon.databridge.core.DataBridgeReceiverService;
 import org.wso2.carbon.databridge.core.EventConverter;
+import org.wso2.carbon.databridge.core.Utils.AgentSession;
 import org.wso2.carbon.databridge.receiver.thrift.converter.ThriftEventConverter;
 
 /**
@@ -44,6 +46,9 @@ public class ThriftSecureEventTransmissionServiceImpl
 
     private DataBridgeReceiverService dataBridgeReceiverService;
     private EventConverter eventConverter = new ThriftEventConverter();
+    // The session last resolved on the serving thread. It is only reused while it is valid and its id matches the
+    // bundle's, as a thread may serve several connections, e.g. in the selector based server mode
+    private ThreadLocal<AgentSession> agentSessions = new ThreadLocal<AgentSession>();
 
     public ThriftSecureEventTransmissionServiceImpl(
             DataBridgeReceiverService dataBridgeReceiverService) {
@@ -86,6 +91,11 @@ public class ThriftSecureEventTransmissionServiceImpl
     public String findStreamId(String sessionId, String streamName, String streamVersion)
             throws ThriftNoStreamDefinitionExistException, ThriftSessionExpiredException,
                    TException {
+        if (CommonThriftConstants.HEARTBEAT_STREAM_NAME.equals(streamName)) {
+            //Heartbeats of publishers only check the connection, hence the stream definitions are not read
+            throw new ThriftNoStreamDefinitionExistException("Stream definition not exist for " + streamName + " " +
+                    streamVersion);
+        }
         try {
             String streamDefinition = dataBridgeReceiverService.findStreamId(sessionId, streamName, streamVersion);
             if (streamDefinition == null) {
@@ -124,11 +134,20 @@ public class ThriftSecureEventTransmissionServiceImpl
     public void publish(ThriftEventBundle eventBundle)
             throws ThriftUndefinedEventTypeException, ThriftSessionExpiredException, TException {
         try {
-            dataBridgeReceiverService.publish(eventBundle, eventBundle.getSessionId(), eventConverter);
+            dataBridgeReceiverService.publish(eventBundle, getSession(eventBundle.getSessionId()), eventConverter);
         } catch (UndefinedEventTypeException e) {
             throw new ThriftUndefinedEventTypeException(e.getErrorMessage());
         } catch (SessionTimeoutException e) {
             throw new ThriftSessionExpiredException(e.getErrorMessage());
         }
     }
+
+    private AgentSession getSession(String sessionId) throws SessionTimeoutException {
+        AgentSession agentSession = agentSessions.get();
+        if (agentSession == null || !agentSession.isValid() || !agentSession.getSessionId().equals(sessionId)) {
+            agentSession = dataBridgeReceiverService.getSession(sessionId);
+            agentSessions.set(agentSession);
+        }
+        return agentSession;
+    }
 }